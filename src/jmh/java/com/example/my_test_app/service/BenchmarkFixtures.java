@@ -0,0 +1,75 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.model.OrderItem;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.ProductType;
+import com.example.my_test_app.model.User;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * JMHベンチマーク用のテストデータ生成。DBを使わずにエンティティを組み立てる。
+ * 乱数は固定シードなので、実行ごとに同じデータになる。
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<Product> products(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("ベンチマーク商品 " + i);
+            product.setDescription("ベンチマーク用の商品説明です。商品番号: " + i);
+            // 円単位の価格に小数2桁を付けた DECIMAL(10, 2) 相当の値
+            product.setPrice(BigDecimal.valueOf(random.nextLong(100, 1_000_000), 2));
+            product.setType(i % 5 == 0 ? ProductType.SUBSCRIPTION : ProductType.ONE_TIME);
+            product.setImageUrl("https://example.com/images/" + i + ".png");
+            products.add(product);
+        }
+        return products;
+    }
+
+    static Cart cart(int itemCount) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("bench");
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        long itemId = 1;
+        for (Product product : products(itemCount)) {
+            CartItem item = new CartItem();
+            item.setId(itemId++);
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity((int) (product.getId() % 5) + 1);
+            cart.getCartItems().add(item);
+        }
+        return cart;
+    }
+
+    static List<OrderItem> orderItems(int count) {
+        List<OrderItem> items = new ArrayList<>(count);
+        long itemId = 1;
+        for (Product product : products(count)) {
+            OrderItem item = new OrderItem();
+            item.setId(itemId++);
+            item.setProductId(product.getId());
+            item.setProductName(product.getName());
+            item.setItemPrice(product.getPrice());
+            item.setQuantity((int) (product.getId() % 5) + 1);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.OrderItem;
+import com.example.my_test_app.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * サービス層のDTO変換・金額計算のマイクロベンチマーク。
+ * リポジトリは使わない変換メソッドだけを対象にするため、依存はnullで組み立てる。
+ *
+ * 実行例: mvn -Pbenchmark test-compile exec:exec -Djmh.args="DtoConversionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoConversionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ProductService productService;
+    private CartService cartService;
+    private List<Product> products;
+    private Cart cart;
+    private List<OrderItem> orderItems;
+
+    @Setup
+    public void setUp() {
+        productService = new ProductService(null, null);
+        cartService = new CartService(null, null, null, null, productService, new SimpleMeterRegistry());
+        products = BenchmarkFixtures.products(size);
+        cart = BenchmarkFixtures.cart(size);
+        orderItems = BenchmarkFixtures.orderItems(size);
+    }
+
+    // カートの変換（PricingEngine による合計金額の計算を含む）
+    @Benchmark
+    public CartDto convertCart() {
+        return cartService.convertToCartDto(cart);
+    }
+
+    // 商品一覧APIと同じく、リスト全体をDTOに変換
+    @Benchmark
+    public void convertProducts(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(productService.convertToDto(product));
+        }
+    }
+
+    // 注文確定時の合計金額の計算（PricingEngine。導入前の計算との比較は PricingBenchmark）
+    @Benchmark
+    public BigDecimal orderTotal() {
+        return OrderService.calculateTotalAmount(orderItems);
+    }
+}
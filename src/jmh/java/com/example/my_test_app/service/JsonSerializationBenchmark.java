@@ -0,0 +1,87 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.dto.OrderItemDTO;
+import com.example.my_test_app.model.OrderItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * レスポンスボディのJSONシリアライズのマイクロベンチマーク。
+ * ObjectMapperはSpring MVCと同じ既定設定（Jackson2ObjectMapperBuilder）で生成する。
+ *
+ * 実行例: mvn -Pbenchmark test-compile exec:exec -Djmh.args="JsonSerializationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private CartDto cartDto;
+    private OrderDetailDto orderDetailDto;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        CartService cartService = new CartService(null, null, null, null, new ProductService(null, null),
+                new SimpleMeterRegistry());
+        cartDto = cartService.convertToCartDto(BenchmarkFixtures.cart(size));
+
+        List<OrderItem> orderItems = BenchmarkFixtures.orderItems(size);
+        orderDetailDto = new OrderDetailDto();
+        orderDetailDto.setId(1L);
+        orderDetailDto.setUserId(1L);
+        orderDetailDto.setOrderDate(LocalDateTime.of(2025, 1, 1, 12, 0));
+        orderDetailDto.setTotalAmount(OrderService.calculateTotalAmount(orderItems));
+        orderDetailDto.setShippingAddress("東京都千代田区1-1-1");
+        orderDetailDto.setPaymentStatus("PENDING");
+        orderDetailDto.setOrderStatus("PENDING");
+        orderDetailDto.setItems(orderItems.stream()
+                .map(item -> {
+                    OrderItemDTO itemDto = new OrderItemDTO();
+                    itemDto.setId(item.getId());
+                    itemDto.setProductId(item.getProductId());
+                    itemDto.setProductName(item.getProductName());
+                    itemDto.setItemPrice(item.getItemPrice());
+                    itemDto.setQuantity(item.getQuantity());
+                    return itemDto;
+                })
+                .toList());
+    }
+
+    @Benchmark
+    public byte[] serializeCart() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cartDto);
+    }
+
+    // 注文確定APIのレスポンス
+    @Benchmark
+    public byte[] serializeOrder() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderDetailDto);
+    }
+}
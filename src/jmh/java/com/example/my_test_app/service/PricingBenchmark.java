@@ -0,0 +1,81 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.model.OrderItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合計金額の計算方法の比較。
+ * legacy* は PricingEngine 導入前のカート (double) ・注文 (明細ごとの BigDecimal) の計算で、
+ * pricingEngine* が現在の CartService / OrderService の計算。
+ * 割り当て量も比較する場合は -prof gc を付ける。
+ *
+ * 実行例: mvn -Pbenchmark test-compile exec:exec -Djmh.args="PricingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private Cart cart;
+    private List<OrderItem> orderItems;
+
+    @Setup
+    public void setUp() {
+        cart = BenchmarkFixtures.cart(size);
+        orderItems = BenchmarkFixtures.orderItems(size);
+    }
+
+    // 導入前のカートの合計金額（誤差を含む double）
+    @Benchmark
+    public double legacyCartTotal() {
+        return cart.getCartItems().stream()
+                .mapToDouble(item -> item.getProduct().getPrice().doubleValue() * item.getQuantity())
+                .sum();
+    }
+
+    // 導入前の注文の合計金額（明細ごとに BigDecimal を2つ生成）
+    @Benchmark
+    public BigDecimal legacyOrderTotal() {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderItem item : orderItems) {
+            totalAmount = totalAmount.add(item.getItemPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return totalAmount;
+    }
+
+    @Benchmark
+    public BigDecimal pricingEngineCartTotal() {
+        long total = 0;
+        for (CartItem item : cart.getCartItems()) {
+            total = PricingEngine.addLine(total, item.getProduct().getPrice(), item.getQuantity());
+        }
+        return PricingEngine.toAmount(total);
+    }
+
+    @Benchmark
+    public BigDecimal pricingEngineOrderTotal() {
+        return OrderService.calculateTotalAmount(orderItems);
+    }
+}
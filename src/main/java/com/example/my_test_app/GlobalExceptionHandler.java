@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import com.example.my_test_app.exceptions.CartLimitExceededException; // ★追加: 複数形の'exceptions'であることを確認
+import com.example.my_test_app.exceptions.OutOfStockException;
 
 
 import java.util.Collections;
@@ -63,6 +64,13 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    // 在庫不足のハンドリング (409 Conflict)
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<Object> handleOutOfStockException(OutOfStockException ex) {
+        Map<String, String> errorResponse = Collections.singletonMap("message", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
     // その他の予期せぬ例外に対する汎用的なハンドリング (500 Internal Server Error)
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAllUncaughtException(Exception ex) {
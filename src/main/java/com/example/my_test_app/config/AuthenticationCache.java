@@ -0,0 +1,114 @@
+package com.example.my_test_app.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 検証済みの認証情報を短時間保持するキャッシュ。
+ * HTTP Basic認証ではリクエストごとにユーザー検索とBCrypt照合が行われるため、
+ * 一度照合に成功したパスワードのHMACをユーザー名ごとに保持し、同じパスワードでの再認証を省略する。
+ * パスワードそのものやBCryptハッシュは保持しない。HMACの鍵はプロセスごとに生成する。
+ * パスワードリセット・アカウントロック時は {@link #invalidateAfterCommit(String)} で破棄すること。
+ * ヒット率などは cache.* メトリクス（cache="authentication"）として公開する。
+ */
+@Component
+public class AuthenticationCache implements MeterBinder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, Entry> cache;
+    private final SecretKeySpec key;
+
+    private record Entry(byte[] credentialHash, Authentication authentication) {
+    }
+
+    public AuthenticationCache(@Value("${app.security.auth-cache.ttl:5m}") Duration ttl,
+                               @Value("${app.security.auth-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+    }
+
+    /**
+     * @param username ユーザー名
+     * @param password リクエストで送られたパスワード
+     * @return キャッシュ済みのパスワードと一致した場合は認証済みのAuthentication
+     */
+    public Optional<Authentication> get(String username, String password) {
+        Entry entry = cache.getIfPresent(username);
+        if (entry == null || !MessageDigest.isEqual(entry.credentialHash(), hmac(username, password))) {
+            return Optional.empty();
+        }
+        Authentication cached = entry.authentication();
+        return Optional.of(UsernamePasswordAuthenticationToken.authenticated(
+                cached.getPrincipal(), null, cached.getAuthorities()));
+    }
+
+    public void put(String username, String password, Authentication authentication) {
+        cache.put(username, new Entry(hmac(username, password), authentication));
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    /**
+     * 実行中のトランザクションのコミット後にユーザーのエントリを破棄する（トランザクション外では即座に破棄する）。
+     * コミット前に破棄すると、並行する認証がコミット前の（旧パスワードの）users 行で照合に成功し、
+     * 再びキャッシュしてしまうため。ロールバックした場合は破棄しない。
+     *
+     * @param username ユーザー名
+     */
+    public void invalidateAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(username);
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "authentication");
+    }
+
+    private byte[] hmac(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.my_test_app.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // 商品詳細 (キー: 商品ID)
+    public static final String PRODUCTS_CACHE = "products";
+    // 商品一覧のページ (キー: 検索条件 + カーソル)
+    public static final String PRODUCT_PAGES_CACHE = "productPages";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.products.max-size}") long productsMaxSize,
+            @Value("${app.cache.products.ttl}") Duration productsTtl,
+            @Value("${app.cache.product-pages.max-size}") long productPagesMaxSize,
+            @Value("${app.cache.product-pages.ttl}") Duration productPagesTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCTS_CACHE, Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(productsTtl)
+                .recordStats() // ヒット/ミス/追い出し件数を記録する
+                .build());
+        cacheManager.registerCustomCache(PRODUCT_PAGES_CACHE, Caffeine.newBuilder()
+                .maximumSize(productPagesMaxSize)
+                .expireAfterWrite(productPagesTtl)
+                .recordStats()
+                .build());
+        // 更新系トランザクションのコミット後にキャッシュを無効化する
+        // (コミット前に無効化すると、並行する読み取りが古い値を再キャッシュしてしまうため)
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.my_test_app.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key ヘッダーによる更新系APIの重複実行防止。
+ * キーごとに最初のリクエストのレスポンスを ttl の間保持し、同じキーの再送には処理を再実行せずに
+ * 保持したレスポンスを返す（Idempotent-Replayed: true ヘッダー付き）。
+ * 最初のリクエストの処理中に届いた再送は、その結果を待って同じレスポンスを返す。
+ * 5xxのレスポンスと例外は保持しないため、再送時に改めて処理する。
+ * 保持先はインスタンスごとのメモリのため、複数インスタンス構成では同じユーザーのリクエストを同じインスタンスへ振り分けること。
+ * ヒット率などは cache.* メトリクス（cache="idempotency"）として公開する。
+ */
+@Component
+public class IdempotencyKeyStore implements MeterBinder {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<String, Entry> cache;
+    private final Duration waitTimeout;
+
+    // fingerprint: 同じキーが別の内容のリクエストに使い回されていないかの確認用
+    private record Entry(String fingerprint, CompletableFuture<ResponseEntity<?>> response) {
+    }
+
+    public IdempotencyKeyStore(@Value("${app.idempotency.ttl:1h}") Duration ttl,
+                               @Value("${app.idempotency.max-size:100000}") long maxSize,
+                               @Value("${app.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * リクエストを冪等に処理します。キーが指定されていない場合はそのまま処理します。
+     *
+     * @param scope キーの有効範囲 (APIとユーザーの組など。異なる範囲では同じキーを別のものとして扱う)
+     * @param key Idempotency-Key ヘッダーの値 (null可)
+     * @param fingerprint リクエスト内容を表す文字列
+     * @param action 処理
+     * @return 処理結果、または同じキーで保持しているレスポンス。キーが不正な場合は400、
+     *         別の内容のリクエストに使われたキーの場合は422、先行リクエストの処理が終わらない場合は409
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String scope, String key, String fingerprint, Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return (ResponseEntity<T>) error(HEADER + " は1〜" + MAX_KEY_LENGTH + "文字で指定してください。", HttpStatus.BAD_REQUEST);
+        }
+        String cacheKey = scope + ":" + key;
+        while (true) {
+            Entry mine = new Entry(fingerprint, new CompletableFuture<>());
+            Entry existing = cache.asMap().putIfAbsent(cacheKey, mine);
+            if (existing == null) {
+                return run(cacheKey, mine, action);
+            }
+            if (!existing.fingerprint().equals(fingerprint)) {
+                return (ResponseEntity<T>) error("この " + HEADER + " は別の内容のリクエストで使用されています。",
+                        HttpStatus.UNPROCESSABLE_ENTITY);
+            }
+            try {
+                return (ResponseEntity<T>) replayed(existing.response().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                continue; // 先行リクエストが例外で終わった (エントリは削除済み) ため、改めて処理する
+            } catch (TimeoutException e) {
+                return (ResponseEntity<T>) error("同じ " + HEADER + " のリクエストを処理中です。", HttpStatus.CONFLICT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return (ResponseEntity<T>) error("リクエストの処理が中断されました。", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> run(String cacheKey, Entry entry, Supplier<ResponseEntity<T>> action) {
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(cacheKey, entry);
+            entry.response().completeExceptionally(e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            cache.asMap().remove(cacheKey, entry); // 処理を待っていた再送には同じ結果を返し、以降の再送は改めて処理する
+        }
+        entry.response().complete(response);
+        return response;
+    }
+
+    private static ResponseEntity<?> replayed(ResponseEntity<?> response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    private static ResponseEntity<?> error(String message, HttpStatus status) {
+        return new ResponseEntity<>(Collections.singletonMap("message", message), status);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotency");
+    }
+}
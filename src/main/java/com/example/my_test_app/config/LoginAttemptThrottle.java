@@ -0,0 +1,141 @@
+package com.example.my_test_app.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * ログイン失敗回数のメモリ上のスライディングウィンドウカウンター（ユーザー名ごと・接続元IPごと）。
+ * ログイン試行のたびに users 行を更新しないよう、失敗回数はここで数え、DBにはロック・ロック解除の遷移のみを書き込む。
+ * ウィンドウは {@value #BUCKETS} 個の時間バケットに分割し、各バケットは「バケット番号と回数」を1つのlong値として
+ * CASで更新するため、ロックを取らずに並行して記録できる。キーごとのカウンターはCaffeine（内部でストライプ化された
+ * ConcurrentHashMap）に保持し、ウィンドウの間失敗がなければ破棄する。
+ * カウンターはインスタンスごとのメモリのため、複数インスタンス構成ではインスタンスごとに数える（ロック状態はDBで共有される）。
+ * エントリ数などは cache.* メトリクス（cache="login-attempts"）として公開する。
+ */
+@Component
+public class LoginAttemptThrottle implements MeterBinder {
+
+    static final int BUCKETS = 10;
+
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final Cache<String, SlidingWindow> counters;
+    private final long bucketMillis;
+    private final int maxAttemptsPerIp;
+    private final LongSupplier clock;
+
+    @Autowired
+    public LoginAttemptThrottle(@Value("${app.security.login.window:5m}") Duration window,
+                                @Value("${app.security.login.max-attempts-per-ip:50}") int maxAttemptsPerIp,
+                                @Value("${app.security.login.max-tracked-keys:100000}") long maxTrackedKeys) {
+        this(window, maxAttemptsPerIp, maxTrackedKeys, System::currentTimeMillis);
+    }
+
+    // テスト用 (clock で現在時刻を差し替える)
+    LoginAttemptThrottle(Duration window, int maxAttemptsPerIp, long maxTrackedKeys, LongSupplier clock) {
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(window)
+                .recordStats()
+                .build();
+        this.bucketMillis = Math.max(1, window.toMillis() / BUCKETS);
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.clock = clock;
+    }
+
+    /**
+     * ユーザー名ごとの失敗を記録します。
+     *
+     * @param username ユーザー名
+     * @return ウィンドウ内の失敗回数（今回の失敗を含む）
+     */
+    public int recordUserFailure(String username) {
+        return counters.get(userKey(username), k -> new SlidingWindow()).record(clock.getAsLong());
+    }
+
+    /**
+     * ログイン成功・アカウントロック時にユーザー名ごとの失敗回数を破棄します。
+     *
+     * @param username ユーザー名
+     */
+    public void resetUser(String username) {
+        counters.invalidate(userKey(username));
+    }
+
+    /**
+     * 接続元IPごとの失敗を記録します（存在しないユーザー名での失敗も含む）。
+     *
+     * @param clientIp 接続元IP（null の場合は記録しない）
+     */
+    public void recordIpFailure(String clientIp) {
+        if (clientIp != null) {
+            counters.get(ipKey(clientIp), k -> new SlidingWindow()).record(clock.getAsLong());
+        }
+    }
+
+    /**
+     * @param clientIp 接続元IP（null の場合は常に false）
+     * @return ウィンドウ内の失敗回数が上限に達しており、このIPからのログインを受け付けない場合は true
+     */
+    public boolean isIpBlocked(String clientIp) {
+        if (clientIp == null) {
+            return false;
+        }
+        SlidingWindow window = counters.getIfPresent(ipKey(clientIp));
+        return window != null && window.count(clock.getAsLong()) >= maxAttemptsPerIp;
+    }
+
+    private static String userKey(String username) {
+        return "user:" + username;
+    }
+
+    private static String ipKey(String clientIp) {
+        return "ip:" + clientIp;
+    }
+
+    // 各要素は上位ビットにバケット番号（経過時間 / bucketMillis）、下位 COUNT_BITS ビットにそのバケットの回数を持つ
+    private final class SlidingWindow {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        int record(long now) {
+            long epoch = now / bucketMillis;
+            int slot = (int) (epoch % BUCKETS);
+            long current;
+            long next;
+            do {
+                current = buckets.get(slot);
+                long count = (current >>> COUNT_BITS) == epoch ? current & COUNT_MASK : 0;
+                next = (epoch << COUNT_BITS) | Math.min(count + 1, COUNT_MASK);
+            } while (!buckets.compareAndSet(slot, current, next));
+            return count(now);
+        }
+
+        int count(long now) {
+            long epoch = now / bucketMillis;
+            int total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long value = buckets.get(i);
+                if (epoch - (value >>> COUNT_BITS) < BUCKETS) {
+                    total += (int) (value & COUNT_MASK);
+                }
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, counters, "login-attempts");
+    }
+}
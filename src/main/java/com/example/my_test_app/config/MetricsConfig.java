@@ -0,0 +1,49 @@
+package com.example.my_test_app.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * アプリケーション独自のメトリクス設定。
+ * HTTPリクエスト・リポジトリ呼び出し・キャッシュのメトリクスはSpring Bootの自動設定で記録され、
+ * サービス層の処理時間は @Timed、業務上のイベント（カート上限超過、アカウントロックなど）は各サービスのカウンタで記録する。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    // アプリケーションが使うデータソース（Hibernate・JdbcTemplate 共通）を発行SQLの計数用に包む。
+    // 振り分け先のプール（primaryDataSource / replicaDataSource）は包まず、1件のSQLを二重に数えないようにする
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(QueryCounter queryCounter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && beanName.equals("dataSource")) {
+                    return new QueryCountingDataSource(dataSource, queryCounter);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Spring Securityのフィルタより外側で計測し、認証時のSQLも含める
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(QueryCounter queryCounter,
+                                                                     MeterRegistry meterRegistry) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(queryCounter, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.my_test_app.config;
+
+/**
+ * 発行されたSQLの件数を、現在のスレッドで処理中のリクエスト単位で数える。
+ * 件数は {@link QueryCountingDataSource} がJDBCのステートメント単位で加算するため、
+ * Hibernate経由のSQLだけでなく JdbcTemplate で実行したSQLも含む。
+ * 計測範囲は {@link QueryCountFilter} が {@link #start()} / {@link #stop()} で区切る。
+ * 範囲外（バッチ処理など）で発行されたSQLは数えない。
+ */
+public class QueryCounter {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    // 計測中であれば現在のスレッドのSQL件数を1つ増やす
+    void increment() {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+
+    /**
+     * 現在のスレッドでSQL件数の計測を開始します。
+     */
+    public void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    /**
+     * 現在のスレッドでのSQL件数の計測を終了します。
+     *
+     * @return 計測開始からのSQL件数
+     */
+    public int stop() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? 0 : counter[0];
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.my_test_app.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * 取得した接続で実行されたSQLを {@link QueryCounter} に数えさせるデータソース。
+ * PreparedStatement / CallableStatement は作成時に1件（バッチ実行もまとめて1件）、
+ * Statement は execute 系メソッドの呼び出しごとに1件と数える。
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> PREPARE_METHODS = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final QueryCounter queryCounter;
+
+    public QueryCountingDataSource(DataSource targetDataSource, QueryCounter queryCounter) {
+        super(targetDataSource);
+        this.queryCounter = queryCounter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection countingConnection(Connection target) {
+        return proxy(Connection.class, target, (methodName, result) -> {
+            if (PREPARE_METHODS.contains(methodName)) {
+                queryCounter.increment();
+            } else if (methodName.equals("createStatement")) {
+                return proxy(Statement.class, (Statement) result, (statementMethod, ignored) -> {
+                    if (EXECUTE_METHODS.contains(statementMethod)) {
+                        queryCounter.increment();
+                    }
+                    return ignored;
+                });
+            }
+            return result;
+        });
+    }
+
+    // 呼び出しを target に委譲し、戻り値を onResult で差し替えられるプロキシ
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, ResultHandler onResult) {
+        return (T) Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    return onResult.handle(method.getName(), result);
+                });
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler {
+        Object handle(String methodName, Object result);
+    }
+}
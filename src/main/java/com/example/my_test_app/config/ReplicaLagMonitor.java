@@ -0,0 +1,85 @@
+package com.example.my_test_app.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * レプリカの遅延を定期的に確認し、読み取りをレプリカへ振り分けてよいかを判定する。
+ * lag-query（遅延秒数を1つの数値で返すSQL）の結果が max-staleness を超えた場合、または
+ * レプリカに接続できない場合は、次に確認して回復するまで読み取り専用トランザクションもプライマリへ振り分ける。
+ * lag-query を指定しない場合は接続できるかだけを確認する。
+ * 遅延・振り分け状態は app.datasource.replica.lag / app.datasource.replica.usable メトリクスとして公開する。
+ */
+public class ReplicaLagMonitor implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final double maxStalenessSeconds;
+
+    private volatile boolean usable; // 最初の確認が終わるまではプライマリへ振り分ける
+    private volatile double lagSeconds;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, String lagQuery, Duration maxStaleness) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.lagQuery = lagQuery == null || lagQuery.isBlank() ? null : lagQuery;
+        this.maxStalenessSeconds = maxStaleness.toMillis() / 1000.0;
+    }
+
+    /**
+     * @return 読み取りをレプリカへ振り分けてよい場合は true
+     */
+    public boolean isUsable() {
+        return usable;
+    }
+
+    /**
+     * レプリカの遅延を確認して振り分け可否を更新します。
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:5s}")
+    public void check() {
+        boolean nowUsable;
+        try {
+            if (lagQuery == null) {
+                replica.queryForObject("SELECT 1", Integer.class);
+                lagSeconds = 0;
+                nowUsable = true;
+            } else {
+                Number lag = replica.queryForObject(lagQuery, Number.class);
+                // 遅延が取得できない (レプリケーション停止中など) 場合は最新でないものとして扱う
+                lagSeconds = lag == null ? Double.NaN : lag.doubleValue();
+                nowUsable = lag != null && lagSeconds <= maxStalenessSeconds;
+            }
+        } catch (RuntimeException e) {
+            lagSeconds = Double.NaN;
+            nowUsable = false;
+            log.debug("Replica lag check failed: {}", e.toString());
+        }
+        if (nowUsable != usable) {
+            log.warn(nowUsable
+                    ? "Replica caught up (lag {}s); routing read-only transactions to the replica"
+                    : "Replica unavailable or stale (lag {}s); routing read-only transactions to the primary", lagSeconds);
+        }
+        usable = nowUsable;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("app.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replication lag of the read replica (NaN when unknown)")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("app.datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("Whether read-only transactions are routed to the replica")
+                .register(registry);
+    }
+}
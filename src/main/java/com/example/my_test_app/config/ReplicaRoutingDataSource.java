@@ -0,0 +1,51 @@
+package com.example.my_test_app.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * 読み取り専用トランザクションの接続先。レプリカが最新であればレプリカ、遅延・停止中はプライマリを返す。
+ * {@link ReadWriteRoutingConfig} で LazyConnectionDataSourceProxy の読み取り専用の接続先として使い、
+ * 読み書きするトランザクションはこのクラスを経由せずにプライマリへ接続する。
+ * 振り分け先ごとの接続取得回数を app.datasource.route メトリクス（タグ: route=primary|replica）として記録する。
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                    MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.primaryRoutes = routeCounter(meterRegistry, PRIMARY);
+        this.replicaRoutes = routeCounter(meterRegistry, REPLICA);
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (lagMonitor.isUsable()) {
+            replicaRoutes.increment();
+            return REPLICA;
+        }
+        primaryRoutes.increment();
+        return PRIMARY;
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("app.datasource.route")
+                .description("Number of read-only connections by routed data source")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+}
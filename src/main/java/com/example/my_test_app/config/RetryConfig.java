@@ -0,0 +1,10 @@
+package com.example.my_test_app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+// @Retryable を有効化する（再試行のアドバイスは@Transactionalより外側で動作する）
+@Configuration
+@EnableRetry
+public class RetryConfig {
+}
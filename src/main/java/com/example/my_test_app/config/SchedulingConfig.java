@@ -0,0 +1,10 @@
+package com.example.my_test_app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// @Scheduled を有効化する（商品サジェストの人気順の定期更新など）
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
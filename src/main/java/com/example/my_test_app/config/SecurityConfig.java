@@ -1,9 +1,12 @@
 package com.example.my_test_app.config;
 
 import com.example.my_test_app.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -25,30 +28,45 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    // 認証キャッシュが有効な場合は、DaoAuthenticationProviderをキャッシュ付きのプロバイダで包む
     @Bean
-    public DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService) {
+    public AuthenticationProvider authenticationProvider(
+            UserDetailsService userDetailsService,
+            AuthenticationCache authenticationCache,
+            @Value("${app.security.auth-cache.enabled:true}") boolean authCacheEnabled) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
-        return authProvider;
+        return authCacheEnabled ? new CachingAuthenticationProvider(authProvider, authenticationCache) : authProvider;
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(DaoAuthenticationProvider daoAuthenticationProvider) {
-        return new ProviderManager(Collections.singletonList(daoAuthenticationProvider));
+    public AuthenticationManager authenticationManager(AuthenticationProvider authenticationProvider) {
+        return new ProviderManager(Collections.singletonList(authenticationProvider));
     }
 
+    // app.catalog.public-read=true の場合、商品の参照系API (GET) は認証なしで公開する
+    // (リクエストごとのBCrypt照合を省き、CDN・リバースプロキシでキャッシュできるようにする)
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            @Value("${app.catalog.public-read:true}") boolean catalogPublicRead) throws Exception {
         http
                 .csrf(csrf -> csrf.disable()) // CSRF保護を無効化（ステートレスAPIのため）
-                .authorizeHttpRequests(authorize -> authorize
-                        // ★修正: パスワードリセット要求APIも認証不要にする
-                        .requestMatchers("/api/users/register", "/api/users/login", "/api/users/request-password-reset").permitAll() // ユーザー登録・ログイン・パスワードリセット要求は認証不要
-                        .requestMatchers("/api/products/**").authenticated() // 全ての /api/products および /api/products/{id} に認証が必要
-                        .requestMatchers("/api/cart/**").authenticated() // カート関連APIは認証が必要
-                        .anyRequest().authenticated() // その他の全てのリクエストは認証が必要
-                )
+                .authorizeHttpRequests(authorize -> {
+                    if (catalogPublicRead) {
+                        authorize.requestMatchers(HttpMethod.GET, "/api/products/**").permitAll(); // 商品の参照系APIは認証不要
+                    }
+                    authorize
+                            // ★修正: パスワードリセット要求APIも認証不要にする
+                            .requestMatchers("/api/users/register", "/api/users/login", "/api/users/request-password-reset").permitAll() // ユーザー登録・ログイン・パスワードリセット要求は認証不要
+                            .requestMatchers("/api/products/**").authenticated() // 商品の登録・更新・削除 (公開モードでない場合は参照も) には認証が必要
+                            .requestMatchers("/api/cart/**").authenticated() // カート関連APIは認証が必要
+                            .requestMatchers("/api/admin/**").hasRole("ADMIN") // 管理者向けAPIはADMINロールのみ
+                            .requestMatchers("/actuator/health").permitAll() // ロードバランサ等のヘルスチェック用
+                            .requestMatchers("/actuator/**").hasRole("ADMIN") // メトリクス (Prometheusのスクレイプ) はADMINロールのみ
+                            .anyRequest().authenticated(); // その他の全てのリクエストは認証が必要
+                })
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // セッションを使わない
                 .httpBasic(httpBasic -> {}); // Basic認証を有効にする
 
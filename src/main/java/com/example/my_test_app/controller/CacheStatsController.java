@@ -0,0 +1,56 @@
+package com.example.my_test_app.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/caches") // 管理者向けAPI
+public class CacheStatsController {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public CacheStatsController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * 各キャッシュのヒット/ミス/追い出し件数を取得するAPI
+     * GET /api/admin/caches
+     *
+     * @return キャッシュ名ごとの統計情報
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof TransactionAwareCacheDecorator decorator) {
+                cache = decorator.getTargetCache();
+            }
+            if (cache instanceof CaffeineCache caffeineCache) {
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+                CacheStats stats = nativeCache.stats();
+                response.put(name, Map.of(
+                        "size", nativeCache.estimatedSize(),
+                        "hitCount", stats.hitCount(),
+                        "missCount", stats.missCount(),
+                        "hitRate", stats.hitRate(),
+                        "evictionCount", stats.evictionCount()
+                ));
+            }
+        }
+        return ResponseEntity.ok(response);
+    }
+}
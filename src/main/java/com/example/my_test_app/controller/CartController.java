@@ -1,7 +1,11 @@
 package com.example.my_test_app.controller;
 
+import com.example.my_test_app.config.IdempotencyKeyStore;
+import com.example.my_test_app.dto.CartBatchRequestDto;
 import com.example.my_test_app.dto.CartDto; // ★追加: CartDtoをインポート
 import com.example.my_test_app.dto.CartItemDto; // ★CartItemDtoをインポート
+import com.example.my_test_app.dto.CartSummaryDto;
+import com.example.my_test_app.exceptions.CartLimitExceededException;
 import com.example.my_test_app.service.CartService; // CartServiceは既存
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -12,28 +16,40 @@ import java.util.Collections;
 import java.util.List; // Listをインポート
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
 
     private final CartService cartService;
+    private final IdempotencyKeyStore idempotencyKeyStore; // 再送されたカート操作の重複実行防止
 
     @Autowired
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, IdempotencyKeyStore idempotencyKeyStore) {
         this.cartService = cartService;
+        this.idempotencyKeyStore = idempotencyKeyStore;
     }
 
     /**
      * カートに商品を追加するAPI
      * POST /api/cart/add
      * リクエストボディ: { "userId": 1, "productId": 101, "quantity": 1 }
+     * Idempotency-Key ヘッダーを指定した場合、同じキーでの再送では数量を加算し直さない。
      *
      * @param requestMap userId, productId, quantityを含むマップ
+     * @param idempotencyKey 冪等キー (任意)
      * @return 追加されたCartItemDtoまたはエラーレスポンス
      */
     @PostMapping("/add")
-    public ResponseEntity<Object> addProductToCart(@RequestBody Map<String, Long> requestMap) {
+    public ResponseEntity<Object> addProductToCart(
+            @RequestBody Map<String, Long> requestMap,
+            @RequestHeader(name = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyKeyStore.execute(idempotencyScope("add", requestMap), idempotencyKey,
+                new TreeMap<>(requestMap).toString(), () -> addProductToCart(requestMap));
+    }
+
+    private ResponseEntity<Object> addProductToCart(Map<String, Long> requestMap) {
         Long userId = requestMap.get("userId");
         Long productId = requestMap.get("productId");
         Long quantityLong = requestMap.get("quantity");
@@ -68,10 +84,18 @@ public class CartController {
      * リクエストボディ: { "userId": 1, "productId": 101 }
      *
      * @param requestMap userId, productIdを含むマップ
+     * @param idempotencyKey 冪等キー (任意)
      * @return 削除の成否（現状維持でMapを返すが、DTOを返すように変更も可能）
      */
     @DeleteMapping("/remove")
-    public ResponseEntity<Map<String, String>> removeProductFromCart(@RequestBody Map<String, Long> requestMap) {
+    public ResponseEntity<Map<String, String>> removeProductFromCart(
+            @RequestBody Map<String, Long> requestMap,
+            @RequestHeader(name = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyKeyStore.execute(idempotencyScope("remove", requestMap), idempotencyKey,
+                new TreeMap<>(requestMap).toString(), () -> removeProductFromCart(requestMap));
+    }
+
+    private ResponseEntity<Map<String, String>> removeProductFromCart(Map<String, Long> requestMap) {
         Long userId = requestMap.get("userId");
         Long productId = requestMap.get("productId");
 
@@ -107,16 +131,39 @@ public class CartController {
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * 特定ユーザーのカートの集計値（数量の合計・種類数・小計）を取得するAPI
+     * ヘッダーのバッジなど、明細が不要な頻繁な参照向け（カート行を1行読むだけで、明細・商品は読まない）
+     * GET /api/cart/{userId}/summary
+     *
+     * @param userId ユーザーID
+     * @return CartSummaryDtoオブジェクトまたは404（カートがない場合）
+     */
+    @GetMapping("/{userId}/summary")
+    public ResponseEntity<CartSummaryDto> getCartSummary(@PathVariable Long userId) {
+        return cartService.getCartSummary(userId)
+                .map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
     /**
      * カート内の商品の数量を更新するAPI
      * PUT /api/cart/updateQuantity
      * リクエストボディ: { "userId": 1, "productId": 101, "newQuantity": 2 }
      *
      * @param requestMap userId, productId, newQuantityを含むマップ
+     * @param idempotencyKey 冪等キー (任意)
      * @return 更新されたCartItemDtoまたはエラーレスポンス
      */
     @PutMapping("/updateQuantity")
-    public ResponseEntity<Object> updateCartItemQuantity(@RequestBody Map<String, Long> requestMap) {
+    public ResponseEntity<Object> updateCartItemQuantity(
+            @RequestBody Map<String, Long> requestMap,
+            @RequestHeader(name = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyKeyStore.execute(idempotencyScope("updateQuantity", requestMap), idempotencyKey,
+                new TreeMap<>(requestMap).toString(), () -> updateCartItemQuantity(requestMap));
+    }
+
+    private ResponseEntity<Object> updateCartItemQuantity(Map<String, Long> requestMap) {
         Long userId = requestMap.get("userId");
         Long productId = requestMap.get("productId");
         Long newQuantityLong = requestMap.get("newQuantity");
@@ -142,4 +189,46 @@ public class CartController {
             return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * カートに複数の操作を一括で適用するAPI
+     * POST /api/cart/batch
+     * リクエストボディ: { "userId": 1, "operations": [
+     *     { "type": "ADD", "productId": 101, "quantity": 2 },
+     *     { "type": "UPDATE", "productId": 102, "quantity": 5 },
+     *     { "type": "REMOVE", "productId": 103 } ] }
+     * 操作は先頭から順に1トランザクションで適用し、いずれかが失敗した場合はカートを変更しない。
+     * 商品の種類数の上限は全ての操作を適用した後の状態に対して判定する。
+     *
+     * @param request userIdと操作のリスト
+     * @param idempotencyKey 冪等キー (任意)
+     * @return 適用後のCartDtoまたはエラーレスポンス
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Object> applyCartOperations(
+            @RequestBody CartBatchRequestDto request,
+            @RequestHeader(name = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyKeyStore.execute("cart-batch:" + request.getUserId(), idempotencyKey,
+                request.toString(), () -> applyCartOperations(request));
+    }
+
+    private ResponseEntity<Object> applyCartOperations(CartBatchRequestDto request) {
+        if (request.getUserId() == null || request.getOperations() == null) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "Required fields (userId, operations) are missing."), HttpStatus.BAD_REQUEST);
+        }
+
+        try {
+            CartDto cartDto = cartService.applyCartOperations(request.getUserId(), request.getOperations());
+            return new ResponseEntity<>(cartDto, HttpStatus.OK);
+        } catch (IllegalArgumentException | CartLimitExceededException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    // 冪等キーの有効範囲 (操作とユーザーの組)
+    private static String idempotencyScope(String operation, Map<String, Long> requestMap) {
+        return "cart-" + operation + ":" + requestMap.get("userId");
+    }
+}
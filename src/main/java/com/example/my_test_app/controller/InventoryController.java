@@ -0,0 +1,74 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/inventory") // 管理者向けAPI
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @Autowired
+    public InventoryController(InventoryService inventoryService) {
+        this.inventoryService = inventoryService;
+    }
+
+    /**
+     * 商品の在庫数を取得するAPI
+     * GET /api/admin/inventory/{productId}
+     *
+     * @param productId 商品ID
+     * @return 在庫数（在庫管理対象外の商品は404）
+     */
+    @GetMapping("/{productId}")
+    public ResponseEntity<Map<String, Object>> getStock(@PathVariable Long productId) {
+        return inventoryService.getAvailable(productId)
+                .map(available -> {
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("productId", productId);
+                    response.put("available", available);
+                    return ResponseEntity.ok(response);
+                })
+                .orElseGet(() -> new ResponseEntity<>(
+                        Collections.singletonMap("message", "Stock is not managed for product ID: " + productId),
+                        HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * 商品の在庫数を設定するAPI
+     * PUT /api/admin/inventory/{productId}
+     * リクエストボディ: { "quantity": 100, "shards": 8 } (shardsは省略可)
+     *
+     * @param productId 商品ID
+     * @param requestBody 在庫数とシャード数を含むマップ
+     * @return 設定後の在庫数
+     */
+    @PutMapping("/{productId}")
+    public ResponseEntity<Map<String, Object>> setStock(
+            @PathVariable Long productId,
+            @RequestBody Map<String, Integer> requestBody) {
+        Integer quantity = requestBody.get("quantity");
+        if (quantity == null) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "Quantity is required."), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            Integer shards = requestBody.get("shards");
+            if (shards == null) {
+                inventoryService.setStock(productId, quantity);
+            } else {
+                inventoryService.setStock(productId, quantity, shards);
+            }
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return getStock(productId);
+    }
+}
@@ -1,41 +1,57 @@
 package com.example.my_test_app.controller;
 
-import com.example.my_test_app.model.Order;
+import com.example.my_test_app.config.IdempotencyKeyStore;
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.dto.OrderSummaryPageDto;
+import com.example.my_test_app.exceptions.OutOfStockException;
+import com.example.my_test_app.exceptions.ResourceNotFoundException;
 import com.example.my_test_app.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @RestController
 @RequestMapping("/api/orders") // すべての注文関連APIのベースパス
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyKeyStore idempotencyKeyStore; // 再送されたチェックアウトの重複実行防止
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyKeyStore idempotencyKeyStore) {
         this.orderService = orderService;
+        this.idempotencyKeyStore = idempotencyKeyStore;
     }
 
     /**
      * カート内容に基づいて新しい注文を作成するAPI
      * POST /api/orders/{userId}/checkout
      * リクエストボディ: { "shippingAddress": "東京都新宿区..." }
+     * Idempotency-Key ヘッダーを指定した場合、同じキーでの再送には注文を作り直さず最初のレスポンスを返す。
      *
      * @param userId 注文を行うユーザーID
      * @param requestBody 配送先住所を含むマップ
+     * @param idempotencyKey 冪等キー (任意)
      * @return 作成された注文情報またはエラーレスポンス
      */
     @PostMapping("/{userId}/checkout")
     public ResponseEntity<Object> checkoutCart(
             @PathVariable Long userId,
-            @RequestBody Map<String, String> requestBody) {
+            @RequestBody Map<String, String> requestBody,
+            @RequestHeader(name = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyKeyStore.execute("checkout:" + userId, idempotencyKey, new TreeMap<>(requestBody).toString(),
+                () -> checkout(userId, requestBody));
+    }
 
+    private ResponseEntity<Object> checkout(Long userId, Map<String, String> requestBody) {
         String shippingAddress = requestBody.get("shippingAddress");
 
         if (shippingAddress == null || shippingAddress.isEmpty()) {
@@ -43,8 +59,16 @@ public class OrderController {
         }
 
         try {
-            Order order = orderService.createOrderFromCart(userId, shippingAddress);
+            OrderDetailDto order = orderService.createOrderFromCart(userId, shippingAddress);
             return new ResponseEntity<>(order, HttpStatus.CREATED); // 201 Created
+        } catch (OutOfStockException e) {
+            // 在庫不足（カートはそのまま残る）
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.CONFLICT);
+        } catch (PessimisticLockingFailureException e) {
+            // 同じ商品への注文が集中し、再試行しても在庫を引き当てられなかった場合。
+            // 5xx は冪等キーに記録されないため、同じキーで再送すると改めて処理される
+            return new ResponseEntity<>(Collections.singletonMap("message",
+                    "The order could not be completed because of concurrent orders. Please retry."), HttpStatus.SERVICE_UNAVAILABLE);
         } catch (IllegalStateException e) {
             // カートが見つからない、またはカートが空の場合
             return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.BAD_REQUEST);
@@ -55,23 +79,32 @@ public class OrderController {
     }
 
     /**
-     * 特定のユーザーの注文履歴を取得するAPI
-     * GET /api/orders/user/{userId}
+     * 特定のユーザーの注文履歴を新しい順にページ単位で取得するAPI
+     * GET /api/orders/user/{userId}?size=20&cursor=...
+     * 次のページがある場合は X-Next-Cursor ヘッダーにカーソルを返すので、次回リクエストの cursor に指定する。
      *
      * @param userId ユーザーID
-     * @return ユーザーの注文履歴のリスト
+     * @param cursor 前ページで返されたカーソル (任意)
+     * @param size 1ページあたりの件数 (デフォルト: 20、最大: 100)
+     * @return 注文サマリーのリスト（注文がない場合は空のリスト）
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Order>> getOrdersForUser(@PathVariable Long userId) {
+    public ResponseEntity<Object> getOrdersForUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<Order> orders = orderService.getOrdersByUserId(userId);
-            if (orders.isEmpty()) {
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND); // 注文が見つからない場合
+            OrderSummaryPageDto page = orderService.getOrderHistory(userId, cursor, size);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
             }
-            return new ResponseEntity<>(orders, HttpStatus.OK);
-        } catch (RuntimeException e) {
-            // ユーザーが見つからないなどのサービス層からのエラー
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            return response.body(page.getItems());
+        } catch (ResourceNotFoundException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            // カーソルが不正な場合
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.BAD_REQUEST);
         }
     }
 
@@ -80,12 +113,12 @@ public class OrderController {
      * GET /api/orders/{orderId}
      *
      * @param orderId 注文ID
-     * @return 注文詳細
+     * @return 注文詳細（明細を含む）
      */
     @GetMapping("/{orderId}")
-    public ResponseEntity<Order> getOrderDetails(@PathVariable Long orderId) {
-        Optional<Order> order = orderService.getOrderById(orderId);
+    public ResponseEntity<OrderDetailDto> getOrderDetails(@PathVariable Long orderId) {
+        Optional<OrderDetailDto> order = orderService.getOrderById(orderId);
         return order.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
-}
\ No newline at end of file
+}
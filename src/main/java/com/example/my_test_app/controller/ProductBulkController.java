@@ -0,0 +1,83 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.dto.ProductImportResultDto;
+import com.example.my_test_app.service.ProductFileFormat;
+import com.example.my_test_app.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin/products") // 管理者向けAPI
+public class ProductBulkController {
+
+    private final ProductImportService productImportService;
+
+    @Autowired
+    public ProductBulkController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    /**
+     * 商品データを一括で取り込むAPI
+     * POST /api/admin/products/import
+     * Content-Type: text/csv (1行目はヘッダー) または application/x-ndjson (1行に1商品のJSON)
+     * 列 (キー): id (省略時は新規登録、指定時は更新), name, description, price, type, imageUrl
+     * リクエストボディは読み込みながら取り込むため、大きなファイルでもメモリに全体を保持しない。
+     *
+     * @param request リクエスト (ボディをストリームとして読み込む)
+     * @return 取り込み結果 (登録・更新・失敗件数とエラー内容)。形式が不正な場合は400 / 415
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importProducts(HttpServletRequest request) throws IOException {
+        Optional<ProductFileFormat> format = ProductFileFormat.fromContentType(request.getContentType());
+        if (format.isEmpty()) {
+            return new ResponseEntity<>(Collections.singletonMap("message",
+                    "Content-Type は text/csv または application/x-ndjson を指定してください。"), HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+        try {
+            ProductImportResultDto result = productImportService.importProducts(request.getInputStream(), format.get());
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (UncheckedIOException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * 全商品を一括で書き出すAPI
+     * GET /api/admin/products/export?format=csv (または ndjson)
+     * DBから読み出した行をそのままレスポンスに書き出す (ストリーミング)。
+     *
+     * @param format ファイル形式 csv / ndjson (デフォルト: csv)
+     * @return 商品データのファイル
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        ProductFileFormat fileFormat;
+        try {
+            fileFormat = ProductFileFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message",
+                    "format は csv または ndjson を指定してください: " + format), HttpStatus.BAD_REQUEST);
+        }
+        StreamingResponseBody body = output -> productImportService.exportProducts(output, fileFormat);
+        return ResponseEntity.ok()
+                .contentType(fileFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + fileFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
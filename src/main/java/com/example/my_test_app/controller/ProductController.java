@@ -1,17 +1,27 @@
 package com.example.my_test_app.controller;
 
 import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.dto.ProductPageDto;
+import com.example.my_test_app.dto.ProductSuggestionDto;
 import com.example.my_test_app.model.ProductType;
+import com.example.my_test_app.service.ProductSearchService;
 import com.example.my_test_app.service.ProductService;
+import com.example.my_test_app.service.ProductSuggestService;
 import com.example.my_test_app.exceptions.ResourceNotFoundException; // ★ 追加
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal; // BigDecimalのインポートが必要な場合
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -23,40 +33,113 @@ import java.util.Optional; // Optionalのインポートが必要な場合
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductSearchService productSearchService;
+    private final ProductSuggestService productSuggestService;
+    // 商品の参照系APIのレスポンスに付けるCache-Control
+    // (公開モードではブラウザ・CDN・リバースプロキシでのキャッシュを許可し、認証が必要な場合はブラウザでのキャッシュのみ許可する)
+    private final CacheControl catalogCacheControl;
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductSearchService productSearchService,
+                             ProductSuggestService productSuggestService,
+                             @Value("${app.catalog.cache.max-age:60s}") Duration maxAge,
+                             @Value("${app.catalog.cache.shared-max-age:300s}") Duration sharedMaxAge,
+                             @Value("${app.catalog.public-read:true}") boolean catalogPublicRead) {
         this.productService = productService;
+        this.productSearchService = productSearchService;
+        this.productSuggestService = productSuggestService;
+        // 認証が必要なレスポンスを共有キャッシュに保存させると、認証なしのリクエストにも返されてしまう
+        this.catalogCacheControl = catalogPublicRead
+                ? CacheControl.maxAge(maxAge).sMaxAge(sharedMaxAge).cachePublic()
+                : CacheControl.maxAge(maxAge).cachePrivate();
     }
 
     /**
-     * 全ての商品一覧を取得するAPI
-     * GET /api/products
-     * @return 全ての商品リスト
+     * 商品一覧をページ単位で取得するAPI
+     * GET /api/products?type=ONE_TIME&minPrice=1000&maxPrice=5000&sort=price&size=20&cursor=...
+     * 次のページがある場合は X-Next-Cursor ヘッダーにカーソルを返すので、次回リクエストの cursor に指定する。
+     * ページ内の商品のIDとバージョンから求めたETagを返し、If-None-Match が一致する場合は304を返す。
+     * @param type 商品種別 (任意)
+     * @param minPrice 最低価格 (任意)
+     * @param maxPrice 最高価格 (任意)
+     * @param sort 並び順 id / price (デフォルト: id)
+     * @param cursor 前ページで返されたカーソル (任意)
+     * @param size 1ページあたりの件数 (デフォルト: 20、最大: 100)
+     * @return 商品リスト
      */
     @GetMapping
-    public List<ProductDto> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<List<ProductDto>> getProducts(
+            @RequestParam(required = false) ProductType type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = ProductService.SORT_BY_ID) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        ProductPageDto page = productService.getProductPage(type, minPrice, maxPrice, sort, cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(catalogCacheControl)
+                .eTag(pageETag(page)); // 商品の削除はページ内の最終更新日時に現れないため、Last-Modifiedは付けない
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        // ETag / Last-Modified が条件付きリクエストに一致した場合、Springが304を返しボディはシリアライズしない
+        return response.body(page.getItems());
+    }
+
+    /**
+     * 商品名・商品説明をキーワードで全文検索するAPI
+     * GET /api/products/search?q=コーヒー&limit=20
+     * 関連度の高い順（商品名での一致を優先）に返す。空白区切りの複数キーワードはAND検索。
+     * @param q 検索キーワード
+     * @param limit 最大件数 (デフォルト: 20、最大: 100)
+     * @return 一致した商品リスト、またはキーワードが空の場合は400 Bad Request
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String q,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        if (q == null || q.isBlank()) {
+            return new ResponseEntity<>(Collections.singletonMap("message", "検索キーワードを指定してください。"), HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok().cacheControl(catalogCacheControl).body(productSearchService.search(q, limit));
+    }
+
+    /**
+     * 入力中のキーワードで始まる商品名を人気順に返す入力補完API
+     * GET /api/products/suggest?q=コー&limit=10
+     * キーストロークごとに呼ばれる想定のため、キーワードが空の場合もエラーにせず空のリストを返す。
+     * @param q 入力中のキーワード
+     * @param limit 最大件数 (デフォルト: 10、最大: 10)
+     * @return サジェスト候補 (商品IDと商品名) のリスト
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDto>> suggestProducts(@RequestParam(defaultValue = "") String q,
+                                                                      @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok().cacheControl(catalogCacheControl).body(productSuggestService.suggest(q, limit));
     }
 
     /**
      * 指定されたIDの商品詳細を取得するAPI
      * GET /api/products/{id}
+     * 商品のバージョンから求めたETagと最終更新日時を返し、If-None-Match / If-Modified-Since が一致する場合は304を返す。
      * @param id 商品ID
      * @return 商品詳細、または404 Not Found
      */
     @GetMapping("/{id}")
     public ResponseEntity<ProductDto> getProductById(@PathVariable Long id) {
         Optional<ProductDto> productDto = productService.getProductById(id);
-        // ProductServiceはOptionalを返すため、ここでは引き続きOptionalで処理
-        return productDto.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+        // 存在しない商品は空のボディで404を返す
+        return productDto.map(value -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .cacheControl(catalogCacheControl)
+                            .eTag(value.getId() + "-" + value.getVersion());
+                    if (value.getUpdatedAt() != null) { // 更新日時のない既存データは Last-Modified を付けない
+                        response.lastModified(value.getUpdatedAt());
+                    }
+                    return response.body(value);
+                })
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
-        // ★ 注意: 今回の404標準化では、このGETメソッドは変更しないことにします。
-        // なぜなら、Optionalを返すことで、見つからない場合は空のボディで404を返すという明確な意図があるためです。
-        // もし、GETでも{ "message": "..." } のような404ボディを返したい場合は、
-        // productDto.orElseThrow(() -> new ResourceNotFoundException("商品が見つかりません: " + id));
-        // とし、このコントローラーの@ExceptionHandlerで捕捉するように変更できます。
-        // しかし、GETでは通常、存在しないリソースへのリクエストは空のボディで404が一般的です。
     }
 
     /**
@@ -100,6 +183,18 @@ public class ProductController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    // ========== キャッシュ用ヘッダーのヘルパーメソッド ==========
+
+    // ページ内の商品のIDとバージョン、次ページのカーソルから求めたETag (いずれかの商品が更新されると変わる)
+    private String pageETag(ProductPageDto page) {
+        StringBuilder source = new StringBuilder();
+        for (ProductDto item : page.getItems()) {
+            source.append(item.getId()).append(':').append(item.getVersion()).append(',');
+        }
+        source.append(page.getNextCursor());
+        return DigestUtils.md5DigestAsHex(source.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
     // ========== 例外ハンドラ ==========
 
     /**
@@ -116,6 +211,19 @@ public class ProductController {
         return errors;
     }
 
+    /**
+     * 不正な検索条件（並び順・カーソル・商品種別など）を処理するハンドラ
+     * @param ex IllegalArgumentException または MethodArgumentTypeMismatchException
+     * @return エラーメッセージを含むMap
+     */
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({IllegalArgumentException.class, MethodArgumentTypeMismatchException.class})
+    public Map<String, String> handleInvalidQueryParameter(RuntimeException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return errors;
+    }
+
     /**
      * リソースが見つからない場合の例外（ResourceNotFoundException）を処理するハンドラ
      * @param ex ResourceNotFoundException
@@ -1,7 +1,9 @@
 package com.example.my_test_app.controller;
 
+import com.example.my_test_app.exceptions.TooManyLoginAttemptsException;
 import com.example.my_test_app.model.User;
 import com.example.my_test_app.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -64,10 +66,11 @@ public class UserController {
      * リクエストボディ: { "username": "testuser", "password": "password123" }
      *
      * @param requestMap ユーザー名、パスワードを含むマップ
-     * @return 認証されたユーザー情報（トークンなど）またはエラーレスポンス
+     * @param request 接続元IPの取得に使用 (信頼するプロキシ経由の場合は X-Forwarded-For から解決された値になる)
+     * @return 認証されたユーザー情報（トークンなど）またはエラーレスポンス（接続元IPからの失敗が多すぎる場合は429）
      */
     @PostMapping("/login")
-    public ResponseEntity<Object> loginUser(@RequestBody Map<String, String> requestMap) {
+    public ResponseEntity<Object> loginUser(@RequestBody Map<String, String> requestMap, HttpServletRequest request) {
         String username = requestMap.get("username");
         String password = requestMap.get("password");
 
@@ -76,7 +79,7 @@ public class UserController {
         }
 
         try {
-            Optional<User> authenticatedUser = userService.authenticateUser(username, password);
+            Optional<User> authenticatedUser = userService.authenticateUser(username, password, request.getRemoteAddr());
 
             if (authenticatedUser.isPresent()) {
                 // 認証成功
@@ -93,6 +96,8 @@ public class UserController {
                 // 認証失敗
                 return new ResponseEntity<>(Collections.singletonMap("message", "Invalid username or password."), HttpStatus.UNAUTHORIZED);
             }
+        } catch (TooManyLoginAttemptsException e) {
+            return new ResponseEntity<>(Collections.singletonMap("message", e.getMessage()), HttpStatus.TOO_MANY_REQUESTS);
         } catch (Exception e) {
             // その他の予期せぬエラー
             return new ResponseEntity<>(Collections.singletonMap("message", "An unexpected error occurred during login."), HttpStatus.INTERNAL_SERVER_ERROR);
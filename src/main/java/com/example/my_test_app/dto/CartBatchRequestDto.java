@@ -0,0 +1,16 @@
+package com.example.my_test_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// カート一括操作のリクエスト (操作は先頭から順に適用する)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequestDto {
+    private Long userId;
+    private List<CartOperationDto> operations;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.util.List; // CartItemDtoのリストを持つため
 
 @Data
@@ -13,5 +14,5 @@ public class CartDto {
     private Long id;
     private Long userId; // ユーザーIDを直接持たせる
     private List<CartItemDto> cartItems; // CartItemDtoのリスト
-    private double totalPrice; // カート合計金額など、DTOで計算して持たせたい情報があれば追加
+    private BigDecimal totalPrice; // カート合計金額（小数2桁。注文確定時の合計金額と同じ計算）
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.my_test_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// カート一括操作の1件分の操作
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationDto {
+
+    public enum Type {
+        ADD,    // 数量を加算 (カートにない場合は追加)
+        UPDATE, // 数量を指定値に更新 (0の場合は削除、カートにない場合は追加)
+        REMOVE  // 削除 (カートにない場合は何もしない)
+    }
+
+    private Type type;
+    private Long productId;
+    private Integer quantity; // ADD・UPDATEの場合のみ
+}
@@ -0,0 +1,19 @@
+package com.example.my_test_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// カートの集計値 (GET /api/cart/{userId}/summary)。明細は含めない
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSummaryDto {
+    private Long cartId;
+    private Long userId;
+    private int itemCount; // 数量の合計
+    private int distinctProductCount; // 明細（商品）の種類数
+    private BigDecimal subtotal; // 単価 × 数量の合計（小数2桁）
+}
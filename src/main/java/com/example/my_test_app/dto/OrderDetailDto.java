@@ -0,0 +1,19 @@
+package com.example.my_test_app.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class OrderDetailDto {
+    private Long id;
+    private Long userId;
+    private LocalDateTime orderDate;
+    private BigDecimal totalAmount;
+    private String shippingAddress;
+    private String paymentStatus;
+    private String orderStatus;
+    private List<OrderItemDTO> items;
+}
@@ -0,0 +1,20 @@
+package com.example.my_test_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// 注文履歴一覧の1行分（明細は含めず件数のみ）
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDto {
+    private Long id;
+    private LocalDateTime orderDate;
+    private BigDecimal totalAmount;
+    private String orderStatus;
+    private Long itemCount; // 注文明細の行数
+}
@@ -0,0 +1,15 @@
+package com.example.my_test_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryPageDto {
+    private List<OrderSummaryDto> items;
+    private String nextCursor; // 次ページ取得用のカーソル。最終ページの場合は null
+}
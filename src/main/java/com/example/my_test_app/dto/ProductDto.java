@@ -1,10 +1,12 @@
 package com.example.my_test_app.dto;
 
 import com.example.my_test_app.model.ProductType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
+import java.time.Instant;
 
 // ★ バリデーション関連のインポートを追加
 import jakarta.validation.constraints.NotBlank;
@@ -37,4 +39,15 @@ public class ProductDto {
     // @Pattern(regexp = "^(http|https)://.*$", message = "無効なURL形式です。")
     // などを追加することも可能ですが、今回は必須チェックのみに留めます
     private String imageUrl;
+
+    // 商品のバージョンと最終更新日時。レスポンスボディには含めず、ETag / Last-Modified ヘッダーで返す
+    @JsonIgnore
+    private long version;
+
+    @JsonIgnore
+    private Instant updatedAt;
+
+    public ProductDto(Long id, String name, String description, BigDecimal price, ProductType type, String imageUrl) {
+        this(id, name, description, price, type, imageUrl, 0, null);
+    }
 }
\ No newline at end of file
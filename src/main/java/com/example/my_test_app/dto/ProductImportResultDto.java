@@ -0,0 +1,18 @@
+package com.example.my_test_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 商品一括インポートの結果
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDto {
+    private long created; // 新規登録した件数
+    private long updated; // id指定で更新した件数
+    private long failed;  // 検証エラー・該当なしで取り込まなかった件数
+    private List<String> errors; // エラー内容 (先頭から最大100件)
+}
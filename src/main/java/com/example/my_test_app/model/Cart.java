@@ -6,18 +6,19 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.math.BigDecimal;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts",
+        uniqueConstraints = @UniqueConstraint(name = "uk_carts_user_id", columnNames = "user_id"))
 @Getter
 @Setter
 @NoArgsConstructor
-@EqualsAndHashCode(of = "id")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // 追加
 public class Cart {
     @Id
@@ -35,6 +36,20 @@ public class Cart {
     @ToString.Exclude // 既存（前回修正済み）
     private Set<CartItem> cartItems = new HashSet<>();
 
+    // 明細から導出する集計値（ヘッダーのバッジなどが明細を読まずに参照できるよう非正規化して持つ）。
+    // CartService が更新のたびに差分で更新し、ずれた場合は CartSummaryRepairJob が明細から計算し直す。
+    @ColumnDefault("0") // 既存の行は0から始め、修復ジョブで明細に合わせる
+    @Column(name = "item_count", nullable = false)
+    private int itemCount; // 数量の合計
+
+    @ColumnDefault("0")
+    @Column(name = "distinct_product_count", nullable = false)
+    private int distinctProductCount; // 明細（商品）の種類数
+
+    @ColumnDefault("0")
+    @Column(name = "subtotal", nullable = false, precision = 12, scale = 2)
+    private BigDecimal subtotal = BigDecimal.ZERO; // 単価 × 数量の合計
+
     // ... 他のフィールドは変更なし ...
 
     /*
@@ -62,4 +77,18 @@ public class Cart {
         cartItems.remove(item);
         item.setCart(null);
     }
+
+    // equals と hashCode は id フィールドのみに基づいて実装
+    // （未保存のインスタンスどうしを同一視しないよう、idがnullの場合は等しくない）
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Cart cart)) return false;
+        return id != null && id.equals(cart.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
\ No newline at end of file
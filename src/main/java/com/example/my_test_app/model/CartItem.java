@@ -6,15 +6,15 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import lombok.EqualsAndHashCode;
 import lombok.ToString; // 追加
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_cart_product",
+                columnNames = {"cart_id", "product_id"}))
 @Getter
 @Setter
 @NoArgsConstructor
-@EqualsAndHashCode(of = "id")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // 追加
 public class CartItem {
     @Id
@@ -42,4 +42,18 @@ public class CartItem {
         this.product = product;
         this.quantity = quantity;
     }
+
+    // equals と hashCode は id フィールドのみに基づいて実装
+    // （未保存のインスタンスどうしを同一視しないよう、idがnullの場合は等しくない）
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CartItem cartItem)) return false;
+        return id != null && id.equals(cartItem.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
\ No newline at end of file
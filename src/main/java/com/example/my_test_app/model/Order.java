@@ -13,7 +13,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+        indexes = @Index(name = "idx_orders_user_date", columnList = "user_id, order_date"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,73 @@
+package com.example.my_test_app.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// トランザクショナル・アウトボックス: 業務データと同じトランザクションで書き込む「後続処理の依頼」。
+// コミットされた依頼だけを OutboxDispatcher がバックグラウンドで処理する。
+@Entity
+@Table(name = "outbox_events",
+        indexes = @Index(name = "idx_outbox_events_status_next_attempt", columnList = "status, next_attempt_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+
+    public enum Status {
+        PENDING, // 未処理 (再試行待ちを含む)
+        DONE,    // 処理済み
+        FAILED   // 再試行の上限に達した (手動での対応が必要)
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    // 対象の業務データのID (注文IDなど)
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false, length = 2000)
+    private String payload; // JSON
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // この時刻以降に処理する (再試行の待ち・処理中の確保期限を兼ねる)
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    // 処理中のディスパッチャーが確保時に設定する値
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public OutboxEvent(String eventType, Long aggregateId, String payload) {
+        this.eventType = eventType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.status = Status.PENDING;
+        this.nextAttemptAt = Instant.now();
+    }
+}
@@ -8,7 +8,8 @@ import java.util.Date;
 import java.util.Calendar;
 
 @Entity
-@Table(name = "password_reset_tokens")
+@Table(name = "password_reset_tokens",
+        indexes = @Index(name = "idx_password_reset_tokens_expiry", columnList = "expiry_date"))
 @Data
 @NoArgsConstructor
 public class PasswordResetToken {
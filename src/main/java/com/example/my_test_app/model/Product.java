@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 import java.math.BigDecimal; // これがあることを確認
+import java.time.Instant;
 
 import jakarta.validation.constraints.NotBlank; // ★これがあることを確認
 import jakarta.validation.constraints.NotNull;  // ★これがあることを確認
@@ -12,7 +15,12 @@ import jakarta.validation.constraints.Min;      // ★これがあることを
 import jakarta.validation.constraints.Size;     // ★これがあることを確認
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // 商品一覧のキーセットページング用（ORDER BY price, id / 種別での絞り込み）
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_type_id", columnList = "type, id"),
+        @Index(name = "idx_products_type_price_id", columnList = "type, price, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -53,4 +61,15 @@ public class Product {
 
     @Column(length = 500) // URLの長さに合わせて調整
     private String imageUrl; // ★追加：商品画像のURL
+
+    // 楽観ロック用のバージョン。更新のたびに加算され、商品APIのETagにも使う
+    @Version
+    @ColumnDefault("0") // 既存の行・初期データの行は0から始める
+    @Column(nullable = false)
+    private long version;
+
+    // 最終更新日時 (商品APIのLast-Modifiedに使う。作成時にも設定される)
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
 }
@@ -0,0 +1,38 @@
+package com.example.my_test_app.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// 商品の在庫を複数の行（シャード）に分割して保持する。
+// 人気商品に注文が集中しても、更新が1行のロックに集中しないようにするため。
+// 商品の在庫数は、その商品の全シャードの quantity の合計。
+@Entity
+@Table(name = "product_stock_shards",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_stock_shards_product_shard",
+                columnNames = {"product_id", "shard_no"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProductStockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "shard_no", nullable = false)
+    private int shardNo;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    public ProductStockShard(Long productId, int shardNo, int quantity) {
+        this.productId = productId;
+        this.shardNo = shardNo;
+        this.quantity = quantity;
+    }
+}
@@ -4,12 +4,14 @@ package com.example.my_test_app.repository;
 
 import com.example.my_test_app.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional; // Optionalをインポート
 
 @Repository
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
     // 特定のカートと商品IDに紐づくカートアイテムを見つけるカスタムクエリ
     Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
 
@@ -18,4 +20,28 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     // カートIDに基づいて全てのカートアイテムを削除するメソッド (clearCartで利用)
     void deleteByCartId(Long cartId);
-}
\ No newline at end of file
+
+    // ========== カート更新系の単一ステートメント操作 ==========
+    // エンティティを読み込まずに1回のUPDATE/DELETEで完結させる
+
+    // 既存明細の数量を加算する（DB側で加算するため同時更新でも数量を取りこぼさない）
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.quantity = ci.quantity + :delta WHERE ci.id = :itemId")
+    int incrementQuantity(Long itemId, int delta);
+
+    // 既存明細の数量を指定値に更新する
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.quantity = :quantity WHERE ci.id = :itemId")
+    int updateQuantity(Long itemId, int quantity);
+
+    // ユーザーのカートから指定商品の明細を削除する
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.product.id = :productId " +
+            "AND ci.cart.id = (SELECT c.id FROM Cart c WHERE c.user.id = :userId)")
+    int deleteByUserIdAndProductId(Long userId, Long productId);
+
+    // カートの全明細を1ステートメントで削除する（チェックアウト後のカートクリア用）
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteAllByCartId(Long cartId);
+}
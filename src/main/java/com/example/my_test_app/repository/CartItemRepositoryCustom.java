@@ -0,0 +1,10 @@
+package com.example.my_test_app.repository;
+
+// Spring Data JPAの自動実装では表現できない操作（CartItemRepositoryImplで実装）
+public interface CartItemRepositoryCustom {
+
+    // 明細を追加する。同じカート・同じ商品の明細が既にある場合は、その明細の数量に加算する (add=true) か
+    // 数量を指定値にする (add=false)。一意制約 uk_cart_items_cart_product を使った1ステートメントの upsert。
+    // 追加した場合は新しい明細のID、既存の明細を更新した場合は null を返す
+    Long upsertQuantity(Long cartId, Long productId, int quantity, boolean add);
+}
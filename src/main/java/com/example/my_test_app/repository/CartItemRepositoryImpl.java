@@ -0,0 +1,51 @@
+package com.example.my_test_app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+public class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+
+    // VALUES(col) は MySQL 8.0.20 で非推奨になったが引き続き使える。
+    // テスト用の H2 (MySQL 互換モード) が行エイリアス構文 (AS new) に対応していないため、こちらを使う
+    private static final String UPSERT_ADD_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
+
+    private static final String UPSERT_SET_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartItemRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 同じ商品の明細を同時に追加しても、一意制約違反にならずに1つの明細にまとまる。
+    // 影響行数は追加で1、更新で2（値が変わらない場合は0、CLIENT_FOUND_ROWS が有効な接続では1）になるため、
+    // 生成されたキーが返った場合だけを追加として扱う（実行中のJPAトランザクションと同じ接続が使われる）。
+    @Override
+    public Long upsertQuantity(Long cartId, Long productId, int quantity, boolean add) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int affected = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    add ? UPSERT_ADD_SQL : UPSERT_SET_SQL, new String[] {"id"});
+            statement.setLong(1, cartId);
+            statement.setLong(2, productId);
+            statement.setInt(3, quantity);
+            return statement;
+        }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (affected != 1 || keys.size() != 1) {
+            return null;
+        }
+        Object key = keys.get(0).values().stream().findFirst().orElse(null);
+        return key instanceof Number number ? number.longValue() : null;
+    }
+}
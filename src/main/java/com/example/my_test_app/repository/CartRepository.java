@@ -2,10 +2,15 @@ package com.example.my_test_app.repository;
 
 import com.example.my_test_app.model.Cart;
 import com.example.my_test_app.model.User; // Userモデルのインポートが必要
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query; // @Queryアノテーションのインポートが必要
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +22,113 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
             "LEFT JOIN FETCH ci.product p " +
             "WHERE c.user = :user")
     Optional<Cart> findByUserWithCartItems(User user);
+
+    // ユーザーIDからカート・明細・商品を1クエリで取得する（チェックアウト用）
+    @Query("SELECT c FROM Cart c " +
+            "LEFT JOIN FETCH c.cartItems ci " +
+            "LEFT JOIN FETCH ci.product p " +
+            "WHERE c.user.id = :userId")
+    Optional<Cart> findByUserIdWithCartItems(Long userId);
+
+    // ユーザーのカートがなければ作成する。一意制約 uk_carts_user_id により、既にある場合は何も変更しない。
+    // ユーザーが存在しない場合も行を作らない。
+    // 既存の行には ON DUPLICATE KEY UPDATE で最初から排他ロックを取る（INSERT IGNORE は重複した行に共有ロックを取るため、
+    // 続く findIdByUserIdForUpdate で排他ロックへ格上げする際に、同時に作成した他のトランザクションとデッドロックする）
+    @Modifying
+    @Query(value = "INSERT INTO carts (user_id, item_count, distinct_product_count, subtotal) " +
+            "SELECT u.id, 0, 0, 0 FROM users u WHERE u.id = :userId " +
+            "ON DUPLICATE KEY UPDATE id = id", nativeQuery = true)
+    void insertIfAbsent(Long userId);
+
+    // ユーザーのカートIDをロック読み取りで取得する。REPEATABLE READ のスナップショットには
+    // 他のトランザクションが同時に作成したカートが含まれないため、最新のコミット済みの行を読む
+    @Query(value = "SELECT id FROM carts WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<Long> findIdByUserIdForUpdate(Long userId);
+
+    // カートを1ステートメントで削除する（明細は事前に削除しておくこと）
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id = :cartId")
+    int deleteCartById(Long cartId);
+
+    // カート更新系の処理で必要な情報（カートID・対象商品の明細・明細の種類数）を1クエリで取得する。
+    // ユーザーのカートが存在しない場合は空、対象商品がカートにない場合は itemId / quantity が null になる。
+    @Query("SELECT c.id AS cartId, ci.id AS itemId, ci.quantity AS quantity, " +
+            "(SELECT COUNT(x) FROM CartItem x WHERE x.cart = c) AS itemCount " +
+            "FROM Cart c LEFT JOIN c.cartItems ci ON ci.product.id = :productId " +
+            "WHERE c.user.id = :userId")
+    Optional<CartLineView> findLineByUserIdAndProductId(Long userId, Long productId);
+
+    interface CartLineView {
+        Long getCartId();
+        Long getItemId();
+        Integer getQuantity();
+        Long getItemCount();
+    }
+
+    // ========== 集計値（数量の合計・種類数・小計） ==========
+
+    // カートの集計値だけを1行読む（明細・商品は読まない）
+    @Query("SELECT c.id AS cartId, c.itemCount AS itemCount, c.distinctProductCount AS distinctProductCount, " +
+            "c.subtotal AS subtotal FROM Cart c WHERE c.user.id = :userId")
+    Optional<CartSummaryView> findSummaryByUserId(Long userId);
+
+    interface CartSummaryView {
+        Long getCartId();
+        Integer getItemCount();
+        Integer getDistinctProductCount();
+        BigDecimal getSubtotal();
+    }
+
+    // 明細の追加・数量の変更による差分を集計値に加える
+    @Modifying
+    @Query("UPDATE Cart c SET c.itemCount = c.itemCount + :quantityDelta, " +
+            "c.distinctProductCount = c.distinctProductCount + :productDelta, " +
+            "c.subtotal = c.subtotal + :subtotalDelta WHERE c.id = :cartId")
+    int adjustSummary(Long cartId, int quantityDelta, int productDelta, BigDecimal subtotalDelta);
+
+    // ユーザーのカートの指定商品の明細を集計値から差し引く（明細の削除の前に呼ぶ）。
+    // 明細がない場合は更新せず0を返す
+    @Modifying
+    @Query("UPDATE Cart c SET " +
+            "c.itemCount = c.itemCount - (SELECT ci.quantity FROM CartItem ci " +
+            "WHERE ci.cart.id = c.id AND ci.product.id = :productId), " +
+            "c.distinctProductCount = c.distinctProductCount - 1, " +
+            "c.subtotal = c.subtotal - (SELECT ci.quantity * p.price FROM CartItem ci JOIN ci.product p " +
+            "WHERE ci.cart.id = c.id AND p.id = :productId) " +
+            "WHERE c.user.id = :userId AND EXISTS (SELECT 1 FROM CartItem ci " +
+            "WHERE ci.cart.id = c.id AND ci.product.id = :productId)")
+    int subtractLineFromSummary(Long userId, Long productId);
+
+    // 指定カートの集計値を明細から計算し直す（書き込み遅延モードの書き出し・商品の変更後の再計算用）
+    @Modifying
+    @Query("UPDATE Cart c SET " +
+            "c.itemCount = COALESCE((SELECT SUM(ci.quantity) FROM CartItem ci WHERE ci.cart.id = c.id), 0), " +
+            "c.distinctProductCount = (SELECT COUNT(ci) FROM CartItem ci WHERE ci.cart.id = c.id), " +
+            "c.subtotal = COALESCE((SELECT SUM(ci.quantity * p.price) FROM CartItem ci JOIN ci.product p " +
+            "WHERE ci.cart.id = c.id), 0) " +
+            "WHERE c.id IN :cartIds")
+    int recomputeSummaries(Collection<Long> cartIds);
+
+    // 修復ジョブのバッチ範囲を決めるため、afterId より大きいカートIDを昇順に読む
+    @Query("SELECT c.id FROM Cart c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(Long afterId, Limit limit);
+
+    // 商品の変更後に集計値を計算し直すカートを、afterId より大きいカートIDの昇順に読む
+    @Query("SELECT ci.cart.id FROM CartItem ci WHERE ci.product.id = :productId AND ci.cart.id > :afterId " +
+            "ORDER BY ci.cart.id")
+    List<Long> findIdsContainingProductAfter(Long productId, Long afterId, Limit limit);
+
+    // afterId < id <= upToId のカートのうち、集計値が明細と一致しないものを計算し直す。戻り値: 修復した件数
+    @Modifying
+    @Query("UPDATE Cart c SET " +
+            "c.itemCount = COALESCE((SELECT SUM(ci.quantity) FROM CartItem ci WHERE ci.cart.id = c.id), 0), " +
+            "c.distinctProductCount = (SELECT COUNT(ci) FROM CartItem ci WHERE ci.cart.id = c.id), " +
+            "c.subtotal = COALESCE((SELECT SUM(ci.quantity * p.price) FROM CartItem ci JOIN ci.product p " +
+            "WHERE ci.cart.id = c.id), 0) " +
+            "WHERE c.id > :afterId AND c.id <= :upToId AND (" +
+            "c.itemCount <> COALESCE((SELECT SUM(ci.quantity) FROM CartItem ci WHERE ci.cart.id = c.id), 0) " +
+            "OR c.distinctProductCount <> (SELECT COUNT(ci) FROM CartItem ci WHERE ci.cart.id = c.id) " +
+            "OR c.subtotal <> COALESCE((SELECT SUM(ci.quantity * p.price) FROM CartItem ci JOIN ci.product p " +
+            "WHERE ci.cart.id = c.id), 0))")
+    int repairDriftedSummaries(Long afterId, Long upToId);
 }
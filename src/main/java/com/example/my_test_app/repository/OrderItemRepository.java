@@ -3,11 +3,21 @@ package com.example.my_test_app.repository;
 import com.example.my_test_app.model.OrderItem;
 import com.example.my_test_app.model.Order; // Orderエンティティをインポート
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List; // Listをインポート
 
 @Repository
-public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, OrderItemRepositoryCustom {
     // 特定の注文に属するすべての注文明細を検索するメソッド (オプション)
     List<OrderItem> findByOrder(Order order);
+
+    // 商品ごとの累計注文数量（商品サジェストの人気順の算出に使う）
+    @Query("SELECT oi.productId AS productId, SUM(oi.quantity) AS quantity FROM OrderItem oi GROUP BY oi.productId")
+    List<ProductSalesView> sumQuantityGroupByProductId();
+
+    interface ProductSalesView {
+        Long getProductId();
+        long getQuantity();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.my_test_app.repository;
+
+import com.example.my_test_app.model.OrderItem;
+
+import java.util.List;
+
+// Spring Data JPAの自動実装では表現できない操作（OrderItemRepositoryImplで実装）
+public interface OrderItemRepositoryCustom {
+
+    // 注文明細をJDBCバッチでまとめてINSERTする
+    void batchInsert(Long orderId, List<OrderItem> orderItems);
+}
@@ -0,0 +1,35 @@
+package com.example.my_test_app.repository;
+
+import com.example.my_test_app.model.OrderItem;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class OrderItemRepositoryImpl implements OrderItemRepositoryCustom {
+
+    // 1回のバッチで送信する最大行数
+    private static final int BATCH_SIZE = 100;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_items (order_id, product_id, product_name, item_price, quantity) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // OrderItemのIDはIDENTITY採番のため、Hibernate経由ではINSERTがバッチ化されない。
+    // JdbcTemplateで直接バッチ送信する（実行中のJPAトランザクションと同じ接続が使われる）。
+    @Override
+    public void batchInsert(Long orderId, List<OrderItem> orderItems) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, orderItems, BATCH_SIZE, (ps, item) -> {
+            ps.setLong(1, orderId);
+            ps.setLong(2, item.getProductId());
+            ps.setString(3, item.getProductName());
+            ps.setBigDecimal(4, item.getItemPrice());
+            ps.setInt(5, item.getQuantity());
+        });
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.my_test_app.repository;
 
+import com.example.my_test_app.dto.OrderSummaryDto;
 import com.example.my_test_app.model.Order;
 import com.example.my_test_app.model.User; // Userエンティティをインポート
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List; // Listをインポート
 import java.util.Optional; // Optionalをインポート
@@ -14,4 +18,27 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     // 特定のユーザーの最新の注文を検索するメソッド (オプション)
     // Optional<Order> findTopByUserOrderByOrderDateDesc(User user);
-}
\ No newline at end of file
+
+    // 注文明細をまとめて取得する（明細ごとの追加クエリを発生させない）
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id = :id")
+    Optional<Order> findWithItemsById(Long id);
+
+    // 注文履歴を新しい順にキーセット方式で取得する（afterId が null の場合は先頭ページ）
+    // エンティティではなくDTOに直接詰めるため、明細やユーザーの遅延ロードは発生しない
+    @Query("SELECT new com.example.my_test_app.dto.OrderSummaryDto(" +
+            "o.id, o.orderDate, o.totalAmount, o.orderStatus, " +
+            "(SELECT COUNT(oi) FROM OrderItem oi WHERE oi.order = o)) " +
+            "FROM Order o WHERE o.user.id = :userId AND (:afterId IS NULL OR o.id < :afterId) " +
+            "ORDER BY o.id DESC")
+    List<OrderSummaryDto> findSummariesByUserId(Long userId, Long afterId, Limit limit);
+
+    // 支払い状態を条件付きで更新する（戻り値が0なら更新済み。後続処理を冪等にするため）
+    @Modifying
+    @Query("UPDATE Order o SET o.paymentStatus = :to WHERE o.id = :id AND o.paymentStatus = :from")
+    int updatePaymentStatus(Long id, String from, String to);
+
+    // 注文状態を条件付きで更新する
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :to WHERE o.id = :id AND o.orderStatus = :from")
+    int updateOrderStatus(Long id, String from, String to);
+}
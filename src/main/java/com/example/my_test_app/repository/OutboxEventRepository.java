@@ -0,0 +1,47 @@
+package com.example.my_test_app.repository;
+
+import com.example.my_test_app.model.OutboxEvent;
+import com.example.my_test_app.model.OutboxEvent.Status;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // 処理時刻に達した未処理イベントのIDを古い順に取得する
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueIds(Status status, Instant now, Limit limit);
+
+    // イベントを確保する（他のディスパッチャーが先に確保したものは条件から外れる）。
+    // 確保期限 (leaseUntil) までに完了しなければ、再び処理対象になる
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimToken = :token, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id IN :ids AND e.status = :status AND e.nextAttemptAt <= :now")
+    int claim(Collection<Long> ids, Status status, Instant now, String token, Instant leaseUntil);
+
+    List<OutboxEvent> findByClaimTokenOrderById(String claimToken);
+
+    // 処理済みにする（確保したディスパッチャーからのみ）
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.attempts = e.attempts + 1, e.processedAt = :processedAt, " +
+            "e.claimToken = NULL, e.lastError = NULL WHERE e.id = :id AND e.claimToken = :token")
+    int complete(Long id, String token, Status status, Instant processedAt);
+
+    // 失敗を記録する（status が PENDING なら nextAttemptAt に再試行する）
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.claimToken = NULL, e.lastError = :error WHERE e.id = :id AND e.claimToken = :token")
+    int fail(Long id, String token, Status status, Instant nextAttemptAt, String error);
+
+    // 保存期間を過ぎた処理済みイベントを削除する
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :status AND e.processedAt < :before")
+    int deleteProcessedBefore(Status status, Instant before);
+}
@@ -2,8 +2,11 @@ package com.example.my_test_app.repository;
 
 import com.example.my_test_app.model.PasswordResetToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +17,9 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
 
     // ユーザーでPasswordResetTokenを検索するメソッド（1ユーザーにつき1つの有効なトークンを想定）
     Optional<PasswordResetToken> findByUser(com.example.my_test_app.model.User user);
-}
\ No newline at end of file
+
+    // 有効期限切れのトークンをまとめて削除する（idx_password_reset_tokens_expiry で範囲検索）
+    @Modifying
+    @Query("DELETE FROM PasswordResetToken t WHERE t.expiryDate < :before")
+    int deleteExpiredBefore(Date before);
+}
@@ -3,13 +3,36 @@
 package com.example.my_test_app.repository;
 
 import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.ProductType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    // Spring Data JPAが自動的に基本的なCRUD操作を提供してくれるため、
-    // ここに特別なメソッドを記述する必要はありません。
-    // 必要に応じて、findBy* などのカスタムクエリメソッドを定義できますが、
-    // 今回はまずは不要です。
-}
\ No newline at end of file
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+
+    // ========== 商品一覧のキーセットページング ==========
+    // OFFSETを使わず「前ページ最後の行より後ろ」を条件にすることで、
+    // 何ページ目であってもインデックスの範囲走査だけで済むようにする。
+    // null のパラメータは「条件なし」として扱い、条件の組み合わせごとに必要な条件だけのクエリを組み立てる
+    // （ProductSpecifications）。
+
+    // id 昇順（afterId より大きいIDの商品を取得）
+    default List<Product> findPageOrderById(ProductType type, BigDecimal minPrice, BigDecimal maxPrice,
+                                            Long afterId, Limit limit) {
+        return findBy(ProductSpecifications.pageOrderById(type, minPrice, maxPrice, afterId),
+                query -> query.sortBy(Sort.by("id")).limit(limit.max()).all());
+    }
+
+    // price 昇順・同価格は id 昇順（(afterPrice, afterId) より後ろの商品を取得）
+    default List<Product> findPageOrderByPrice(ProductType type, BigDecimal minPrice, BigDecimal maxPrice,
+                                               BigDecimal afterPrice, Long afterId, Limit limit) {
+        return findBy(ProductSpecifications.pageOrderByPrice(type, minPrice, maxPrice, afterPrice, afterId),
+                query -> query.sortBy(Sort.by("price", "id")).limit(limit.max()).all());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.my_test_app.repository;
+
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.ProductType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// 商品一覧のキーセットページングの検索条件。
+// 指定された条件だけを WHERE 句に含める（「:param IS NULL OR ...」の形の条件は MySQL がインデックスの
+// 範囲走査に使えないため、(type, price, id) / (price, id) のインデックスが効かなくなる）
+final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // id 昇順のページ: afterId より大きいIDの商品
+    static Specification<Product> pageOrderById(ProductType type, BigDecimal minPrice, BigDecimal maxPrice,
+                                                Long afterId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = filters(root, cb, type, minPrice, maxPrice);
+            if (afterId != null) {
+                predicates.add(cb.greaterThan(root.get("id"), afterId));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // price 昇順・同価格は id 昇順のページ: (afterPrice, afterId) より後ろの商品。
+    // price >= afterPrice を単独の条件にして、price の範囲走査の開始位置にする
+    static Specification<Product> pageOrderByPrice(ProductType type, BigDecimal minPrice, BigDecimal maxPrice,
+                                                   BigDecimal afterPrice, Long afterId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = filters(root, cb, type, minPrice, maxPrice);
+            if (afterPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), afterPrice));
+                predicates.add(cb.or(
+                        cb.greaterThan(root.get("price"), afterPrice),
+                        cb.greaterThan(root.get("id"), afterId)));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    private static List<Predicate> filters(Root<Product> root, CriteriaBuilder cb, ProductType type,
+                                           BigDecimal minPrice, BigDecimal maxPrice) {
+        List<Predicate> predicates = new ArrayList<>(5);
+        if (type != null) {
+            predicates.add(cb.equal(root.get("type"), type));
+        }
+        if (minPrice != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+        }
+        return predicates;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.my_test_app.repository;
+
+import com.example.my_test_app.model.ProductStockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, Long> {
+
+    // 複数商品のシャードの在庫数をロックせずに取得する（引当先シャードの候補選びに使う）
+    @Query("SELECT s.productId AS productId, s.shardNo AS shardNo, s.quantity AS quantity " +
+            "FROM ProductStockShard s WHERE s.productId IN :productIds")
+    List<StockShardView> findSnapshotByProductIdIn(Collection<Long> productIds);
+
+    // 在庫が足りる場合のみシャードの在庫を減らす（戻り値が0なら在庫不足）
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity - :quantity " +
+            "WHERE s.productId = :productId AND s.shardNo = :shardNo AND s.quantity >= :quantity")
+    int tryDecrement(Long productId, int shardNo, int quantity);
+
+    // 商品の全シャードを番号順に行ロックして取得する（複数シャードにまたがる引当・在庫数の設定用）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shardNo")
+    List<ProductStockShard> findAllByProductIdForUpdate(Long productId);
+
+    List<ProductStockShard> findByProductIdOrderByShardNo(Long productId);
+
+    interface StockShardView {
+        Long getProductId();
+        int getShardNo();
+        int getQuantity();
+    }
+}
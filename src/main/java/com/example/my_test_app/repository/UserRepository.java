@@ -2,8 +2,12 @@ package com.example.my_test_app.repository;
 
 import com.example.my_test_app.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.Optional;
 
 @Repository
@@ -19,4 +23,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // usernameまたはemailでユーザーが存在するかどうかを確認するためのメソッド
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // ロックされていないアカウントのみロックする (更新件数0の場合は他のリクエストが先にロックした)
+    @Modifying
+    @Query("UPDATE User u SET u.accountLocked = true, u.lockTime = :lockTime, u.failedLoginAttempts = :failedAttempts " +
+            "WHERE u.id = :id AND u.accountLocked = false")
+    int lockAccount(@Param("id") Long id, @Param("lockTime") Date lockTime, @Param("failedAttempts") int failedAttempts);
+
+    // 指定の日時にロックされたアカウントのみロックを解除する (更新件数0の場合は他のリクエストが先に解除した)
+    @Modifying
+    @Query("UPDATE User u SET u.accountLocked = false, u.lockTime = null, u.failedLoginAttempts = 0 " +
+            "WHERE u.id = :id AND u.accountLocked = true AND u.lockTime = :lockTime")
+    int unlockAccount(@Param("id") Long id, @Param("lockTime") Date lockTime);
+}
@@ -3,116 +3,105 @@ package com.example.my_test_app.service;
 import com.example.my_test_app.model.Cart;
 import com.example.my_test_app.model.CartItem;
 import com.example.my_test_app.model.User;
-import com.example.my_test_app.model.Product;
 import com.example.my_test_app.dto.CartDto;
 import com.example.my_test_app.dto.CartItemDto;
+import com.example.my_test_app.dto.CartOperationDto;
+import com.example.my_test_app.dto.CartSummaryDto;
 import com.example.my_test_app.dto.ProductDto;
 import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.CartRepository.CartLineView;
+import com.example.my_test_app.repository.CartRepository.CartSummaryView;
 import com.example.my_test_app.repository.CartItemRepository;
 import com.example.my_test_app.repository.UserRepository;
 import com.example.my_test_app.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import com.example.my_test_app.exceptions.CartLimitExceededException; // ★追加: ここが複数形であることを確認！
 
 @Service
+@ConditionalOnProperty(name = "app.cart.write-behind.enabled", havingValue = "false", matchIfMissing = true) // 有効時は WriteBehindCartService を使う
+@Timed(value = "app.cart", histogram = true) // 公開メソッドごとの処理時間 (タグ: class, method)
 public class CartService {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final ProductService productService; // 商品情報はキャッシュ経由で取得する
+    private final Counter cartLimitRejections; // カート上限超過で追加を拒否した回数
 
     // ★修正: カートの最大商品数（この定数名で後続のロジックが参照されます）
-    private static final int MAX_CART_ITEMS = 20; // 例として20個に設定
+    static final int MAX_CART_ITEMS = 20; // 例として20個に設定
+    public static final int MAX_BATCH_OPERATIONS = 100; // 一括操作1回あたりの最大操作数
 
     @Autowired
     public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository,
-                       UserRepository userRepository, ProductRepository productRepository) {
+                       UserRepository userRepository, ProductRepository productRepository,
+                       ProductService productService, MeterRegistry meterRegistry) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
+        this.productService = productService;
+        this.cartLimitRejections = Counter.builder("app.cart.limit.rejections")
+                .description("Number of cart additions rejected by the cart item limit")
+                .register(meterRegistry);
     }
 
     // ========== カートに商品を追加するロジック (DTOを返すように変更) ==========
+    // カートが既にある場合は「カート情報の取得」「集計値の更新」「INSERTまたはUPDATE」の3ステートメントで完結する。
+    // 商品情報はProductServiceのキャッシュから取得するため、通常はDBを参照しない。
     @Transactional
     public Optional<CartItemDto> addProductToCart(Long userId, Long productId, int quantity) {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Quantity must be positive.");
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-
-        // ユーザーに紐づくカートを取得または作成
-        Cart cart = cartRepository.findByUser(user)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
-                });
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-
-        Optional<CartItem> existingCartItemOptional = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId());
-
-        CartItem cartItem;
-        if (existingCartItemOptional.isPresent()) {
-            // 既存のアイテムがある場合、数量を更新
-            cartItem = existingCartItemOptional.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            cartItem = cartItemRepository.save(cartItem);
-        } else {
-            // ★ここを修正: 新規アイテム追加の場合にのみ、種類数の上限をチェック
-            Set<CartItem> currentCartItems = cart.getCartItems(); // 現在カートに入っている商品アイテムのSet
-            if (currentCartItems.size() >= MAX_CART_ITEMS) { // 定数MAX_CART_ITEMSを使用
-                throw new CartLimitExceededException("カートに追加できる商品の種類は" + MAX_CART_ITEMS + "個までです。");
-            }
+        ProductDto product = findProduct(productId);
 
-            // 新しいアイテムとして追加
-            cartItem = new CartItem(cart, product, quantity);
-            cart.getCartItems().add(cartItem); // Cartエンティティのコレクションにも追加
-
-            cartItem = cartItemRepository.save(cartItem);
+        Optional<CartLineView> line = cartRepository.findLineByUserIdAndProductId(userId, productId);
+        if (line.isEmpty()) {
+            // 初めてカートに追加する場合はカートを作成する
+            Long cartId = createCart(userId);
+            return Optional.of(insertCartItem(cartId, product, quantity, true));
         }
 
-        // Cartエンティティの内部状態（cartItemsコレクション）が変更された可能性があるため保存
-        cartRepository.save(cart);
+        CartLineView view = line.get();
+        if (view.getItemId() != null) {
+            // 既存のアイテムがある場合、数量を加算
+            adjustSummary(view.getCartId(), product, quantity, 0);
+            cartItemRepository.incrementQuantity(view.getItemId(), quantity);
+            return Optional.of(new CartItemDto(view.getItemId(), view.getQuantity() + quantity, product));
+        }
 
-        // ★保存されたCartItemエンティティをDTOに変換して返す
-        return Optional.of(convertToCartItemDto(cartItem));
+        // 新規アイテム追加の場合にのみ、種類数の上限をチェック
+        checkCartItemLimit(view.getItemCount());
+        return Optional.of(insertCartItem(view.getCartId(), product, quantity, true));
     }
 
     // ========== カートから商品を削除するロジック (変更なし、booleanを返すため) ==========
+    // 明細を集計値から差し引いてから、ユーザーIDと商品IDで直接DELETEする（2ステートメント。明細がない場合は1）
     @Transactional
     public boolean removeProductFromCart(Long userId, Long productId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-
-        Optional<CartItem> existingCartItemOptional = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId());
-
-        if (existingCartItemOptional.isPresent()) {
-            CartItem cartItem = existingCartItemOptional.get();
-            cart.getCartItems().remove(cartItem); // Cartエンティティのコレクションから削除
-            cartItemRepository.delete(cartItem);
-            cartRepository.save(cart); // Cartエンティティの変更を保存
-            return true;
+        if (cartRepository.subtractLineFromSummary(userId, productId) == 0) {
+            return false;
         }
-        return false;
+        return cartItemRepository.deleteByUserIdAndProductId(userId, productId) > 0;
     }
 
     // ========== カートの内容を取得するロジック (CartDtoを返すように変更) ==========
@@ -123,6 +112,13 @@ public class CartService {
                 .map(this::convertToCartDto);
     }
 
+    // ========== カートの集計値を取得するロジック ==========
+    // カート行の集計値だけを読む（1ステートメント。明細・商品は読まない）
+    @Transactional(readOnly = true)
+    public Optional<CartSummaryDto> getCartSummary(Long userId) {
+        return cartRepository.findSummaryByUserId(userId).map(view -> toSummaryDto(userId, view));
+    }
+
     // ========== カート内のアイテム数量を更新するロジック (DTOを返すように変更) ==========
     @Transactional
     public Optional<CartItemDto> updateCartItemQuantity(Long userId, Long productId, int newQuantity) {
@@ -131,34 +127,76 @@ public class CartService {
         }
 
         if (newQuantity == 0) {
-            boolean removed = removeProductFromCart(userId, productId);
-            return removed ? Optional.empty() : Optional.empty(); // 削除された場合は空のOptionalを返す
+            removeProductFromCart(userId, productId);
+            return Optional.empty(); // 削除された場合は空のOptionalを返す
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+        ProductDto product = findProduct(productId);
 
-        Cart cart = cartRepository.findByUser(user)
+        CartLineView view = cartRepository.findLineByUserIdAndProductId(userId, productId)
                 .orElseThrow(() -> new RuntimeException("Cart not found for user: " + userId));
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        if (view.getItemId() != null) {
+            adjustSummary(view.getCartId(), product, newQuantity - view.getQuantity(), 0);
+            cartItemRepository.updateQuantity(view.getItemId(), newQuantity);
+            return Optional.of(new CartItemDto(view.getItemId(), newQuantity, product));
+        }
 
-        Optional<CartItem> existingCartItemOptional = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId());
+        // 既存のアイテムがない場合、新しいアイテムとして追加
+        checkCartItemLimit(view.getItemCount());
+        return Optional.of(insertCartItem(view.getCartId(), product, newQuantity, false));
+    }
 
-        if (existingCartItemOptional.isPresent()) {
-            CartItem cartItem = existingCartItemOptional.get();
-            cartItem.setQuantity(newQuantity);
-            cartItem = cartItemRepository.save(cartItem);
-            cartRepository.save(cart); // Cartエンティティの変更を保存
+    // ========== 複数の操作を一括で適用するロジック ==========
+    // 操作を先頭から順にメモリ上で適用して最終状態を求め、差分だけを1トランザクションで書き込む。
+    // 参照する商品は1クエリ、カート・明細は1クエリで読み込み、種類数の上限は最終状態に対して1回だけ判定する。
+    // 集計値は最終状態から計算して設定する。いずれかの操作が不正な場合は何も変更しない。
+    // 数量・集計値を絶対値で書き込むため、最初にカートの行を排他ロックしてから読み込む
+    // (他のカート操作も集計値の更新でカートの行をロックするため、同時に実行された変更を上書きしない)
+    @Transactional
+    public CartDto applyCartOperations(Long userId, List<CartOperationDto> operations) {
+        cartRepository.findIdByUserIdForUpdate(userId).orElseGet(() -> createCart(userId));
+        Map<Long, ProductDto> products = findProducts(operations);
+
+        Cart cart = cartRepository.findByUserIdWithCartItems(userId).orElseThrow();
+        Map<Long, CartItem> items = new LinkedHashMap<>();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem item : cart.getCartItems()) {
+            items.put(item.getProduct().getId(), item);
+            quantities.put(item.getProduct().getId(), item.getQuantity());
+            products.putIfAbsent(item.getProduct().getId(), productService.convertToDto(item.getProduct()));
+        }
 
-            return Optional.of(convertToCartItemDto(cartItem));
-        } else {
-            // 既存のアイテムがない場合、新しいアイテムとして追加
-            // この場合も数量チェックが必要ですが、addProductToCart内で既に実施されるためここでは不要
-            return addProductToCart(userId, productId, newQuantity);
+        Map<Long, Integer> result = applyOperations(quantities, operations);
+        checkCartItemLimit(quantities.size(), result.size());
+
+        // 差分の書き込み (明細の削除はorphanRemoval、数量の変更はダーティチェックで反映される)
+        for (Map.Entry<Long, CartItem> entry : items.entrySet()) {
+            Integer quantity = result.get(entry.getKey());
+            if (quantity == null) {
+                cart.removeCartItem(entry.getValue());
+            } else {
+                entry.getValue().setQuantity(quantity);
+            }
+        }
+        List<CartItemDto> cartItemDtos = new ArrayList<>(result.size());
+        long totalPrice = 0;
+        int itemCount = 0;
+        for (Map.Entry<Long, Integer> entry : result.entrySet()) {
+            ProductDto product = products.get(entry.getKey());
+            CartItem item = items.get(entry.getKey());
+            Long itemId = item != null ? item.getId() : upsertCartItemId(cart.getId(), product.getId(), entry.getValue());
+            cartItemDtos.add(new CartItemDto(itemId, entry.getValue(), product));
+            totalPrice = PricingEngine.addLine(totalPrice, product.getPrice(), entry.getValue());
+            itemCount += entry.getValue();
         }
+        // 集計値はダーティチェックで反映される（変わらない場合はUPDATEしない）
+        cart.setItemCount(itemCount);
+        cart.setDistinctProductCount(result.size());
+        cart.setSubtotal(PricingEngine.toAmount(totalPrice));
+        return new CartDto(cart.getId(), userId, cartItemDtos, cart.getSubtotal());
     }
+
     // ========== カートをクリアするロジック（変更なし） ==========
     @Transactional
     public void clearCart(Long userId) {
@@ -170,9 +208,166 @@ public class CartService {
 
         cartItemRepository.deleteByCartId(cart.getId());
         cart.getCartItems().clear(); // Cartエンティティのコレクションもクリア
+        cart.setItemCount(0);
+        cart.setDistinctProductCount(0);
+        cart.setSubtotal(BigDecimal.ZERO);
         cartRepository.save(cart); // Cartエンティティの変更を保存
     }
 
+    /**
+     * 注文確定の直前に、注文処理のトランザクション内で呼ばれます。
+     * このクラスは変更を即座にDBへ書き込むため何もしません（書き込み遅延モードではメモリ上の変更を書き出す）。
+     *
+     * @param userId ユーザーID
+     */
+    public void prepareCheckout(Long userId) {
+    }
+
+    // ========== カート更新系のヘルパーメソッド ==========
+
+    protected ProductDto findProduct(Long productId) {
+        return productService.getProductById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+    }
+
+    protected void checkCartItemLimit(long currentItemCount) {
+        if (currentItemCount >= MAX_CART_ITEMS) { // 定数MAX_CART_ITEMSを使用
+            cartLimitRejections.increment();
+            throw new CartLimitExceededException("カートに追加できる商品の種類は" + MAX_CART_ITEMS + "個までです。");
+        }
+    }
+
+    // 一括操作の最終状態に対する種類数の上限チェック (種類数を増やさない操作は上限を超えていても許可する)
+    protected void checkCartItemLimit(int currentItemCount, int resultItemCount) {
+        if (resultItemCount > MAX_CART_ITEMS && resultItemCount > currentItemCount) {
+            cartLimitRejections.increment();
+            throw new CartLimitExceededException("カートに追加できる商品の種類は" + MAX_CART_ITEMS + "個までです。");
+        }
+    }
+
+    // カートを取得または作成する（2ステートメント）。同じユーザーの最初のカート追加が同時に実行されても、
+    // 一意制約 uk_carts_user_id により1つのカートにまとまる（後から実行した側は先に作成されたカートを使う）。
+    // カートの行には作成時点から排他ロックを取るため、ロックの格上げによるデッドロックは起きない。
+    // カートが既にある通常の経路ではこのメソッドを呼ばないため、ロックは取らない
+    protected Long createCart(Long userId) {
+        cartRepository.insertIfAbsent(userId);
+        return cartRepository.findIdByUserIdForUpdate(userId)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+    }
+
+    /**
+     * 一括操作を検証し、追加・更新で参照する商品を1クエリでまとめて読み込みます。
+     *
+     * @param operations 操作のリスト
+     * @return 商品ID -> 商品 (変更可能なマップ)
+     */
+    protected Map<Long, ProductDto> findProducts(List<CartOperationDto> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Operations must not be empty.");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " operations are allowed per request.");
+        }
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (CartOperationDto operation : operations) {
+            if (operation == null || operation.getType() == null || operation.getProductId() == null) {
+                throw new IllegalArgumentException("Each operation requires type and productId.");
+            }
+            Integer quantity = operation.getQuantity();
+            switch (operation.getType()) {
+                case ADD -> {
+                    if (quantity == null || quantity <= 0) {
+                        throw new IllegalArgumentException("Quantity must be positive.");
+                    }
+                    productIds.add(operation.getProductId());
+                }
+                case UPDATE -> {
+                    if (quantity == null || quantity < 0) {
+                        throw new IllegalArgumentException("Quantity cannot be negative.");
+                    }
+                    if (quantity > 0) {
+                        productIds.add(operation.getProductId());
+                    }
+                }
+                case REMOVE -> {
+                }
+            }
+        }
+
+        Map<Long, ProductDto> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findAllById(productIds)
+                    .forEach(product -> products.put(product.getId(), productService.convertToDto(product)));
+        }
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * 操作を先頭から順に適用したカートの最終状態を求めます（引数のマップは変更しない）。
+     *
+     * @param quantities 現在の商品ID -> 数量
+     * @param operations 検証済みの操作のリスト
+     * @return 適用後の商品ID -> 数量 (既存の明細の順序を保ち、追加した明細は末尾)
+     */
+    protected static Map<Long, Integer> applyOperations(Map<Long, Integer> quantities, List<CartOperationDto> operations) {
+        Map<Long, Integer> result = new LinkedHashMap<>(quantities);
+        for (CartOperationDto operation : operations) {
+            switch (operation.getType()) {
+                case ADD -> result.merge(operation.getProductId(), operation.getQuantity(), Integer::sum);
+                case UPDATE -> {
+                    if (operation.getQuantity() == 0) {
+                        result.remove(operation.getProductId());
+                    } else {
+                        result.put(operation.getProductId(), operation.getQuantity());
+                    }
+                }
+                case REMOVE -> result.remove(operation.getProductId());
+            }
+        }
+        return result;
+    }
+
+    // 明細の数量・種類数の変化をカートの集計値に差分で反映する（1ステートメント）。
+    // カート行のロックを明細の書き込みより先に取ることで、同じカートを更新するトランザクションの
+    // ロックの順序を揃える（カート作成時のロック読み取りと明細の行ロックでデッドロックしないように）
+    private void adjustSummary(Long cartId, ProductDto product, int quantityDelta, int productDelta) {
+        cartRepository.adjustSummary(cartId, quantityDelta, productDelta,
+                PricingEngine.lineAmount(product.getPrice(), quantityDelta));
+    }
+
+    // 新しい明細を集計値に反映してから upsert で追加する（2ステートメント。カートや商品のSELECTは発生しない）。
+    // 同じ商品の明細が同時に追加されていた場合は、一意制約 uk_cart_items_cart_product によりその明細にまとめ
+    // （add=true なら数量を加算、false なら数量を設定）、加算した種類数を取り消す。
+    // 数量を設定した場合は元の数量が分からないため、数量・小計のずれは CartSummaryRepairJob が修復する
+    private CartItemDto insertCartItem(Long cartId, ProductDto product, int quantity, boolean add) {
+        adjustSummary(cartId, product, quantity, 1);
+        Long itemId = cartItemRepository.upsertQuantity(cartId, product.getId(), quantity, add);
+        if (itemId != null) {
+            return new CartItemDto(itemId, quantity, product);
+        }
+        cartRepository.adjustSummary(cartId, 0, -1, BigDecimal.ZERO);
+        CartItem merged = findCartItem(cartId, product.getId());
+        return new CartItemDto(merged.getId(), merged.getQuantity(), product);
+    }
+
+    // 明細を upsert で追加し（数量は指定値に設定）、明細のIDを返す。集計値は呼び出し側で設定する
+    private Long upsertCartItemId(Long cartId, Long productId, int quantity) {
+        Long itemId = cartItemRepository.upsertQuantity(cartId, productId, quantity, false);
+        return itemId != null ? itemId : findCartItem(cartId, productId).getId();
+    }
+
+    // upsert が同時に追加された既存の明細を更新した場合に、その明細を読み込む
+    private CartItem findCartItem(Long cartId, Long productId) {
+        return cartItemRepository.findByCartIdAndProductId(cartId, productId)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Cart item not found for cart " + cartId + " and product " + productId));
+    }
+
     // ========== エンティティからDTOへの変換ヘルパーメソッド ==========
 
     // CartItemエンティティをCartItemDtoに変換
@@ -188,25 +383,30 @@ public class CartService {
         return new CartItemDto(cartItem.getId(), cartItem.getQuantity(), productDto);
     }
 
+    protected static CartSummaryDto toSummaryDto(Long userId, CartSummaryView view) {
+        return new CartSummaryDto(view.getCartId(), userId, view.getItemCount(), view.getDistinctProductCount(),
+                view.getSubtotal().setScale(PricingEngine.SCALE));
+    }
+
     // CartエンティティをCartDtoに変換
-    private CartDto convertToCartDto(Cart cart) {
+    // JMHベンチマーク (src/jmh/java) から呼び出すためパッケージプライベート
+    CartDto convertToCartDto(Cart cart) {
         if (cart == null) {
             return null;
         }
 
-        List<CartItemDto> cartItemDtos = cart.getCartItems().stream()
-                .map(this::convertToCartItemDto)
-                .collect(Collectors.toList());
-
-        double totalPrice = cart.getCartItems().stream()
-                .mapToDouble(item -> item.getProduct().getPrice().doubleValue() * item.getQuantity())
-                .sum();
+        List<CartItemDto> cartItemDtos = new ArrayList<>(cart.getCartItems().size());
+        long totalPrice = 0; // 注文の合計金額と同じく PricingEngine で最小単位のまま積算する
+        for (CartItem item : cart.getCartItems()) {
+            cartItemDtos.add(convertToCartItemDto(item));
+            totalPrice = PricingEngine.addLine(totalPrice, item.getProduct().getPrice(), item.getQuantity());
+        }
 
         return new CartDto(
                 cart.getId(),
                 cart.getUser().getId(),
                 cartItemDtos,
-                totalPrice
+                PricingEngine.toAmount(totalPrice)
         );
     }
 }
\ No newline at end of file
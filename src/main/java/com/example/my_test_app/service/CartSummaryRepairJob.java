@@ -0,0 +1,108 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * カートの集計値（数量の合計・種類数・小計）の修復ジョブ。
+ * 集計値は {@link CartService} が更新のたびに差分で更新するが、同時更新の競合や商品の価格変更、
+ * 集計値の列の追加前からあるカートでは明細とずれることがある。repair-interval ごとに全カートを
+ * カートIDの昇順に batch-size 件ずつ確認し、明細と一致しないカートだけを明細から計算し直す。
+ * バッチごとに1トランザクションで、確認と更新を1ステートメントで行う（一致するカートは更新しない）。
+ *
+ * <p>商品の価格変更では、小計は変更前の価格で加算されたまま、明細の削除時に変更後の価格で差し引かれてずれる。
+ * そのため {@link ProductChangedEvent} のコミット後に、その商品を含むカートの集計値をすぐに計算し直す。
+ * 一括インポート ({@link ProductsImportedEvent}) の後は全カートを修復する。
+ */
+@Service
+public class CartSummaryRepairJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CartSummaryRepairJob.class);
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter repaired;
+
+    @Autowired
+    public CartSummaryRepairJob(CartRepository cartRepository, PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.cart.summary.repair-batch-size:1000}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // コミット後のイベントから呼ばれた場合も、終了したトランザクションに参加せず新しいトランザクションで更新する
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.repaired = Counter.builder("app.cart.summary.repaired")
+                .description("Number of cart summaries recomputed because they drifted from the cart items")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 全カートの集計値を確認し、ずれているものを修復します。
+     *
+     * @return 修復したカートの数
+     */
+    @Scheduled(fixedDelayString = "${app.cart.summary.repair-interval:1h}",
+            initialDelayString = "${app.cart.summary.repair-interval:1h}")
+    public int repair() {
+        int total = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = cartRepository.findIdsAfter(afterId, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            long from = afterId;
+            long upTo = ids.get(ids.size() - 1);
+            Integer count = transactionTemplate.execute(status -> cartRepository.repairDriftedSummaries(from, upTo));
+            total += count != null ? count : 0;
+            afterId = upTo;
+        }
+        if (total > 0) {
+            repaired.increment(total);
+            log.info("Repaired {} drifted cart summaries", total);
+        }
+        return total;
+    }
+
+    // 一括インポートは商品ごとのイベントを発行しないため、全カートを確認する
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        repair();
+    }
+
+    /**
+     * 変更・削除された商品を含むカートの集計値を、現在の価格で明細から計算し直します。
+     * 商品を変更したトランザクションのコミット後に呼ばれます。
+     *
+     * @param event 商品変更イベント
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = cartRepository.findIdsContainingProductAfter(event.productId(), afterId, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> cartRepository.recomputeSummaries(ids));
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+}
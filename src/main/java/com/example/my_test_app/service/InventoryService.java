@@ -0,0 +1,186 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.exceptions.OutOfStockException;
+import com.example.my_test_app.exceptions.ResourceNotFoundException;
+import com.example.my_test_app.model.ProductStockShard;
+import com.example.my_test_app.repository.ProductRepository;
+import com.example.my_test_app.repository.ProductStockShardRepository;
+import com.example.my_test_app.repository.ProductStockShardRepository.StockShardView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * 商品在庫の管理と、注文確定時の在庫引当を行うサービス。
+ * 在庫は商品ごとに複数のシャード行へ分割して保持し、引当はランダムに選んだシャードへの
+ * 条件付きUPDATE（在庫が足りる場合のみ減算）で行う。人気商品への同時注文でも
+ * 行ロックの待ち行列が1行に集中しない。
+ * シャード行を持たない商品は在庫管理対象外（在庫無制限）として扱う。
+ */
+@Service
+public class InventoryService {
+
+    private final ProductStockShardRepository stockShardRepository;
+    private final ProductRepository productRepository;
+    private final int defaultShardCount;
+
+    @Autowired
+    public InventoryService(ProductStockShardRepository stockShardRepository,
+                            ProductRepository productRepository,
+                            @Value("${app.inventory.shard-count:8}") int defaultShardCount) {
+        this.stockShardRepository = stockShardRepository;
+        this.productRepository = productRepository;
+        this.defaultShardCount = defaultShardCount;
+    }
+
+    /**
+     * 注文分の在庫を引き当てます。呼び出し元のトランザクションに参加し、
+     * 在庫不足の商品が1つでもあれば例外を投げてトランザクションごとロールバックさせます。
+     *
+     * @param quantities 商品IDと数量のマップ
+     * @throws OutOfStockException 在庫が不足している商品がある場合
+     */
+    @Transactional
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // 全商品のシャード在庫を1クエリで取得（ロックなし。引当先の候補選びにのみ使う）
+        Map<Long, List<StockShardView>> shardsByProduct = stockShardRepository
+                .findSnapshotByProductIdIn(quantities.keySet()).stream()
+                .collect(Collectors.groupingBy(StockShardView::getProductId));
+
+        // デッドロックを避けるため、商品ID順に引き当てる
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            List<StockShardView> shards = shardsByProduct.get(entry.getKey());
+            if (shards == null) {
+                continue; // 在庫管理対象外の商品
+            }
+            reserveProduct(entry.getKey(), entry.getValue(), shards);
+        }
+    }
+
+    /**
+     * 1商品分の在庫を引き当てます。
+     * スナップショット上の在庫に余裕がある場合は、数量を賄えるシャードをランダムな順に条件付きUPDATEで試み、
+     * 最初に成功したシャードから減算します（高速経路）。在庫の残りが少ない（シャードあたりの平均が注文数量に満たない）場合は、
+     * 最初から全シャードを番号順にロックして複数シャードから減算します。
+     * 条件付きUPDATEが失敗する（スナップショットが古かった）のは他の注文がそのシャードを減算した場合なので、
+     * 人気商品でも注文処理ごとやり直さずに次の候補を試す。候補をすべて試しても引き当てられない場合は、
+     * 試したシャードのロックを持ったまま全シャードのロックを待つとデッドロックになり得るため、
+     * 低速経路には進まず注文処理ごと再試行させます（スナップショットを取り直し、必要なら低速経路で引き当てる）。
+     *
+     * @throws PessimisticLockingFailureException 高速経路の候補すべてで引当に失敗した場合（呼び出し元で再試行する）
+     */
+    private void reserveProduct(Long productId, int quantity, List<StockShardView> shards) {
+        long snapshotTotal = shards.stream().mapToLong(StockShardView::getQuantity).sum();
+        if (snapshotTotal >= (long) quantity * shards.size()) {
+            // 平均が数量以上なので、数量を賄えるシャードが少なくとも1つある
+            List<StockShardView> candidates = new ArrayList<>(shards.stream()
+                    .filter(shard -> shard.getQuantity() >= quantity)
+                    .toList());
+            Collections.shuffle(candidates, ThreadLocalRandom.current());
+            for (StockShardView shard : candidates) {
+                if (stockShardRepository.tryDecrement(productId, shard.getShardNo(), quantity) == 1) {
+                    return;
+                }
+            }
+            throw new PessimisticLockingFailureException("Stock snapshot is stale for product ID: " + productId
+                    + " (" + candidates.size() + " shards tried)");
+        }
+
+        // 在庫の残りが少ない、または数量がシャードあたりの在庫を超える場合（低頻度）
+        List<ProductStockShard> locked = stockShardRepository.findAllByProductIdForUpdate(productId);
+        int available = locked.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        if (available < quantity) {
+            throw new OutOfStockException("Insufficient stock for product ID: " + productId
+                    + " (requested " + quantity + ", available " + available + ")");
+        }
+        int remaining = quantity;
+        for (ProductStockShard shard : locked) {
+            int take = Math.min(remaining, shard.getQuantity());
+            shard.setQuantity(shard.getQuantity() - take); // コミット時にUPDATEされる
+            remaining -= take;
+            if (remaining == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 商品の在庫数を設定します（設定ファイルのシャード数で分割）。
+     *
+     * @param productId 商品ID
+     * @param quantity 在庫数
+     */
+    @Transactional
+    public void setStock(Long productId, int quantity) {
+        setStock(productId, quantity, defaultShardCount);
+    }
+
+    /**
+     * 商品の在庫数を、指定したシャード数に均等に分割して設定します。
+     * 既存のシャードは番号順にロックしてから置き換えます。
+     *
+     * @param productId 商品ID
+     * @param quantity 在庫数
+     * @param shardCount シャード数
+     */
+    @Transactional
+    public void setStock(Long productId, int quantity, int shardCount) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock quantity must not be negative.");
+        }
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1.");
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+
+        List<ProductStockShard> shards = new ArrayList<>(stockShardRepository.findAllByProductIdForUpdate(productId));
+        // シャード数を減らす場合は余分なシャードを削除
+        while (shards.size() > shardCount) {
+            stockShardRepository.delete(shards.remove(shards.size() - 1));
+        }
+        for (int shardNo = shards.size(); shardNo < shardCount; shardNo++) {
+            shards.add(new ProductStockShard(productId, shardNo, 0));
+        }
+        shards.sort(Comparator.comparingInt(ProductStockShard::getShardNo));
+
+        // 端数は若い番号のシャードに1つずつ割り振る
+        int base = quantity / shardCount;
+        int remainder = quantity % shardCount;
+        for (int i = 0; i < shardCount; i++) {
+            shards.get(i).setQuantity(base + (i < remainder ? 1 : 0));
+        }
+        stockShardRepository.saveAll(shards);
+    }
+
+    /**
+     * 商品の現在の在庫数（全シャードの合計）を取得します。
+     *
+     * @param productId 商品ID
+     * @return 在庫数。在庫管理対象外の商品の場合は空
+     */
+    @Transactional(readOnly = true)
+    public Optional<Integer> getAvailable(Long productId) {
+        List<ProductStockShard> shards = stockShardRepository.findByProductIdOrderByShardNo(productId);
+        if (shards.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(shards.stream().mapToInt(ProductStockShard::getQuantity).sum());
+    }
+}
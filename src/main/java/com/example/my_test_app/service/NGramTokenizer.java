@@ -0,0 +1,84 @@
+package com.example.my_test_app.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 商品検索用のN-gram（1-gram・2-gram）トークナイザ。
+ * 日本語は単語の区切りに空白を使わないため、形態素解析を使わずに文字単位のN-gramで索引を作る。
+ * テキストはNFKC正規化（全角英数字・半角カナの統一）と小文字化を行ったうえで、
+ * 文字・数字以外（空白、句読点、記号）で区切った区間ごとにN-gramを生成する。
+ */
+final class NGramTokenizer {
+
+    private NGramTokenizer() {
+    }
+
+    /**
+     * 索引用のトークン（各区間の1-gramと2-gram）を生成します。出現頻度を数えるため重複を含みます。
+     *
+     * @param text 商品名や商品説明
+     * @return トークンのリスト
+     */
+    static List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (int[] segment : segments(text)) {
+            for (int i = 0; i < segment.length; i++) {
+                terms.add(new String(segment, i, 1));
+                if (i + 1 < segment.length) {
+                    terms.add(new String(segment, i, 2));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 検索キーワードのトークンを生成します。
+     * 2文字以上の区間は2-gramのみ、1文字の区間は1-gramを使います（2-gramが全て一致すれば部分文字列として一致する）。
+     *
+     * @param query 検索キーワード
+     * @return 重複を除いたトークン（出現順）
+     */
+    static Set<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (int[] segment : segments(query)) {
+            if (segment.length == 1) {
+                terms.add(new String(segment, 0, 1));
+            }
+            for (int i = 0; i + 1 < segment.length; i++) {
+                terms.add(new String(segment, i, 2));
+            }
+        }
+        return terms;
+    }
+
+    static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    // 正規化後のテキストを、文字・数字の連続した区間（コードポイント配列）に分割する
+    private static List<int[]> segments(String text) {
+        List<int[]> segments = new ArrayList<>();
+        if (text == null) {
+            return segments;
+        }
+        int[] codePoints = normalize(text).codePoints().toArray();
+        int start = -1;
+        for (int i = 0; i <= codePoints.length; i++) {
+            boolean wordChar = i < codePoints.length && Character.isLetterOrDigit(codePoints[i]);
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                segments.add(Arrays.copyOfRange(codePoints, start, i));
+                start = -1;
+            }
+        }
+        return segments;
+    }
+}
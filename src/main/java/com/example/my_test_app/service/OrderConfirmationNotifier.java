@@ -0,0 +1,40 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.OutboxEvent;
+import com.example.my_test_app.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 決済完了 ({@link OutboxService#ORDER_PAID}) を受けて注文確認を通知し、注文を確定済みにするハンドラー。
+ * メール送信の代わりにログを出力する。
+ */
+@Component
+public class OrderConfirmationNotifier implements OutboxEventHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderConfirmationNotifier.class);
+
+    private final OrderRepository orderRepository;
+
+    @Autowired
+    public OrderConfirmationNotifier(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    @Override
+    public String eventType() {
+        return OutboxService.ORDER_PAID;
+    }
+
+    @Override
+    @Transactional
+    public void handle(OutboxEvent event) {
+        Long orderId = event.getAggregateId();
+        if (orderRepository.updateOrderStatus(orderId, "PROCESSING", "CONFIRMED") == 1) {
+            log.info("Order confirmation sent for order {}", orderId); // メール送信の代わり
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.example.my_test_app.service;
 
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.dto.OrderItemDTO;
+import com.example.my_test_app.dto.OrderSummaryDto;
+import com.example.my_test_app.dto.OrderSummaryPageDto;
+import com.example.my_test_app.exceptions.OutOfStockException;
+import com.example.my_test_app.exceptions.ResourceNotFoundException;
 import com.example.my_test_app.model.*; // Order, OrderItem, User, Cart, CartItem, Product をインポート
-import com.example.my_test_app.repository.*; // OrderRepository, OrderItemRepository, UserRepository, ProductRepository, CartRepository をインポート
+import com.example.my_test_app.repository.*; // OrderRepository, OrderItemRepository, UserRepository, CartRepository, CartItemRepository をインポート
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // トランザクション管理用
 import java.math.BigDecimal;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
@@ -18,104 +33,196 @@ public class OrderService {
     private final OrderItemRepository orderItemRepository;
     private final CartRepository cartRepository; // CartServiceからCartRepositoryを直接使用
     private final UserRepository userRepository; // Userを取得するため
-    private final ProductRepository productRepository; // Productを取得するため
+    private final CartItemRepository cartItemRepository; // カート明細の一括削除用
+    private final EntityManager entityManager;
+    private final InventoryService inventoryService; // 在庫引当用
+    private final CartService cartService; // 注文前にカートの変更をDBへ反映させる
+    private final OutboxService outboxService; // 決済・通知などの後続処理の依頼
+
+    private static final String ORDER_CURSOR = "order";
+    private static final int MAX_PAGE_SIZE = 100; // 注文履歴1ページあたりの最大件数
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
                         OrderItemRepository orderItemRepository,
                         CartRepository cartRepository,
                         UserRepository userRepository,
-                        ProductRepository productRepository) {
+                        CartItemRepository cartItemRepository,
+                        EntityManager entityManager,
+                        InventoryService inventoryService,
+                        CartService cartService,
+                        OutboxService outboxService) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.cartRepository = cartRepository;
         this.userRepository = userRepository;
-        this.productRepository = productRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.entityManager = entityManager;
+        this.inventoryService = inventoryService;
+        this.cartService = cartService;
+        this.outboxService = outboxService;
     }
 
     /**
      * カート内容に基づいて新しい注文を作成します。
+     * 決済と注文確認の通知はアウトボックス経由でコミット後に行うため、戻り値の注文は支払い状態 PENDING・注文状態 PROCESSING です
+     * （決済後に PAID、通知後に CONFIRMED になる）。
      *
      * @param userId 注文を行うユーザーのID
      * @param shippingAddress 配送先住所
-     * @return 作成された注文 (Orderエンティティ)
+     * @return 作成された注文の詳細 (明細を含むDTO)
      * @throws IllegalStateException カートが見つからない、またはカートが空の場合
+     * @throws OutOfStockException 在庫が不足している商品がある場合
      * @throws RuntimeException その他のエラー（例: 商品が見つからないなど）
      */
+    // 在庫行のロック競合でデッドロックの犠牲になった場合や、在庫のスナップショットが古く高速経路の引当に
+    // 失敗した場合は、トランザクションごと再試行する
+    @Retryable(retryFor = PessimisticLockingFailureException.class, maxAttempts = 5,
+            backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    @Timed(value = "app.checkout", description = "Checkout latency including retries", histogram = true)
     @Transactional // このメソッド全体をトランザクション管理下に置く
-    public Order createOrderFromCart(Long userId, String shippingAddress) {
-        // 1. ユーザーを取得
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
+    public OrderDetailDto createOrderFromCart(Long userId, String shippingAddress) {
+        // 0. 書き込み遅延モードでは、メモリ上のカートの変更をこのトランザクション内でDBへ書き出す
+        cartService.prepareCheckout(userId);
 
-        // 2. ユーザーのカートを取得
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new IllegalStateException("Cart not found for user ID: " + userId));
+        // 1. ユーザーのカートを明細・商品ごと1クエリで取得
+        Cart cart = cartRepository.findByUserIdWithCartItems(userId)
+                .orElseThrow(() -> userRepository.existsById(userId)
+                        ? new IllegalStateException("Cart not found for user ID: " + userId)
+                        : new RuntimeException("User not found with ID: " + userId));
 
-        // 3. カートが空でないことを確認
+        // 2. カートが空でないことを確認
         if (cart.getCartItems().isEmpty()) {
             throw new IllegalStateException("Cannot create an order from an empty cart.");
         }
 
-        // 4. Orderエンティティを作成
+        // 3. Orderエンティティを作成
         Order order = new Order();
-        order.setUser(user);
+        order.setUser(userRepository.getReferenceById(userId)); // 参照のみ（SELECTは発生しない）
         order.setShippingAddress(shippingAddress);
-        order.setPaymentStatus("PENDING"); // 仮に保留中に設定
-        order.setOrderStatus("PROCESSING"); // 仮に処理中に設定
+        order.setPaymentStatus("PENDING"); // 決済はコミット後に StandInPaymentHandler が行う
+        order.setOrderStatus("PROCESSING"); // 注文確認の通知後に CONFIRMED になる
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        Set<OrderItem> orderItems = new HashSet<>();
+        List<OrderItem> orderItems = new ArrayList<>(cart.getCartItems().size());
+        Map<Long, Integer> reservedQuantities = new HashMap<>();
 
-        // 5. CartItemからOrderItemを作成
+        // 4. CartItemからOrderItemを作成（商品はカートと一緒に取得済み）
         for (CartItem cartItem : cart.getCartItems()) {
-            // 商品情報を取得（注文時点のスナップショットとして保持するため）
-            Product product = productRepository.findById(cartItem.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found with ID: " + cartItem.getProduct().getId()));
-
+            Product product = cartItem.getProduct();
             OrderItem orderItem = new OrderItem(
                     product.getId(),
                     product.getName(),
                     product.getPrice(), // 注文時の価格をスナップショット
                     cartItem.getQuantity()
             );
-            order.addOrderItem(orderItem); // OrderエンティティにOrderItemを追加
-            orderItems.add(orderItem); // OrderItemのセットにも追加
-
-            // 合計金額を計算
-            totalAmount = totalAmount.add(product.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+            orderItems.add(orderItem);
+            reservedQuantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
         }
 
-        order.setTotalAmount(totalAmount);
+        order.setTotalAmount(calculateTotalAmount(orderItems));
+
+        // 5. 在庫を引き当てる（不足があれば例外でトランザクション全体をロールバック）
+        inventoryService.reserve(reservedQuantities);
 
-        // 6. OrderとOrderItemを保存
-        Order savedOrder = orderRepository.save(order); // Orderを保存するとOrderItemもcascadeで保存される
+        // 6. Orderを保存し、OrderItemはJDBCバッチでまとめて保存
+        Order savedOrder = orderRepository.save(order);
+        orderItemRepository.batchInsert(savedOrder.getId(), orderItems);
 
-        // 7. カートをクリア
-        cartRepository.delete(cart);
+        // 7. 決済・注文確認の通知を依頼する（注文と同じトランザクションで書き込み、コミット後にバックグラウンドで処理される）
+        outboxService.enqueue(OutboxService.ORDER_PLACED, savedOrder.getId(), Map.of(
+                "orderId", savedOrder.getId(),
+                "userId", userId,
+                "totalAmount", savedOrder.getTotalAmount()));
 
-        return savedOrder;
+        // 8. カートをクリア（明細・カートともに一括DELETE）
+        cartItemRepository.deleteAllByCartId(cart.getId());
+        cartRepository.deleteCartById(cart.getId());
+
+        // 9. JDBCで保存した明細を含めて注文を読み直す
+        // （detachだけでは空の明細コレクションが永続化コンテキストに残るため、コンテキストごとクリアする）
+        entityManager.flush();
+        entityManager.clear();
+        return orderRepository.findWithItemsById(savedOrder.getId())
+                .map(this::convertToDetailDto)
+                .orElseThrow(() -> new IllegalStateException("Order not found after creation: " + savedOrder.getId()));
     }
 
     /**
-     * 特定のユーザーの注文履歴を取得します。
+     * 注文明細の合計金額（単価 × 数量の総和）を計算します。
+     * カートの合計金額と同じく {@link PricingEngine} で最小単位のまま積算し、最後に1回だけ BigDecimal にします。
+     * JMHベンチマーク (src/jmh/java) から呼び出すためパッケージプライベート。
+     * @param orderItems 注文明細
+     * @return 合計金額（小数2桁）
+     */
+    static BigDecimal calculateTotalAmount(List<OrderItem> orderItems) {
+        long totalAmount = 0;
+        for (OrderItem item : orderItems) {
+            totalAmount = PricingEngine.addLine(totalAmount, item.getItemPrice(), item.getQuantity());
+        }
+        return PricingEngine.toAmount(totalAmount);
+    }
+
+    /**
+     * 特定のユーザーの注文履歴を新しい順にページ単位で取得します。
      * @param userId ユーザーID
-     * @return ユーザーの注文リスト
+     * @param cursor 前ページのレスポンスで返されたカーソル (先頭ページの場合は null)
+     * @param size 1ページあたりの件数 (1〜{@value #MAX_PAGE_SIZE} に丸める)
+     * @return 注文サマリーのリストと次ページ用カーソル
+     * @throws ResourceNotFoundException ユーザーが見つからない場合
+     * @throws IllegalArgumentException カーソルが不正な場合
      */
     @Transactional(readOnly = true) // 読み取り専用トランザクション
-    public List<Order> getOrdersByUserId(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
-        return orderRepository.findByUser(user);
+    public OrderSummaryPageDto getOrderHistory(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Long afterId = cursor == null ? null : Long.valueOf(PageCursor.decode(cursor, ORDER_CURSOR, 1)[0]);
+
+        // 次ページの有無を判定するため1件多く取得する
+        List<OrderSummaryDto> summaries = orderRepository.findSummariesByUserId(userId, afterId, Limit.of(pageSize + 1));
+        // 注文が1件もない場合のみ、ユーザーの存在を確認する
+        if (summaries.isEmpty() && !userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found with ID: " + userId);
+        }
+
+        String nextCursor = null;
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            nextCursor = PageCursor.encode(ORDER_CURSOR, summaries.get(pageSize - 1).getId().toString());
+        }
+        return new OrderSummaryPageDto(summaries, nextCursor);
     }
 
     /**
-     * 特定の注文の詳細を取得します。
+     * 特定の注文の詳細を明細込みで取得します（明細は1クエリでまとめて取得）。
      * @param orderId 注文ID
-     * @return 注文 (Orderエンティティ)
+     * @return 注文詳細DTO
      */
     @Transactional(readOnly = true)
-    public Optional<Order> getOrderById(Long orderId) {
-        return orderRepository.findById(orderId);
+    public Optional<OrderDetailDto> getOrderById(Long orderId) {
+        return orderRepository.findWithItemsById(orderId)
+                .map(this::convertToDetailDto);
+    }
+
+    private OrderDetailDto convertToDetailDto(Order order) {
+        OrderDetailDto dto = new OrderDetailDto();
+        dto.setId(order.getId());
+        dto.setUserId(order.getUser().getId()); // プロキシからIDを取得するだけなのでSELECTは発生しない
+        dto.setOrderDate(order.getOrderDate());
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setShippingAddress(order.getShippingAddress());
+        dto.setPaymentStatus(order.getPaymentStatus());
+        dto.setOrderStatus(order.getOrderStatus());
+        dto.setItems(order.getOrderItems().stream()
+                .sorted(Comparator.comparing(OrderItem::getId))
+                .map(item -> {
+                    OrderItemDTO itemDto = new OrderItemDTO();
+                    itemDto.setId(item.getId());
+                    itemDto.setProductId(item.getProductId());
+                    itemDto.setProductName(item.getProductName());
+                    itemDto.setItemPrice(item.getItemPrice());
+                    itemDto.setQuantity(item.getQuantity());
+                    return itemDto;
+                })
+                .collect(Collectors.toList()));
+        return dto;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,198 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.OutboxEvent;
+import com.example.my_test_app.model.OutboxEvent.Status;
+import com.example.my_test_app.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * アウトボックスのイベントをバックグラウンドで処理するディスパッチャー。
+ * poll-interval ごとに処理時刻に達したイベントを batch-size 件ずつ確保し、イベントの種類に対応する
+ * {@link OutboxEventHandler} を同時に最大 concurrency 件まで実行する。
+ * 失敗したイベントは retry-backoff から倍々に間隔を空けて再試行し、max-attempts 回失敗したら FAILED にする。
+ * イベントの確保は確保用トークンを書き込む条件付きUPDATEで行うため、複数インスタンスで動かしても
+ * 同じイベントを同時に処理しない（確保期限 lease を過ぎたイベントは再び処理対象になる）。
+ * 同じ業務データのイベント間の処理順は保証しないため、順序が必要な処理はハンドラーから次のイベントを書き込んでつなぐこと。
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final int MAX_BATCHES_PER_RUN = 10; // 1回の実行で処理するバッチ数の上限 (他の定期処理を待たせすぎない)
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Map<String, OutboxEventHandler> handlers;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor taskExecutor;
+    private final Semaphore permits; // 同時に処理するイベント数の上限
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration lease;
+    private final Duration retention;
+    private final Counter processed;
+    private final Counter retried;
+    private final Counter failed;
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<OutboxEventHandler> handlers,
+                            PlatformTransactionManager transactionManager,
+                            // 仮想スレッドモードでは仮想スレッドで動作する、Spring Boot自動構成のExecutorを使う
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor taskExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.outbox.batch-size:100}") int batchSize,
+                            @Value("${app.outbox.concurrency:4}") int concurrency,
+                            @Value("${app.outbox.max-attempts:8}") int maxAttempts,
+                            @Value("${app.outbox.retry-backoff:1s}") Duration retryBackoff,
+                            @Value("${app.outbox.lease:5m}") Duration lease,
+                            @Value("${app.outbox.retention:7d}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.handlers = handlers.stream()
+                .collect(Collectors.toMap(OutboxEventHandler::eventType, Function.identity(), (first, second) -> {
+                    throw new IllegalStateException("Duplicate outbox handlers for event type: " + first.eventType());
+                }));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.permits = new Semaphore(concurrency);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.lease = lease;
+        this.retention = retention;
+        this.processed = outcomeCounter(meterRegistry, "processed");
+        this.retried = outcomeCounter(meterRegistry, "retried");
+        this.failed = outcomeCounter(meterRegistry, "failed");
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("app.outbox.events")
+                .description("Number of outbox events handled, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 処理時刻に達したイベントを処理します（未処理が残っている間はバッチを繰り返す）。
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:500ms}",
+            initialDelayString = "${app.outbox.poll-interval:500ms}")
+    public void dispatch() {
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            if (dispatchBatch() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 保存期間 (retention) を過ぎた処理済みイベントを削除します。
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval:1h}",
+            initialDelayString = "${app.outbox.cleanup-interval:1h}")
+    @Transactional
+    public void purgeProcessed() {
+        int deleted = outboxEventRepository.deleteProcessedBefore(Status.DONE, Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} processed outbox events", deleted);
+        }
+    }
+
+    // 1バッチ分のイベントを確保して処理する。戻り値: 確保したイベント数
+    private int dispatchBatch() {
+        List<OutboxEvent> events = claim();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            permits.acquireUninterruptibly();
+            try {
+                futures.add(CompletableFuture.runAsync(() -> process(event), taskExecutor)
+                        .whenComplete((result, error) -> permits.release()));
+            } catch (RuntimeException e) {
+                permits.release(); // Executorが受け付けなかった場合 (確保期限が過ぎた後に再び処理される)
+                log.warn("Failed to submit outbox event {}: {}", event.getId(), e.toString());
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        return events.size();
+    }
+
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<Long> ids = outboxEventRepository.findDueIds(Status.PENDING, now, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            String token = UUID.randomUUID().toString();
+            outboxEventRepository.claim(ids, Status.PENDING, now, token, now.plus(lease));
+            return outboxEventRepository.findByClaimTokenOrderById(token);
+        });
+    }
+
+    private void process(OutboxEvent event) {
+        try {
+            OutboxEventHandler handler = handlers.get(event.getEventType());
+            if (handler == null) {
+                throw new IllegalStateException("No outbox handler for event type: " + event.getEventType());
+            }
+            handler.handle(event);
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.complete(
+                    event.getId(), event.getClaimToken(), Status.DONE, Instant.now()));
+            processed.increment();
+        } catch (RuntimeException e) {
+            recordFailure(event, e);
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, RuntimeException error) {
+        int attempts = event.getAttempts() + 1;
+        boolean giveUp = attempts >= maxAttempts;
+        Instant nextAttemptAt = Instant.now().plus(backoff(attempts));
+        String message = error.toString();
+        String lastError = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.fail(event.getId(), event.getClaimToken(),
+                giveUp ? Status.FAILED : Status.PENDING, nextAttemptAt, lastError));
+        if (giveUp) {
+            failed.increment();
+            log.error("Outbox event {} ({}) failed {} times; giving up: {}", event.getId(), event.getEventType(), attempts, message);
+        } else {
+            retried.increment();
+            log.warn("Outbox event {} ({}) failed (attempt {}); retrying at {}: {}",
+                    event.getId(), event.getEventType(), attempts, nextAttemptAt, message);
+        }
+    }
+
+    // retry-backoff × 2^(試行回数 - 1)、上限 MAX_BACKOFF
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+}
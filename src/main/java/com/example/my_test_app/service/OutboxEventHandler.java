@@ -0,0 +1,24 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.OutboxEvent;
+
+/**
+ * アウトボックスのイベントを処理するハンドラー。Beanとして登録すると {@link OutboxDispatcher} が
+ * {@link #eventType()} の一致するイベントを渡す。
+ * 処理はトランザクションの外で呼ばれ、完了の記録は処理の後に別途行うため、同じイベントが
+ * 複数回渡されることがある（at-least-once）。ハンドラーは冪等に実装すること。
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * @return 処理するイベントの種類
+     */
+    String eventType();
+
+    /**
+     * イベントを処理します。例外を投げた場合は再試行されます。
+     *
+     * @param event イベント
+     */
+    void handle(OutboxEvent event);
+}
@@ -0,0 +1,47 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.OutboxEvent;
+import com.example.my_test_app.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 後続処理の依頼をアウトボックス (outbox_events) に書き込むサービス。
+ * 業務データの更新と同じトランザクションで呼ぶことで、コミットされた更新に対してだけ後続処理が行われる。
+ */
+@Service
+public class OutboxService {
+
+    // イベントの種類
+    public static final String ORDER_PLACED = "ORDER_PLACED"; // 注文確定 -> 決済
+    public static final String ORDER_PAID = "ORDER_PAID";     // 決済完了 -> 注文確認の通知
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * イベントを書き込みます。呼び出し元のトランザクション内でのみ呼べます。
+     *
+     * @param eventType イベントの種類
+     * @param aggregateId 対象の業務データのID
+     * @param payload イベントの内容 (JSONに変換して保存する)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String eventType, Long aggregateId, Object payload) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(eventType, aggregateId, objectMapper.writeValueAsString(payload)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload cannot be serialized: " + e.getOriginalMessage(), e);
+        }
+    }
+}
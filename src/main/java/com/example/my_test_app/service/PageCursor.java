@@ -0,0 +1,42 @@
+package com.example.my_test_app.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * キーセット方式のページングで使うカーソルの変換処理。
+ * カーソルは「種別:キー値...」をBase64URLでエンコードした文字列。
+ * クライアントには中身を意識させず、そのまま次のリクエストに渡してもらう。
+ */
+final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    static String encode(String kind, String... values) {
+        String raw = kind + ":" + String.join(":", values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor クライアントから渡されたカーソル
+     * @param expectedKind 期待するカーソルの種別
+     * @param expectedValues 期待するキー値の数
+     * @return キー値の配列
+     * @throws IllegalArgumentException カーソルが不正な場合
+     */
+    static String[] decode(String cursor, String expectedKind, int expectedValues) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("カーソルが不正です: " + cursor, e);
+        }
+        String[] parts = raw.split(":");
+        if (parts.length != expectedValues + 1 || !parts[0].equals(expectedKind)) {
+            throw new IllegalArgumentException("カーソルが不正です: " + cursor);
+        }
+        return Arrays.copyOfRange(parts, 1, parts.length);
+    }
+}
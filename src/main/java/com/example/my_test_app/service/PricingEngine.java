@@ -0,0 +1,63 @@
+package com.example.my_test_app.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * カート・注文の合計金額の計算。
+ * 金額は最小単位（DECIMAL(10, 2) の小数2桁を整数にした値）の long で積算するため、
+ * double のような誤差がなく、明細ごとに BigDecimal を生成することもない。
+ * カートの合計 (CartDto.totalPrice) と注文の合計 (Order.totalAmount) は必ずこのクラスで計算し、同じ値にする。
+ */
+final class PricingEngine {
+
+    /** 金額の小数桁数（products.price / orders.total_amount の DECIMAL(10, 2) に合わせる） */
+    static final int SCALE = 2;
+
+    private PricingEngine() {
+    }
+
+    /**
+     * 単価 × 数量を合計に加えます。
+     *
+     * @param total これまでの合計（最小単位）
+     * @param unitPrice 単価（小数3桁以上の場合は {@link #toMinorUnits(BigDecimal)} のとおり丸める）
+     * @param quantity 数量
+     * @return 加算後の合計（最小単位）
+     * @throws ArithmeticException 合計が long の範囲を超える場合
+     */
+    static long addLine(long total, BigDecimal unitPrice, int quantity) {
+        return Math.addExact(total, Math.multiplyExact(toMinorUnits(unitPrice), quantity));
+    }
+
+    /**
+     * @param unitPrice 単価
+     * @param quantity 数量（負の場合は差し引く金額として負の値を返す）
+     * @return 単価 × 数量（小数2桁）
+     */
+    static BigDecimal lineAmount(BigDecimal unitPrice, int quantity) {
+        return toAmount(addLine(0, unitPrice, quantity));
+    }
+
+    /**
+     * 金額を最小単位に変換します。小数3桁以上の端数は銀行型丸め (HALF_EVEN) で丸めます。
+     *
+     * @param amount 金額
+     * @return 最小単位の金額
+     * @throws ArithmeticException 金額が long の範囲を超える場合
+     */
+    static long toMinorUnits(BigDecimal amount) {
+        if (amount.scale() > SCALE) {
+            amount = amount.setScale(SCALE, RoundingMode.HALF_EVEN);
+        }
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * @param minorUnits 最小単位の金額
+     * @return 小数2桁の金額
+     */
+    static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductDto;
+
+/**
+ * 商品の作成・更新・削除時に {@link ProductService} が発行するイベント。
+ * 受け取る側はトランザクションのコミット後に処理すること（@TransactionalEventListener）。
+ *
+ * @param productId 商品ID
+ * @param product 変更後の商品。削除された場合は null
+ */
+public record ProductChangedEvent(Long productId, ProductDto product) {
+
+    public static ProductChangedEvent saved(ProductDto product) {
+        return new ProductChangedEvent(product.getId(), product);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
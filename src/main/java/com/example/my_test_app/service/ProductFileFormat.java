@@ -0,0 +1,51 @@
+package com.example.my_test_app.service;
+
+import org.springframework.http.MediaType;
+
+import java.util.Optional;
+
+/**
+ * 商品データの一括インポート・エクスポートのファイル形式。
+ */
+public enum ProductFileFormat {
+
+    // 1行目がヘッダー (id,name,description,price,type,imageUrl) のCSV。列の順序は問わない
+    CSV(new MediaType("text", "csv"), "csv"),
+    // 1行に1商品のJSONオブジェクト (改行区切りJSON)
+    NDJSON(new MediaType("application", "x-ndjson"), "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductFileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Content-Type からファイル形式を判定します (charset などのパラメータは無視する)。
+     *
+     * @param contentType リクエストの Content-Type
+     * @return 対応する形式。対応していない場合は空
+     */
+    public static Optional<ProductFileFormat> fromContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        MediaType requested = MediaType.parseMediaType(contentType);
+        for (ProductFileFormat format : values()) {
+            if (format.mediaType.equalsTypeAndSubtype(requested)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
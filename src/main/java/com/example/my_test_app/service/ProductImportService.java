@@ -0,0 +1,395 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.config.CacheConfig;
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.dto.ProductImportResultDto;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.ProductType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 商品データの一括インポート・エクスポート。
+ * インポートは入力を1行ずつ解析・検証し、batch-size 件ごとにJDBCバッチで書き込んでコミットするため、
+ * ファイルの大きさによらずメモリ使用量は一定。エクスポートは前方向のみのカーソルで読み出した行を
+ * そのまま出力ストリームに書き出す（全件をListに読み込まない）。
+ * JPA (ProductService) を経由しないため、完了後 (途中で中断した場合も) にキャッシュを破棄し {@link ProductsImportedEvent} を発行する。
+ * イベントの処理 (検索索引・サジェストの作り直し、カートの集計値の修復) は全商品・全カートを読むため、
+ * 取り込みのリクエストを待たせないよう別スレッドで行う。
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100; // 結果に含めるエラー内容の最大件数
+    private static final int EXPORT_FLUSH_INTERVAL = 1000; // エクスポート時にクライアントへ送り出す間隔 (行数)
+
+    // 一括登録・更新のSQL (バージョンと更新日時はJPAでの更新と同じ規則で設定する)
+    private static final String INSERT_SQL = "INSERT INTO products (name, description, price, type, image_url, version, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, 0, ?)";
+    private static final String UPDATE_SQL = "UPDATE products SET name = ?, description = ?, price = ?, type = ?, image_url = ?, "
+            + "version = version + 1, updated_at = ? WHERE id = ?";
+    private static final String EXPORT_SQL = "SELECT id, name, description, price, type, image_url FROM products ORDER BY id";
+
+    // CSVの列 (エクスポートの列順。インポートはヘッダーの列名で対応付ける)
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("name")
+            .addColumn("description")
+            .addColumn("price")
+            .addColumn("type")
+            .addColumn("imageUrl")
+            .setUseHeader(true)
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final ApplicationEventPublisher eventPublisher;
+    private final AsyncTaskExecutor taskExecutor;
+    private final CacheManager cacheManager;
+    private final int batchSize;
+    private final int exportFetchSize;
+
+    // 検証済みの1行分 (id が null なら新規登録)
+    private record ImportRow(long lineNumber, Long id, Product product) {
+    }
+
+    // 取り込み中の集計 (エラー内容は先頭から一定件数だけ保持する)
+    private static final class ImportProgress {
+        long created;
+        long updated;
+        long failed;
+        final List<String> errors = new ArrayList<>();
+
+        void fail(long lineNumber, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(lineNumber + "行目: " + message);
+            }
+        }
+    }
+
+    @Autowired
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor taskExecutor,
+                                CacheManager cacheManager,
+                                @Value("${app.import.batch-size:1000}") int batchSize,
+                                @Value("${app.export.fetch-size:1000}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
+        this.cacheManager = cacheManager;
+        this.batchSize = batchSize;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    /**
+     * 商品データを一括で取り込みます。id 列に値がある行は既存商品の更新、ない行は新規登録になります。
+     * 検証エラーの行は読み飛ばして残りを取り込みます。書き込みは batch-size 件ごとにコミットするため、
+     * 入力の形式が壊れていて途中で中断した場合も、それまでの行は取り込まれたままになります。
+     *
+     * @param input 入力ストリーム (UTF-8)
+     * @param format ファイル形式
+     * @return 取り込み結果
+     * @throws UncheckedIOException 入力の読み込みに失敗した場合、またはCSVの形式が壊れている場合
+     */
+    public ProductImportResultDto importProducts(InputStream input, ProductFileFormat format) {
+        ImportProgress progress = new ImportProgress();
+        List<ImportRow> chunk = new ArrayList<>(batchSize);
+        long started = System.nanoTime();
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            if (format == ProductFileFormat.CSV) {
+                readCsv(reader, chunk, progress);
+            } else {
+                readNdjson(reader, chunk, progress);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("商品データの読み込みに失敗しました: " + e.getMessage(), e);
+        } finally {
+            try {
+                writeChunk(chunk, progress); // 読み込みが中断した場合も、検証済みの行は書き込む
+            } finally {
+                // 途中で失敗しても書き込み済みのチャンクはコミットされているため、成否によらず破棄する
+                // (@CacheEvict は例外で終了した場合に破棄しない)
+                evictCaches();
+            }
+            if (progress.created + progress.updated > 0) {
+                publishImported(new ProductsImportedEvent(progress.created, progress.updated));
+            }
+            log.info("Product import finished in {} ms: created={}, updated={}, failed={}",
+                    (System.nanoTime() - started) / 1_000_000, progress.created, progress.updated, progress.failed);
+        }
+        return new ProductImportResultDto(progress.created, progress.updated, progress.failed, progress.errors);
+    }
+
+    // 取り込みはコミット済みのため、イベントの処理は別スレッドで行い結果をすぐに返す
+    private void publishImported(ProductsImportedEvent event) {
+        taskExecutor.execute(() -> {
+            try {
+                eventPublisher.publishEvent(event);
+            } catch (RuntimeException e) {
+                log.warn("Failed to process imported products: {}", e.toString());
+            }
+        });
+    }
+
+    /**
+     * 全商品をID順に出力ストリームへ書き出します。
+     *
+     * @param output 出力ストリーム
+     * @param format ファイル形式
+     * @throws UncheckedIOException 書き込みに失敗した場合 (クライアントの切断など)
+     */
+    public void exportProducts(OutputStream output, ProductFileFormat format) {
+        ObjectWriter writer = format == ProductFileFormat.CSV
+                ? csvMapper.writer(CSV_SCHEMA)
+                : objectMapper.writer().withRootValueSeparator("\n");
+        try (SequenceWriter sequence = writer.writeValues(output)) {
+            long[] rows = {0};
+            jdbcTemplate.query(connection -> {
+                // MySQLでは fetch-size に Integer.MIN_VALUE を指定すると、結果を1行ずつ受け取るストリーミングになる
+                PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(exportFetchSize);
+                return statement;
+            }, (ResultSet rs) -> {
+                try {
+                    sequence.write(new ProductDto(rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                            rs.getBigDecimal("price"), ProductType.valueOf(rs.getString("type")), rs.getString("image_url")));
+                    if (++rows[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                        sequence.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (format == ProductFileFormat.NDJSON && rows[0] > 0) {
+                sequence.flush();
+                output.write('\n'); // 区切り文字は行と行の間にしか出力されないため、最終行の改行を補う
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("商品データの書き出しに失敗しました: " + e.getMessage(), e);
+        }
+    }
+
+    // ========== 読み込み ==========
+
+    private void readCsv(Reader reader, List<ImportRow> chunk, ImportProgress progress) throws IOException {
+        // 値は全て文字列として読み、型変換は toRow で行う (1行の型エラーで全体が止まらないように)
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(reader)) {
+            long lineNumber = 1; // 1行目はヘッダー。引用符内の改行は数えない (レコード単位)
+            while (rows.hasNextValue()) {
+                lineNumber++;
+                accept(lineNumber, rows.nextValue(), chunk, progress);
+            }
+        }
+    }
+
+    private void readNdjson(Reader reader, List<ImportRow> chunk, ImportProgress progress) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, Object> values;
+            try {
+                values = objectMapper.readValue(line, new TypeReference<>() {});
+            } catch (JsonProcessingException e) {
+                progress.fail(lineNumber, "JSONとして解析できません: " + e.getOriginalMessage());
+                continue;
+            }
+            Map<String, String> row = new HashMap<>();
+            values.forEach((key, value) -> row.put(key, value == null ? null : value.toString()));
+            accept(lineNumber, row, chunk, progress);
+        }
+    }
+
+    // 1行分の値を検証してチャンクに追加し、batch-size 件に達したら書き込む
+    private void accept(long lineNumber, Map<String, String> values, List<ImportRow> chunk, ImportProgress progress) {
+        try {
+            chunk.add(toRow(lineNumber, values));
+        } catch (IllegalArgumentException e) {
+            progress.fail(lineNumber, e.getMessage());
+            return;
+        }
+        if (chunk.size() >= batchSize) {
+            writeChunk(chunk, progress);
+        }
+    }
+
+    /**
+     * 1行分の値を検証して ImportRow に変換します。
+     * @throws IllegalArgumentException 値が不正な場合 (メッセージはエラー内容)
+     */
+    private ImportRow toRow(long lineNumber, Map<String, String> values) {
+        Long id = null;
+        String idValue = blankToNull(values.get("id"));
+        if (idValue != null) {
+            try {
+                id = Long.valueOf(idValue);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("id が数値ではありません: " + idValue);
+            }
+        }
+
+        Product product = new Product();
+        product.setName(values.get("name"));
+        product.setDescription(values.get("description"));
+        product.setImageUrl(blankToNull(values.get("imageUrl")));
+        String price = blankToNull(values.get("price"));
+        if (price != null) {
+            try {
+                product.setPrice(new BigDecimal(price));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("price が数値ではありません: " + price);
+            }
+        }
+        String type = blankToNull(values.get("type"));
+        if (type != null) {
+            try {
+                product.setType(ProductType.valueOf(type.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("type は ONE_TIME または SUBSCRIPTION を指定してください: " + type);
+            }
+        }
+
+        // Productエンティティの制約 (必須・文字数・最小値) で検証する
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        if (product.getPrice().scale() > 2 || product.getPrice().precision() - product.getPrice().scale() > 8) {
+            throw new IllegalArgumentException("price は整数部8桁・小数部2桁以内で指定してください: " + price); // DECIMAL(10, 2)
+        }
+        if (product.getImageUrl() != null && product.getImageUrl().length() > 500) {
+            throw new IllegalArgumentException("imageUrl は500文字以内で指定してください。");
+        }
+        return new ImportRow(lineNumber, id, product);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // ========== 書き込み ==========
+
+    // チャンクを1トランザクションで書き込み、チャンクを空にする
+    private void writeChunk(List<ImportRow> chunk, ImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ImportRow> inserts = chunk.stream().filter(row -> row.id() == null).toList();
+        List<ImportRow> updates = chunk.stream().filter(row -> row.id() != null).toList();
+        Timestamp now = Timestamp.from(Instant.now());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (statement, row) -> {
+                    bindProduct(statement, row.product());
+                    statement.setTimestamp(6, now);
+                });
+                progress.created += inserts.size();
+            }
+            if (!updates.isEmpty()) {
+                int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (statement, row) -> {
+                    bindProduct(statement, row.product());
+                    statement.setTimestamp(6, now);
+                    statement.setLong(7, row.id());
+                });
+                for (int i = 0; i < updates.size(); i++) {
+                    if (counts[0][i] == 0) {
+                        progress.fail(updates.get(i).lineNumber(), "id に該当する商品がありません: " + updates.get(i).id());
+                    } else {
+                        progress.updated++;
+                    }
+                }
+            }
+        });
+        chunk.clear();
+    }
+
+    private void evictCaches() {
+        for (String name : List.of(CacheConfig.PRODUCTS_CACHE, CacheConfig.PRODUCT_PAGES_CACHE)) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private static void bindProduct(PreparedStatement statement, Product product) throws SQLException {
+        statement.setString(1, product.getName());
+        statement.setString(2, product.getDescription());
+        statement.setBigDecimal(3, product.getPrice());
+        statement.setString(4, product.getType().name());
+        if (product.getImageUrl() == null) {
+            statement.setNull(5, Types.VARCHAR);
+        } else {
+            statement.setString(5, product.getImageUrl());
+        }
+    }
+}
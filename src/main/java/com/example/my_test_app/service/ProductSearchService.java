@@ -0,0 +1,269 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品名・商品説明に対するメモリ上の全文検索。
+ * {@link NGramTokenizer} で生成したN-gramの転置索引を持ち、BM25でスコア付けする（商品名の一致を重く評価）。
+ * 起動時に全商品から索引を作成し、以降は {@link ProductService} が発行する {@link ProductChangedEvent} を
+ * コミット後に受け取って差分更新する。ProductServiceを経由せずにDBを直接更新した場合は {@link #rebuild()} を呼ぶこと。
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    public static final int MAX_RESULTS = 100; // 1回の検索で返す最大件数
+
+    // BM25のパラメータ
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // フィールドごとの重み (商品名での一致を商品説明での一致より重視する)
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    private final ProductRepository productRepository;
+    private final ProductService productService; // エンティティからDTOへの変換に使用
+
+    // 索引の更新は排他、検索は並行して行う
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 再構築どうしを直列化する（差分更新は待たせない）
+    private final Lock rebuildLock = new ReentrantLock();
+    // 再構築中に届いた変更（書き込みロック内で追加する）。再構築で読み込んだ商品に反映済みかどうか分からないため、
+    // 索引を作り直した後に順に適用し直す。再構築中でなければ null
+    private List<ProductChangedEvent> changesDuringRebuild;
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private final Field name = new Field();
+    private final Field description = new Field();
+
+    // 索引済みの商品 (削除時にポスティングから取り除くため、トークンの出現回数も保持する)
+    private record IndexedProduct(ProductDto product, Map<String, Integer> nameTerms, Map<String, Integer> descriptionTerms) {
+    }
+
+    // 1フィールド分の転置索引 (トークン -> 商品ID -> 出現回数)
+    private static final class Field {
+        final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+        final Map<Long, Integer> lengths = new HashMap<>();
+        long totalLength;
+
+        void add(Long productId, Map<String, Integer> terms, int length) {
+            terms.forEach((term, count) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(productId, count));
+            lengths.put(productId, length);
+            totalLength += length;
+        }
+
+        void remove(Long productId, Map<String, Integer> terms) {
+            for (String term : terms.keySet()) {
+                Map<Long, Integer> posting = postings.get(term);
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            Integer length = lengths.remove(productId);
+            totalLength -= length == null ? 0 : length;
+        }
+
+        void clear() {
+            postings.clear();
+            lengths.clear();
+            totalLength = 0;
+        }
+
+        Map<Long, Integer> posting(String term) {
+            return postings.getOrDefault(term, Collections.emptyMap());
+        }
+
+        double score(Long productId, String term, int documentCount) {
+            Integer tf = posting(term).get(productId);
+            if (tf == null) {
+                return 0;
+            }
+            int df = posting(term).size();
+            double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            double averageLength = (double) totalLength / documentCount;
+            double normalizedLength = averageLength == 0 ? 1 : lengths.get(productId) / averageLength;
+            return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * normalizedLength));
+        }
+    }
+
+    @Autowired
+    public ProductSearchService(ProductRepository productRepository, ProductService productService) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+    }
+
+    /**
+     * キーワードに一致する商品を関連度の高い順に検索します。
+     * キーワードの全てのN-gramを商品名または商品説明に含む商品が対象です（空白区切りの複数語はAND検索）。
+     *
+     * @param query 検索キーワード
+     * @param limit 最大件数 (1〜{@value #MAX_RESULTS} に丸める)
+     * @return 一致した商品のリスト
+     */
+    @Timed(value = "app.product.search", histogram = true)
+    public List<ProductDto> search(String query, int limit) {
+        Set<String> terms = NGramTokenizer.queryTerms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        int maxResults = Math.max(1, Math.min(limit, MAX_RESULTS));
+
+        lock.readLock().lock();
+        try {
+            // 出現する商品が最も少ないトークンから候補を絞り込む
+            List<String> ordered = new ArrayList<>(terms);
+            ordered.sort(Comparator.comparingInt(term -> name.posting(term).size() + description.posting(term).size()));
+
+            List<Map.Entry<Long, Double>> scored = new ArrayList<>();
+            String rarest = ordered.get(0);
+            Set<Long> candidates = new HashSet<>(name.posting(rarest).keySet());
+            candidates.addAll(description.posting(rarest).keySet());
+            for (Long productId : candidates) {
+                double score = 0;
+                boolean matchesAll = true;
+                for (String term : ordered) {
+                    double termScore = NAME_WEIGHT * name.score(productId, term, documents.size())
+                            + DESCRIPTION_WEIGHT * description.score(productId, term, documents.size());
+                    if (termScore == 0) {
+                        matchesAll = false;
+                        break;
+                    }
+                    score += termScore;
+                }
+                if (matchesAll) {
+                    scored.add(Map.entry(productId, score));
+                }
+            }
+
+            // スコアの降順、同点の場合はIDの昇順
+            return scored.stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(maxResults)
+                    .map(entry -> documents.get(entry.getKey()).product())
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 商品の変更を索引に反映します。商品を変更したトランザクションのコミット後に呼ばれます。
+     *
+     * @param event 商品変更イベント
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 全商品を読み込んで索引を作り直します。
+     * 読み込み中に差分更新された商品は、読み込んだ（古いかもしれない）内容で上書きせず、届いた変更を適用し直します。
+     */
+    @EventListener({ApplicationReadyEvent.class, ProductsImportedEvent.class})
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            recordChangesDuringRebuild(true);
+            List<ProductDto> products;
+            try {
+                products = productRepository.findAll().stream()
+                        .map(productService::convertToDto)
+                        .toList();
+            } catch (RuntimeException e) {
+                recordChangesDuringRebuild(false); // 索引は差分更新された状態のまま使い続ける
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                documents.clear();
+                name.clear();
+                description.clear();
+                products.forEach(this::addDocument);
+                changesDuringRebuild.forEach(this::apply);
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product search index built: {} products", products.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void recordChangesDuringRebuild(boolean record) {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = record ? new ArrayList<>() : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ProductChangedEvent event) {
+        removeDocument(event.productId());
+        if (!event.isDeleted()) {
+            addDocument(event.product());
+        }
+    }
+
+    private void addDocument(ProductDto product) {
+        List<String> nameTerms = NGramTokenizer.indexTerms(product.getName());
+        List<String> descriptionTerms = NGramTokenizer.indexTerms(product.getDescription());
+        IndexedProduct indexed = new IndexedProduct(product, countTerms(nameTerms), countTerms(descriptionTerms));
+        documents.put(product.getId(), indexed);
+        name.add(product.getId(), indexed.nameTerms(), nameTerms.size());
+        description.add(product.getId(), indexed.descriptionTerms(), descriptionTerms.size());
+    }
+
+    private void removeDocument(Long productId) {
+        IndexedProduct indexed = documents.remove(productId);
+        if (indexed != null) {
+            name.remove(productId, indexed.nameTerms());
+            description.remove(productId, indexed.descriptionTerms());
+        }
+    }
+
+    private static Map<String, Integer> countTerms(List<String> terms) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.merge(term, 1, Integer::sum);
+        }
+        return counts;
+    }
+}
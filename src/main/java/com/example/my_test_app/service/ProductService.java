@@ -1,13 +1,23 @@
 package com.example.my_test_app.service;
 
+import com.example.my_test_app.config.CacheConfig;
 import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.dto.ProductPageDto;
 import com.example.my_test_app.exceptions.ResourceNotFoundException; // ★ 追加
 import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.ProductType;
 import com.example.my_test_app.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -16,21 +26,30 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher; // 商品の変更を検索索引などに通知する
+
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_PRICE = "price";
+    private static final int MAX_PAGE_SIZE = 100; // 1ページあたりの最大件数
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // ========== DTO変換ヘルパーメソッド ==========
-    private ProductDto convertToDto(Product product) {
+    // JMHベンチマーク (src/jmh/java) から呼び出すためパッケージプライベート
+    ProductDto convertToDto(Product product) {
         return new ProductDto(
                 product.getId(),
                 product.getName(),
                 product.getDescription(),
                 product.getPrice(),
                 product.getType(),
-                product.getImageUrl()
+                product.getImageUrl(),
+                product.getVersion(),
+                product.getUpdatedAt()
         );
     }
 
@@ -48,13 +67,54 @@ public class ProductService {
     // ========== CRUD 操作 ==========
 
     /**
-     * 全ての商品を取得する
-     * @return 全ての商品DTOのリスト
+     * 商品一覧をキーセット方式でページ単位に取得する
+     * @param type 商品種別での絞り込み (null の場合は絞り込みなし)
+     * @param minPrice 最低価格 (null の場合は下限なし)
+     * @param maxPrice 最高価格 (null の場合は上限なし)
+     * @param sort 並び順 ("id" または "price")
+     * @param cursor 前ページのレスポンスで返されたカーソル (先頭ページの場合は null)
+     * @param size 1ページあたりの件数 (1〜{@value #MAX_PAGE_SIZE} に丸める)
+     * @return 商品DTOのリストと次ページ用カーソル
+     * @throws IllegalArgumentException 並び順やカーソルが不正な場合
      */
-    public List<ProductDto> getAllProducts() {
-        return productRepository.findAll().stream()
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_PAGES_CACHE)
+    public ProductPageDto getProductPage(ProductType type, BigDecimal minPrice, BigDecimal maxPrice,
+                                         String sort, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // 次ページの有無を判定するため1件多く取得する
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Product> products;
+        if (SORT_BY_ID.equals(sort)) {
+            Long afterId = cursor == null ? null : Long.valueOf(PageCursor.decode(cursor, SORT_BY_ID, 1)[0]);
+            products = productRepository.findPageOrderById(type, minPrice, maxPrice, afterId, limit);
+        } else if (SORT_BY_PRICE.equals(sort)) {
+            BigDecimal afterPrice = null;
+            Long afterId = null;
+            if (cursor != null) {
+                String[] values = PageCursor.decode(cursor, SORT_BY_PRICE, 2);
+                afterPrice = new BigDecimal(values[0]);
+                afterId = Long.valueOf(values[1]);
+            }
+            products = productRepository.findPageOrderByPrice(type, minPrice, maxPrice, afterPrice, afterId, limit);
+        } else {
+            throw new IllegalArgumentException("並び順は id または price を指定してください: " + sort);
+        }
+
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            Product last = products.get(pageSize - 1);
+            nextCursor = SORT_BY_ID.equals(sort)
+                    ? PageCursor.encode(SORT_BY_ID, last.getId().toString())
+                    : PageCursor.encode(SORT_BY_PRICE, last.getPrice().toPlainString(), last.getId().toString());
+        }
+
+        List<ProductDto> items = products.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        return new ProductPageDto(items, nextCursor);
     }
 
     /**
@@ -62,6 +122,7 @@ public class ProductService {
      * @param id 商品ID
      * @return 該当する商品DTO (Optional)
      */
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public Optional<ProductDto> getProductById(Long id) {
         return productRepository.findById(id)
                 .map(this::convertToDto);
@@ -73,10 +134,15 @@ public class ProductService {
      * @return 作成された商品DTO
      */
     @Transactional
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.PRODUCTS_CACHE, key = "#result.id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGES_CACHE, allEntries = true))
     public ProductDto createProduct(ProductDto productDto) {
         Product product = convertToEntity(productDto);
         Product savedProduct = productRepository.save(product);
-        return convertToDto(savedProduct);
+        ProductDto created = convertToDto(savedProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(created));
+        return created;
     }
 
     /**
@@ -87,6 +153,9 @@ public class ProductService {
      * @throws ResourceNotFoundException 指定されたIDの商品が見つからない場合
      */
     @Transactional
+    @Caching(
+            put = @CachePut(cacheNames = CacheConfig.PRODUCTS_CACHE, key = "#id"),
+            evict = @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGES_CACHE, allEntries = true))
     public ProductDto updateProduct(Long id, ProductDto productDto) { // ★ 戻り値を Optional<ProductDto> から ProductDto に変更
         return productRepository.findById(id)
                 .map(existingProduct -> {
@@ -95,8 +164,11 @@ public class ProductService {
                     existingProduct.setPrice(productDto.getPrice());
                     existingProduct.setType(productDto.getType());
                     existingProduct.setImageUrl(productDto.getImageUrl());
-                    Product updatedProduct = productRepository.save(existingProduct);
-                    return convertToDto(updatedProduct);
+                    // フラッシュしてバージョンと更新日時を確定させる (キャッシュとETagに反映するため)
+                    Product updatedProduct = productRepository.saveAndFlush(existingProduct);
+                    ProductDto updated = convertToDto(updatedProduct);
+                    eventPublisher.publishEvent(ProductChangedEvent.saved(updated));
+                    return updated;
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("指定されたIDの商品が見つかりません: " + id)); // ★ 例外をスロー
     }
@@ -108,9 +180,13 @@ public class ProductService {
      * @throws ResourceNotFoundException 指定されたIDの商品が見つからない場合
      */
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUCTS_CACHE, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_PAGES_CACHE, allEntries = true)})
     public boolean deleteProduct(Long id) { // ★ 戻り値を boolean から boolean に変更なしだが、例外スローを追加
         if (productRepository.existsById(id)) {
             productRepository.deleteById(id);
+            eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
             return true;
         } else {
             throw new ResourceNotFoundException("指定されたIDの商品が見つかりません: " + id); // ★ 例外をスロー
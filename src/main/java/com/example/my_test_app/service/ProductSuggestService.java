@@ -0,0 +1,393 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductSuggestionDto;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.repository.OrderItemRepository;
+import com.example.my_test_app.repository.OrderItemRepository.ProductSalesView;
+import com.example.my_test_app.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * 商品名の入力補完（前方一致のサジェスト）。
+ * 商品名をトライ木に格納し、各ノードにその接頭辞で始まる商品の上位 {@value #MAX_SUGGESTIONS} 件を
+ * 人気順（order_items の累計注文数量）で保持しておくことで、キーストロークごとの問い合わせを
+ * 接頭辞の長さに比例する時間で返す（DBは参照しない）。
+ * 子ノードは HashMap ではなく、ソート済みの文字配列とノード配列で持ちメモリを節約する。
+ * 商品名の先頭に加えて、空白で区切られた各単語の先頭からも一致する。
+ *
+ * 起動時と一定間隔（app.suggest.popularity-refresh）で全体を作り直し、その間の商品の変更は
+ * {@link ProductChangedEvent} をコミット後に受け取って差分更新する。
+ */
+@Service
+public class ProductSuggestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestService.class);
+
+    public static final int MAX_SUGGESTIONS = 10; // 1回の問い合わせで返す最大件数 (各ノードに保持する件数)
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    // 検索は読み取りロック、トライ木の変更と差し替えは書き込みロックで行う
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 再構築どうしを直列化する（差分更新は待たせない）。synchronized と違い、DBの読み込み中も仮想スレッドを固定しない
+    private final Lock rebuildLock = new ReentrantLock();
+    private Trie trie = new Trie(Collections.emptyMap());
+    // 再構築中に届いた変更（書き込みロック内で追加する）。新しいトライ木に差し替える前に適用し直す。再構築中でなければ null
+    private List<ProductChangedEvent> changesDuringRebuild;
+
+    @Autowired
+    public ProductSuggestService(ProductRepository productRepository, OrderItemRepository orderItemRepository) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    /**
+     * 入力中のキーワードで始まる商品名を人気順に返します。
+     *
+     * @param prefix 入力中のキーワード
+     * @param limit 最大件数 (1〜{@value #MAX_SUGGESTIONS} に丸める)
+     * @return サジェスト候補のリスト（一致しない場合は空）
+     */
+    @Timed(value = "app.product.suggest", histogram = true)
+    public List<ProductSuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        int maxResults = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+
+        lock.readLock().lock();
+        try {
+            return trie.suggest(key, maxResults);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 商品の変更をトライ木に反映します。商品を変更したトランザクションのコミット後に呼ばれます。
+     *
+     * @param event 商品変更イベント
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(trie, event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 全商品と最新の人気順（累計注文数量）からトライ木を作り直します。
+     * 新しいトライ木はロックの外で作成し、差し替えだけを書き込みロック内で行うため、再構築中もサジェストと差分更新は止まらない。
+     * 作成中に届いた変更は、差し替えの直前に新しいトライ木へ適用し直す。
+     */
+    @EventListener({ApplicationReadyEvent.class, ProductsImportedEvent.class})
+    @Scheduled(fixedDelayString = "${app.suggest.popularity-refresh:10m}",
+            initialDelayString = "${app.suggest.popularity-refresh:10m}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            recordChangesDuringRebuild(true);
+            Trie rebuilt;
+            int productCount;
+            int productsWithSales;
+            try {
+                Map<Long, Long> popularity = orderItemRepository.sumQuantityGroupByProductId().stream()
+                        .collect(Collectors.toMap(ProductSalesView::getProductId, ProductSalesView::getQuantity));
+                List<Product> products = productRepository.findAll();
+
+                rebuilt = new Trie(popularity);
+                for (Product product : products) {
+                    rebuilt.insert(product.getId(), product.getName());
+                }
+                productCount = products.size();
+                productsWithSales = popularity.size();
+            } catch (RuntimeException e) {
+                recordChangesDuringRebuild(false); // 現在のトライ木を使い続ける
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild.forEach(event -> apply(rebuilt, event));
+                changesDuringRebuild = null;
+                trie = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product suggestion index built: {} products, {} with sales", productCount, productsWithSales);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void recordChangesDuringRebuild(boolean record) {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = record ? new ArrayList<>() : null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Trie target, ProductChangedEvent event) {
+        target.remove(event.productId());
+        if (!event.isDeleted()) {
+            target.insert(event.productId(), event.product().getName());
+        }
+    }
+
+    // NFKC正規化・小文字化し、連続する空白を1つにまとめる（先頭の空白は除く）
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return NGramTokenizer.normalize(text).replaceAll("\\s+", " ").stripLeading();
+    }
+
+    // ========== トライ木 ==========
+
+    private record Candidate(Long id, String name, long popularity) {
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final long[] NO_IDS = new long[0];
+
+        char[] keys = NO_KEYS;         // 子ノードへの遷移文字 (昇順)
+        Node[] children = NO_CHILDREN; // keys と同じ順序の子ノード
+        long[] top = NO_IDS;           // この接頭辞で始まる商品の上位 (人気順)
+        long[] terminals = NO_IDS;     // 商品名 (または単語の先頭からの残り) がこのノードで終わる商品
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrCreateChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            keys = insert(keys, insertAt, key);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertAt);
+            grown[insertAt] = child;
+            System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+            children = grown;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return;
+            }
+            char[] shrunkKeys = new char[keys.length - 1];
+            System.arraycopy(keys, 0, shrunkKeys, 0, index);
+            System.arraycopy(keys, index + 1, shrunkKeys, index, keys.length - index - 1);
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            keys = shrunkKeys;
+            children = shrunk;
+        }
+
+        boolean isEmpty() {
+            return terminals.length == 0 && children.length == 0;
+        }
+
+        private static char[] insert(char[] array, int index, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, index);
+            grown[index] = value;
+            System.arraycopy(array, index, grown, index + 1, array.length - index);
+            return grown;
+        }
+    }
+
+    // 削除時にたどったノードと、その親・遷移文字・深さ
+    private record PathEntry(Node parent, char key, Node node, int depth) {
+    }
+
+    private static final class Trie {
+        private final Node root = new Node();
+        private final Map<Long, Candidate> candidates = new HashMap<>();
+        private final Map<Long, Long> popularity;
+
+        Trie(Map<Long, Long> popularity) {
+            this.popularity = popularity;
+        }
+
+        // 人気 (累計注文数量) の降順、同数の場合はIDの昇順
+        private int compare(long a, long b) {
+            int byPopularity = Long.compare(candidates.get(b).popularity(), candidates.get(a).popularity());
+            return byPopularity != 0 ? byPopularity : Long.compare(a, b);
+        }
+
+        List<ProductSuggestionDto> suggest(String prefix, int limit) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            List<ProductSuggestionDto> results = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                Candidate candidate = candidates.get(node.top[i]);
+                results.add(new ProductSuggestionDto(candidate.id(), candidate.name()));
+            }
+            return results;
+        }
+
+        void insert(Long productId, String name) {
+            candidates.put(productId, new Candidate(productId, name, popularity.getOrDefault(productId, 0L)));
+            for (String key : keys(name)) {
+                Node node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.getOrCreateChild(key.charAt(i));
+                    offer(node, productId);
+                }
+                node.terminals = append(node.terminals, productId);
+            }
+        }
+
+        void remove(Long productId) {
+            Candidate candidate = candidates.get(productId);
+            if (candidate == null) {
+                return;
+            }
+            // 全てのキーの終端から商品を外してから、深いノードから順に上位リストを作り直す
+            // (子ノードの上位リストが確定してから親ノードを作り直す必要があるため)
+            Map<Node, PathEntry> visited = new IdentityHashMap<>();
+            for (String key : keys(candidate.name())) {
+                Node node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    Node child = node.child(key.charAt(i));
+                    visited.putIfAbsent(child, new PathEntry(node, key.charAt(i), child, i));
+                    node = child;
+                }
+                node.terminals = without(node.terminals, productId);
+            }
+            List<PathEntry> path = new ArrayList<>(visited.values());
+            path.sort(Comparator.comparingInt(PathEntry::depth).reversed());
+            for (PathEntry entry : path) {
+                Node node = entry.node();
+                if (node.isEmpty()) {
+                    entry.parent().removeChild(entry.key()); // 不要になったノードを削除
+                } else if (contains(node.top, productId)) {
+                    node.top = recompute(node, productId);
+                }
+            }
+            candidates.remove(productId);
+        }
+
+        // 商品名の先頭と、空白の直後 (各単語の先頭) から始まる部分文字列
+        private static Set<String> keys(String name) {
+            String normalized = normalize(name);
+            Set<String> keys = new LinkedHashSet<>();
+            if (normalized.isEmpty()) {
+                return keys;
+            }
+            keys.add(normalized);
+            for (int i = 1; i < normalized.length(); i++) {
+                if (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ') {
+                    keys.add(normalized.substring(i));
+                }
+            }
+            return keys;
+        }
+
+        // 上位リストに商品を順位どおりに差し込む (上限を超えた分は切り捨てる)
+        private void offer(Node node, Long productId) {
+            long[] top = node.top;
+            if (contains(top, productId)) {
+                return;
+            }
+            if (top.length == MAX_SUGGESTIONS && compare(productId, top[top.length - 1]) > 0) {
+                return;
+            }
+            int insertAt = 0;
+            while (insertAt < top.length && compare(top[insertAt], productId) < 0) {
+                insertAt++;
+            }
+            long[] grown = new long[Math.min(top.length + 1, MAX_SUGGESTIONS)];
+            System.arraycopy(top, 0, grown, 0, insertAt);
+            grown[insertAt] = productId;
+            System.arraycopy(top, insertAt, grown, insertAt + 1, grown.length - insertAt - 1);
+            node.top = grown;
+        }
+
+        // 終端の商品と子ノードの上位リストから、上位リストを作り直す
+        private long[] recompute(Node node, long excluded) {
+            LongStream merged = Arrays.stream(node.terminals);
+            for (Node child : node.children) {
+                merged = LongStream.concat(merged, Arrays.stream(child.top));
+            }
+            return merged.filter(id -> id != excluded)
+                    .distinct()
+                    .boxed()
+                    .sorted(this::compare)
+                    .limit(MAX_SUGGESTIONS)
+                    .mapToLong(Long::longValue)
+                    .toArray();
+        }
+
+        private static boolean contains(long[] ids, long id) {
+            for (long existing : ids) {
+                if (existing == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long[] append(long[] ids, long id) {
+            long[] grown = Arrays.copyOf(ids, ids.length + 1);
+            grown[ids.length] = id;
+            return grown;
+        }
+
+        private static long[] without(long[] ids, long id) {
+            return Arrays.stream(ids).filter(existing -> existing != id).toArray();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.my_test_app.service;
+
+/**
+ * 商品の一括インポート完了時に {@link ProductImportService} が発行するイベント。
+ * 商品ごとの {@link ProductChangedEvent} は発行しないため、受け取る側は索引などを作り直すこと。
+ *
+ * @param created 新規登録した件数
+ * @param updated 更新した件数
+ */
+public record ProductsImportedEvent(long created, long updated) {
+}
@@ -0,0 +1,69 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.OutboxEvent;
+import com.example.my_test_app.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 注文確定 ({@link OutboxService#ORDER_PLACED}) を受けて決済を行うハンドラー。
+ * 外部の決済サービスの代わりに、app.outbox.payment.stand-in-latency だけ待ってから常に承認する。
+ * 決済済みにした場合のみ、同じトランザクションで {@link OutboxService#ORDER_PAID} を書き込む
+ * （再実行されても二重に決済済み・通知しない）。実際の決済サービスに置き換える場合は、
+ * 注文IDを冪等キーとして渡し、再実行時に二重請求しないようにすること。
+ */
+@Component
+public class StandInPaymentHandler implements OutboxEventHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(StandInPaymentHandler.class);
+
+    private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration latency;
+
+    @Autowired
+    public StandInPaymentHandler(OrderRepository orderRepository, OutboxService outboxService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.outbox.payment.stand-in-latency:200ms}") Duration latency) {
+        this.orderRepository = orderRepository;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.latency = latency;
+    }
+
+    @Override
+    public String eventType() {
+        return OutboxService.ORDER_PLACED;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Long orderId = event.getAggregateId();
+        authorize(orderId); // 外部呼び出しの間はDB接続を保持しない
+        transactionTemplate.executeWithoutResult(status -> {
+            if (orderRepository.updatePaymentStatus(orderId, "PENDING", "PAID") == 1) {
+                outboxService.enqueue(OutboxService.ORDER_PAID, orderId, Map.of("orderId", orderId));
+            }
+        });
+        log.info("Payment completed for order {}", orderId);
+    }
+
+    // 決済サービスの呼び出しの代わり
+    private void authorize(Long orderId) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment interrupted for order " + orderId, e);
+        }
+    }
+}
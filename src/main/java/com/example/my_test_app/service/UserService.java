@@ -1,10 +1,19 @@
 package com.example.my_test_app.service;
 
+import com.example.my_test_app.config.AuthenticationCache;
+import com.example.my_test_app.config.LoginAttemptThrottle;
+import com.example.my_test_app.exceptions.TooManyLoginAttemptsException;
 import com.example.my_test_app.model.User;
 import com.example.my_test_app.repository.UserRepository;
 import com.example.my_test_app.repository.PasswordResetTokenRepository;
 import com.example.my_test_app.model.PasswordResetToken;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -16,22 +25,39 @@ import java.util.*;
 @Service
 public class UserService implements UserDetailsService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final AuthenticationCache authenticationCache; // 検証済み認証情報のキャッシュ
+    private final LoginAttemptThrottle loginAttemptThrottle; // ログイン失敗回数（ユーザー名・接続元IPごと）
+    private final Counter loginFailures; // パスワード不一致によるログイン失敗回数
+    private final Counter accountLockouts; // ログイン失敗の繰り返しによるアカウントロック回数
 
     // ログイン試行回数制限の定数を定義
-    private static final int MAX_FAILED_ATTEMPTS = 5; // アカウントロックされるまでの最大失敗回数
+    private static final int MAX_FAILED_ATTEMPTS = 5; // アカウントロックされるまでの最大失敗回数（app.security.login.window 内）
     private static final long LOCK_TIME_DURATION_MINUTES = 5; // アカウントロック期間（分）
 
     @Autowired
     public UserService(
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
-            PasswordResetTokenRepository passwordResetTokenRepository) {
+            PasswordResetTokenRepository passwordResetTokenRepository,
+            AuthenticationCache authenticationCache,
+            LoginAttemptThrottle loginAttemptThrottle,
+            MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.authenticationCache = authenticationCache;
+        this.loginAttemptThrottle = loginAttemptThrottle;
+        this.loginFailures = Counter.builder("app.auth.login.failures")
+                .description("Number of login attempts rejected due to a wrong password")
+                .register(meterRegistry);
+        this.accountLockouts = Counter.builder("app.auth.lockouts")
+                .description("Number of accounts locked after repeated login failures")
+                .register(meterRegistry);
     }
 
     @Transactional
@@ -67,19 +93,33 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
+        // ロック期間中のアカウントはHTTP Basic認証でも拒否する（LockedException）
+        boolean locked = user.isAccountLocked() && !isLockExpired(user);
         return new org.springframework.security.core.userdetails.User(
                 user.getUsername(),
                 user.getPassword(),
+                true, true, true, !locked,
                 Collections.singletonList(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + user.getRole()))
         );
     }
 
+    // ロック期間（LOCK_TIME_DURATION_MINUTES）が経過しているか
+    private boolean isLockExpired(User user) {
+        if (user.getLockTime() == null) {
+            return false;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(user.getLockTime());
+        calendar.add(Calendar.MINUTE, (int) LOCK_TIME_DURATION_MINUTES);
+        return calendar.getTime().before(new Date());
+    }
+
     @Transactional
     public boolean resetPassword(String token, String newPassword) {
         Optional<PasswordResetToken> resetTokenOptional = passwordResetTokenRepository.findByToken(token);
 
         if (!resetTokenOptional.isPresent()) {
-            System.out.println("Invalid token: Token not found.");
+            log.info("Password reset failed: token not found.");
             return false; // トークンが見つからない
         }
 
@@ -88,19 +128,19 @@ public class UserService implements UserDetailsService {
         if (resetToken.isExpired()) {
             // 期限切れトークンを削除（クリーンアップ）
             passwordResetTokenRepository.delete(resetToken);
-            System.out.println("Invalid token: Token expired.");
+            log.info("Password reset failed: token expired.");
             return false; // トークンが期限切れ
         }
 
         User user = resetToken.getUser();
         if (user == null) {
-            System.out.println("Invalid token: User not found for token.");
+            log.warn("Password reset failed: no user associated with token.");
             return false; // トークンに関連付けられたユーザーが見つからない
         }
 
         // 新しいパスワードの要件チェック（簡易版）
         if (newPassword == null || newPassword.length() < 8) {
-            System.out.println("Password reset failed: New password must be at least 8 characters long.");
+            log.info("Password reset failed for user {}: new password is too short.", user.getUsername());
             return false;
         }
 
@@ -110,56 +150,89 @@ public class UserService implements UserDetailsService {
 
         // 使用済みトークンを削除（無効化）
         passwordResetTokenRepository.delete(resetToken);
-        System.out.println("Password for user " + user.getUsername() + " has been reset successfully.");
+        authenticationCache.invalidateAfterCommit(user.getUsername()); // 旧パスワードでの認証を無効化
+        log.info("Password for user {} has been reset successfully.", user.getUsername());
         return true; // パスワード更新成功
     }
 
+    /**
+     * 有効期限切れのパスワードリセットトークンを削除します（使われずに残ったトークンのクリーンアップ）。
+     */
+    @Scheduled(fixedDelayString = "${app.security.password-reset.purge-interval:1h}",
+            initialDelayString = "${app.security.password-reset.purge-interval:1h}")
+    @Transactional
+    public void purgeExpiredResetTokens() {
+        int deleted = passwordResetTokenRepository.deleteExpiredBefore(new Date());
+        if (deleted > 0) {
+            log.info("Purged {} expired password reset tokens", deleted);
+        }
+    }
+
+    /**
+     * ユーザー名とパスワードで認証します（接続元IPごとの試行制限なし）。
+     *
+     * @param username ユーザー名
+     * @param plainPassword パスワード
+     * @return 認証に成功した場合はユーザー
+     */
+    @Timed(value = "app.auth.login", description = "Login latency (including BCrypt verification)", histogram = true)
     @Transactional
     public Optional<User> authenticateUser(String username, String plainPassword) {
+        return authenticateUser(username, plainPassword, null);
+    }
+
+    /**
+     * ユーザー名とパスワードで認証します。
+     * 失敗回数は {@link LoginAttemptThrottle} がメモリ上で数え、users 行はロック・ロック解除の遷移時のみ更新します。
+     * ウィンドウ内に MAX_FAILED_ATTEMPTS 回失敗したアカウントは LOCK_TIME_DURATION_MINUTES 分間ロックします。
+     *
+     * @param username ユーザー名
+     * @param plainPassword パスワード
+     * @param clientIp 接続元IP（null の場合はIPごとの試行制限を行わない）
+     * @return 認証に成功した場合はユーザー
+     * @throws TooManyLoginAttemptsException 接続元IPからのログイン失敗が多すぎる場合
+     */
+    @Timed(value = "app.auth.login", description = "Login latency (including BCrypt verification)", histogram = true)
+    @Transactional
+    public Optional<User> authenticateUser(String username, String plainPassword, String clientIp) {
+        if (loginAttemptThrottle.isIpBlocked(clientIp)) {
+            throw new TooManyLoginAttemptsException("Too many failed login attempts. Please try again later.");
+        }
+
         Optional<User> userOptional = userRepository.findByUsername(username);
+        if (userOptional.isEmpty()) {
+            loginAttemptThrottle.recordIpFailure(clientIp);
+            return Optional.empty();
+        }
+        User user = userOptional.get();
 
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-
-            // アカウントロック状態のチェックと自動解除
-            if (user.isAccountLocked()) {
-                if (user.getLockTime() != null) {
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(user.getLockTime());
-                    calendar.add(Calendar.MINUTE, (int) LOCK_TIME_DURATION_MINUTES);
-
-                    if (calendar.getTime().before(new Date())) {
-                        // ロック期間が経過した場合、ロックを解除し、失敗回数をリセット
-                        user.setAccountLocked(false);
-                        user.setLockTime(null);
-                        user.setFailedLoginAttempts(0);
-                        userRepository.save(user);
-                    } else {
-                        return Optional.empty(); // アカウントロック中のため認証失敗
-                    }
-                }
+        // アカウントロック状態のチェックと自動解除
+        if (user.isAccountLocked() && user.getLockTime() != null) {
+            if (!isLockExpired(user)) {
+                return Optional.empty(); // アカウントロック中のため認証失敗
             }
+            // ロック期間が経過した場合、ロックを解除し、失敗回数をリセット（同時に解除したリクエストがあれば更新しない）
+            userRepository.unlockAccount(user.getId(), user.getLockTime());
+        }
 
-            // アカウントがロックされていなかった、またはロックが解除された場合にのみパスワードをチェック
-            if (passwordEncoder.matches(plainPassword, user.getPassword())) {
-                // 認証成功
-                user.setFailedLoginAttempts(0);
-                user.setAccountLocked(false);
-                user.setLockTime(null);
-                userRepository.save(user);
-                return Optional.of(user);
-            } else {
-                // 認証失敗
-                user.setFailedLoginAttempts(user.getFailedLoginAttempts() + 1);
-
-                if (user.getFailedLoginAttempts() >= MAX_FAILED_ATTEMPTS) {
-                    user.setAccountLocked(true);
-                    user.setLockTime(new Date());
-                }
-                userRepository.save(user);
-                return Optional.empty();
-            }
+        // アカウントがロックされていなかった、またはロックが解除された場合にのみパスワードをチェック
+        if (passwordEncoder.matches(plainPassword, user.getPassword())) {
+            // 認証成功
+            loginAttemptThrottle.resetUser(username);
+            return Optional.of(user);
+        }
+
+        // 認証失敗
+        loginFailures.increment();
+        loginAttemptThrottle.recordIpFailure(clientIp);
+        int failedAttempts = loginAttemptThrottle.recordUserFailure(username);
+        if (failedAttempts >= MAX_FAILED_ATTEMPTS
+                && userRepository.lockAccount(user.getId(), new Date(), failedAttempts) > 0) {
+            loginAttemptThrottle.resetUser(username);
+            accountLockouts.increment();
+            authenticationCache.invalidateAfterCommit(user.getUsername()); // キャッシュ済みの認証も拒否させる
+            log.info("Account {} locked after {} failed login attempts.", user.getUsername(), failedAttempts);
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,554 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.CartItemDto;
+import com.example.my_test_app.dto.CartOperationDto;
+import com.example.my_test_app.dto.CartSummaryDto;
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.repository.CartItemRepository;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.ProductRepository;
+import com.example.my_test_app.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 書き込み遅延 (write-behind) モードのカート。app.cart.write-behind.enabled=true のとき {@link CartService} の代わりに使われる。
+ * 利用中のカートをユーザーIDごとにメモリ上に保持し、追加・数量変更・削除はメモリ上で完結させる
+ * （商品の種類数の上限もメモリ上で判定する）。変更は flush-interval ごとに、明細ごとの最終状態だけを
+ * JDBCバッチでまとめてDBへ書き出す。カート行の作成と、注文確定前の書き出しは同期的に行う。
+ *
+ * <p>障害時の扱い:
+ * <ul>
+ *   <li>プロセスが異常終了した場合、最後の書き出し以降の変更（最大で flush-interval 分）は失われる。
+ *       失われるのはカートの内容だけで、注文は必ず書き出し後のDBの内容から作成される。</li>
+ *   <li>通常の停止時は、終了前に全ての変更を書き出す。</li>
+ *   <li>書き出しに失敗した変更は未反映のまま保持し、次回の書き出しで再試行する。ただし、カートが削除されていて
+ *       書き込めない変更（外部キー制約違反）は再試行せず、メモリ上のカートを破棄して次の操作でDBから読み込み直す。</li>
+ *   <li>削除された商品の明細は、商品の削除のコミット後にメモリ上のカートから取り除く。</li>
+ *   <li>メモリ上のカートを正とするため、複数インスタンスで動かす場合はユーザーごとに同じインスタンスへ
+ *       振り分けること（振り分けられない構成ではこのモードを有効にしない）。</li>
+ * </ul>
+ * 書き出し前にメモリ上で追加した明細は、DB上のIDが未確定のため明細IDを null で返す。
+ */
+@Service
+@ConditionalOnProperty(name = "app.cart.write-behind.enabled", havingValue = "true")
+@Timed(value = "app.cart", histogram = true)
+public class WriteBehindCartService extends CartService {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartService.class);
+
+    // 一意制約 uk_cart_items_cart_product による upsert（DBにまだない明細は追加、ある明細は数量を設定）
+    private static final String UPSERT_ITEM_SQL = "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+    private static final String DELETE_ITEM_SQL = "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductService productService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+    private final long idleTimeoutNanos;
+    private final Counter flushFailures; // 書き出しに失敗した回数 (変更は保持して再試行する)
+    private final Counter discardedCarts; // 書き込めない変更を持つため破棄したカートの数 (変更は失われる)
+
+    // ユーザーID -> メモリ上のカート
+    private final ConcurrentMap<Long, CartState> carts = new ConcurrentHashMap<>();
+
+    // メモリ上の1ユーザー分のカート。参照・変更・書き出しは lock を取って行う
+    private static final class CartState {
+        final ReentrantLock lock = new ReentrantLock();
+        final Long userId;
+        final Long cartId;
+        final Map<Long, CartLine> lines = new LinkedHashMap<>(); // 商品ID -> 明細 (追加順)
+        final Set<Long> dirty = new HashSet<>(); // 前回の書き出し以降に変更された明細の商品ID
+        long lastAccessNanos = System.nanoTime();
+        boolean discarded; // メモリから取り除いた (以降このインスタンスは使わない)
+
+        CartState(Long userId, Long cartId) {
+            this.userId = userId;
+            this.cartId = cartId;
+        }
+    }
+
+    private static final class CartLine {
+        final Long itemId; // DBから読み込んだ明細のID (メモリ上で追加した明細は null)
+        int quantity;
+
+        CartLine(Long itemId, int quantity) {
+            this.itemId = itemId;
+            this.quantity = quantity;
+        }
+    }
+
+    @Autowired
+    public WriteBehindCartService(CartRepository cartRepository, CartItemRepository cartItemRepository,
+                                  UserRepository userRepository, ProductRepository productRepository,
+                                  ProductService productService, MeterRegistry meterRegistry,
+                                  JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  @Value("${app.cart.write-behind.flush-batch-size:500}") int flushBatchSize,
+                                  @Value("${app.cart.write-behind.idle-timeout:30m}") Duration idleTimeout) {
+        super(cartRepository, cartItemRepository, userRepository, productRepository, productService, meterRegistry);
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.productService = productService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushBatchSize = flushBatchSize;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.flushFailures = Counter.builder("app.cart.write-behind.flush.failures")
+                .description("Number of failed write-behind cart flushes")
+                .register(meterRegistry);
+        this.discardedCarts = Counter.builder("app.cart.write-behind.discarded")
+                .description("Number of in-memory carts discarded because their changes could not be written")
+                .register(meterRegistry);
+        Gauge.builder("app.cart.write-behind.carts", carts, Map::size)
+                .description("Number of carts held in memory")
+                .register(meterRegistry);
+    }
+
+    // ========== カート操作 (メモリ上で完結する) ==========
+    // 親クラスの @Transactional を SUPPORTS で上書きし、操作ごとにDB接続を取得しないようにする
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<CartItemDto> addProductToCart(Long userId, Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        ProductDto product = findProduct(productId);
+        return withCart(userId, true, cart -> Optional.of(putLine(cart, product, quantity, true)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean removeProductFromCart(Long userId, Long productId) {
+        return withCart(userId, false, cart -> {
+            if (cart == null || cart.lines.remove(productId) == null) {
+                return false;
+            }
+            cart.dirty.add(productId);
+            return true;
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<CartDto> getCartByUserId(Long userId) {
+        return withCart(userId, false, cart -> Optional.ofNullable(cart).map(this::toCartDto));
+    }
+
+    // メモリ上のカートは明細から計算し、メモリ上にないカートはDBの集計値を読む (カートを読み込まない)
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<CartSummaryDto> getCartSummary(Long userId) {
+        if (!carts.containsKey(userId)) {
+            return super.getCartSummary(userId);
+        }
+        return withCart(userId, false, cart -> Optional.ofNullable(cart).map(this::toSummaryDto));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<CartItemDto> updateCartItemQuantity(Long userId, Long productId, int newQuantity) {
+        if (newQuantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        if (newQuantity == 0) {
+            removeProductFromCart(userId, productId);
+            return Optional.empty();
+        }
+        ProductDto product = findProduct(productId);
+        return withCart(userId, false, cart -> {
+            if (cart == null) {
+                throw new RuntimeException("Cart not found for user: " + userId);
+            }
+            return Optional.of(putLine(cart, product, newQuantity, false));
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CartDto applyCartOperations(Long userId, List<CartOperationDto> operations) {
+        findProducts(operations); // 検証と商品の存在確認
+        return withCart(userId, true, cart -> {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            cart.lines.forEach((productId, line) -> quantities.put(productId, line.quantity));
+            Map<Long, Integer> result = applyOperations(quantities, operations);
+            checkCartItemLimit(quantities.size(), result.size());
+
+            for (Long productId : quantities.keySet()) {
+                if (!result.containsKey(productId)) {
+                    cart.lines.remove(productId);
+                    cart.dirty.add(productId);
+                }
+            }
+            result.forEach((productId, quantity) -> {
+                CartLine line = cart.lines.computeIfAbsent(productId, id -> new CartLine(null, 0));
+                if (line.quantity != quantity) {
+                    line.quantity = quantity;
+                    cart.dirty.add(productId);
+                }
+            });
+            return toCartDto(cart);
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void clearCart(Long userId) {
+        withCart(userId, false, cart -> {
+            if (cart == null) {
+                throw userRepository.existsById(userId)
+                        ? new RuntimeException("Cart not found for user: " + userId)
+                        : new RuntimeException("User not found with id: " + userId);
+            }
+            cart.dirty.addAll(cart.lines.keySet());
+            cart.lines.clear();
+            return null;
+        });
+    }
+
+    /**
+     * メモリ上のカートの変更を、注文処理のトランザクション内でDBへ書き出します。
+     * 注文処理が終わるまでこのカートへの操作は待たされます。コミットされた場合は注文確定でDBのカートが
+     * 削除されているためメモリからも取り除き、ロールバックされた場合は変更を未反映に戻します。
+     *
+     * @param userId ユーザーID
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void prepareCheckout(Long userId) {
+        CartState cart = carts.get(userId);
+        if (cart == null) {
+            return; // メモリ上にないカートはDBが最新
+        }
+        cart.lock.lock();
+        boolean registered = false;
+        try {
+            if (cart.discarded) {
+                return;
+            }
+            Set<Long> written = new HashSet<>(cart.dirty);
+            try {
+                writeLines(List.of(cart));
+            } catch (DataIntegrityViolationException e) {
+                discard(cart, e); // 次の操作でDBから読み込み直す
+                throw e;
+            }
+            cart.dirty.clear();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            cart.discarded = true;
+                            carts.remove(userId, cart);
+                        } else {
+                            cart.dirty.addAll(written);
+                        }
+                    } finally {
+                        cart.lock.unlock();
+                    }
+                }
+            });
+            registered = true;
+        } finally {
+            if (!registered) {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 削除された商品の明細をメモリ上のカートから取り除きます。商品を削除したトランザクションのコミット後に呼ばれます。
+     * DBに書き出し済みの明細がある商品は外部キー制約により削除できないため、取り除くのはメモリ上にだけある明細です。
+     *
+     * @param event 商品変更イベント
+     */
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.product() != null) {
+            return;
+        }
+        for (CartState cart : carts.values()) {
+            cart.lock.lock();
+            try {
+                if (!cart.discarded && cart.lines.remove(event.productId()) != null) {
+                    cart.dirty.remove(event.productId());
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    // ========== DBへの書き出し ==========
+
+    /**
+     * 未反映の変更を flush-batch-size 件のカートごとに1トランザクションで書き出します。
+     * あわせて、変更がなく idle-timeout の間使われていないカートをメモリから取り除きます。
+     * 操作中・注文処理中のカートは待たずに次回に回します。
+     */
+    @Scheduled(fixedDelayString = "${app.cart.write-behind.flush-interval:1s}",
+            initialDelayString = "${app.cart.write-behind.flush-interval:1s}")
+    public void flush() {
+        flushPending();
+    }
+
+    // 通常の停止時に未反映の変更を書き出す
+    @PreDestroy
+    public void flushOnShutdown() {
+        int pending = 0;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            pending = flushPending();
+            if (pending == 0) {
+                return;
+            }
+        }
+        log.warn("{} carts could not be flushed before shutdown; their latest changes are lost", pending);
+    }
+
+    // 戻り値: 書き出せなかったカートの数 (ロック中で飛ばしたもの・失敗したもの)
+    private int flushPending() {
+        int pending = 0;
+        List<CartState> batch = new ArrayList<>(flushBatchSize);
+        long now = System.nanoTime();
+        for (CartState cart : carts.values()) {
+            if (!cart.lock.tryLock()) {
+                pending++;
+                continue;
+            }
+            boolean keepLocked = false;
+            try {
+                if (cart.discarded) {
+                    continue;
+                }
+                if (!cart.dirty.isEmpty()) {
+                    batch.add(cart);
+                    keepLocked = true; // 書き出しが終わるまでロックを保持する (writeBatch で解放)
+                } else if (now - cart.lastAccessNanos > idleTimeoutNanos) {
+                    cart.discarded = true;
+                    carts.remove(cart.userId, cart);
+                }
+            } finally {
+                if (!keepLocked) {
+                    cart.lock.unlock();
+                }
+            }
+            if (batch.size() >= flushBatchSize) {
+                pending += writeBatch(batch);
+                batch.clear();
+            }
+        }
+        return pending + writeBatch(batch);
+    }
+
+    // カートの変更を1トランザクションで書き出してロックを解放する。
+    // 失敗した場合は原因のカートを特定するため1カートずつ書き出し直す。戻り値: 失敗したカートの数
+    private int writeBatch(List<CartState> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            if (tryWrite(batch)) {
+                return 0;
+            }
+            if (batch.size() == 1) {
+                return 1;
+            }
+            int failed = 0;
+            for (CartState cart : batch) {
+                failed += tryWrite(List.of(cart)) ? 0 : 1;
+            }
+            return failed;
+        } finally {
+            batch.forEach(cart -> cart.lock.unlock());
+        }
+    }
+
+    // 1カートの書き出しが外部キー制約違反で失敗した場合は、再試行しても成功しないためカートを破棄する
+    private boolean tryWrite(List<CartState> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeLines(batch));
+            batch.forEach(cart -> cart.dirty.clear());
+            return true;
+        } catch (RuntimeException e) {
+            if (e instanceof DataIntegrityViolationException && batch.size() == 1) {
+                discard(batch.get(0), e);
+                return true;
+            }
+            flushFailures.increment();
+            log.warn("Failed to flush {} carts; changes are kept for retry: {}", batch.size(), e.toString());
+            return false;
+        }
+    }
+
+    // 変更された明細の最終状態だけを書き込む (削除と upsert をそれぞれ1回のJDBCバッチで送る)。
+    // カートの集計値は書き込んだ明細から計算し直す
+    private void writeLines(List<CartState> batch) {
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> upserts = new ArrayList<>();
+        for (CartState cart : batch) {
+            for (Long productId : cart.dirty) {
+                CartLine line = cart.lines.get(productId);
+                if (line == null) {
+                    deletes.add(new Object[]{cart.cartId, productId});
+                } else {
+                    upserts.add(new Object[]{cart.cartId, productId, line.quantity});
+                }
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ITEM_SQL, deletes);
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_ITEM_SQL, upserts);
+        }
+        List<Long> cartIds = new ArrayList<>(batch.size());
+        for (CartState cart : batch) {
+            if (!cart.dirty.isEmpty()) {
+                cartIds.add(cart.cartId);
+            }
+        }
+        if (!cartIds.isEmpty()) {
+            cartRepository.recomputeSummaries(cartIds);
+        }
+    }
+
+    // 書き込めない変更を持つカートをメモリから取り除く (呼び出し側がカートのロックを保持していること)
+    private void discard(CartState cart, RuntimeException cause) {
+        cart.discarded = true;
+        carts.remove(cart.userId, cart);
+        discardedCarts.increment();
+        log.warn("Discarded {} unwritable cart changes of user {}: {}", cart.dirty.size(), cart.userId, cause.toString());
+    }
+
+    // ========== ヘルパーメソッド ==========
+
+    /**
+     * ユーザーのカートをロックして処理を行います。メモリ上にない場合はDBから読み込みます。
+     *
+     * @param create カートがDBにもない場合に作成するか (作成しない場合、処理には null が渡される)
+     */
+    private <T> T withCart(Long userId, boolean create, Function<CartState, T> action) {
+        while (true) {
+            CartState cart = carts.get(userId);
+            if (cart == null) {
+                // DBアクセスはマップの外で行う (computeIfAbsent の中で行うと、同じビンの他のユーザーの操作まで待たせる)。
+                // 同時に読み込んだ場合は先に登録された方を使う (カートの作成は insertIfAbsent なので重複しない)
+                CartState loaded = load(userId, create);
+                if (loaded == null) {
+                    return action.apply(null);
+                }
+                CartState existing = carts.putIfAbsent(userId, loaded);
+                cart = existing != null ? existing : loaded;
+            }
+            cart.lock.lock();
+            try {
+                if (cart.discarded) {
+                    continue; // 注文確定・アイドル破棄と競合した場合は読み込み直す
+                }
+                cart.lastAccessNanos = System.nanoTime();
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private CartState load(Long userId, boolean create) {
+        return transactionTemplate.execute(status -> {
+            Optional<Cart> cart = cartRepository.findByUserIdWithCartItems(userId);
+            if (cart.isPresent()) {
+                CartState state = new CartState(userId, cart.get().getId());
+                for (CartItem item : cart.get().getCartItems()) {
+                    state.lines.put(item.getProduct().getId(), new CartLine(item.getId(), item.getQuantity()));
+                }
+                return state;
+            }
+            return create ? new CartState(userId, createCart(userId)) : null;
+        });
+    }
+
+    // 明細を追加 (add=true の場合は数量を加算) または数量を更新する
+    private CartItemDto putLine(CartState cart, ProductDto product, int quantity, boolean add) {
+        CartLine line = cart.lines.get(product.getId());
+        if (line == null) {
+            checkCartItemLimit(cart.lines.size());
+            line = new CartLine(null, 0);
+            cart.lines.put(product.getId(), line);
+        }
+        line.quantity = add ? line.quantity + quantity : quantity;
+        cart.dirty.add(product.getId());
+        return new CartItemDto(line.itemId, line.quantity, product);
+    }
+
+    private CartSummaryDto toSummaryDto(CartState cart) {
+        int itemCount = 0;
+        int productCount = 0;
+        long subtotal = 0;
+        for (Map.Entry<Long, CartLine> entry : cart.lines.entrySet()) {
+            Optional<ProductDto> product = productService.getProductById(entry.getKey());
+            if (product.isEmpty()) {
+                continue; // 削除イベントの処理前に削除された商品
+            }
+            int quantity = entry.getValue().quantity;
+            itemCount += quantity;
+            productCount++;
+            subtotal = PricingEngine.addLine(subtotal, product.get().getPrice(), quantity);
+        }
+        return new CartSummaryDto(cart.cartId, cart.userId, itemCount, productCount, PricingEngine.toAmount(subtotal));
+    }
+
+    private CartDto toCartDto(CartState cart) {
+        List<CartItemDto> items = new ArrayList<>(cart.lines.size());
+        long totalPrice = 0;
+        for (Map.Entry<Long, CartLine> entry : cart.lines.entrySet()) {
+            // 商品キャッシュから取得する。削除イベントの処理前に削除された商品の明細は表示しない
+            ProductDto product = productService.getProductById(entry.getKey()).orElse(null);
+            if (product == null) {
+                continue;
+            }
+            CartLine line = entry.getValue();
+            items.add(new CartItemDto(line.itemId, line.quantity, product));
+            totalPrice = PricingEngine.addLine(totalPrice, product.getPrice(), line.quantity);
+        }
+        return new CartDto(cart.cartId, cart.userId, items, PricingEngine.toAmount(totalPrice));
+    }
+}
@@ -0,0 +1,81 @@
+-- 初期スキーマ（Flyway の導入前に spring.jpa.hibernate.ddl-auto=update で作られていたスキーマと同じ構成）
+-- ddl-auto で作成済みの既存DBでは、spring.flyway.baseline-on-migrate によりこのバージョンを適用済みとして扱い、
+-- V2 以降だけを適用する。そのため、その後に追加した列・表・インデックスはここに含めず V2 以降に追加すること。
+-- 制約名は既存DBと揃えるため Hibernate が生成した名前をそのまま使う。
+-- テスト用の組み込みDB (H2 の MySQL 互換モード) でもそのまま実行できる構文に限る
+
+CREATE TABLE users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(255) NOT NULL,
+    failed_login_attempts INTEGER NOT NULL,
+    account_locked BIT NOT NULL,
+    lock_time DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT UKr43af9ap4edm43mmtq01oddj6 UNIQUE (username),
+    CONSTRAINT UK6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email)
+) ENGINE=InnoDB;
+
+CREATE TABLE products (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(1000) NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    type ENUM('ONE_TIME', 'SUBSCRIPTION') NOT NULL,
+    image_url VARCHAR(500),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE carts (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT UK64t7ox312pqal3p7fg9o503c2 UNIQUE (user_id),
+    CONSTRAINT FKb5o626f86h46m4s7ms6ginnop FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE cart_items (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    cart_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT FKpcttvuq4mxppo8sxggjtn5i2c FOREIGN KEY (cart_id) REFERENCES carts (id),
+    CONSTRAINT FK1re40cjegsfvw58xrkdp6bac6 FOREIGN KEY (product_id) REFERENCES products (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE orders (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    order_date DATETIME(6) NOT NULL,
+    total_amount DECIMAL(10, 2) NOT NULL,
+    shipping_address VARCHAR(500) NOT NULL,
+    payment_status VARCHAR(50) NOT NULL,
+    order_status VARCHAR(50) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT FK32ql8ubntj5uh44ph9659tiih FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE order_items (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    product_name VARCHAR(255) NOT NULL,
+    item_price DECIMAL(10, 2) NOT NULL,
+    quantity INTEGER NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT FKbioxgbv59vetrxe0ejfubep1w FOREIGN KEY (order_id) REFERENCES orders (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE password_reset_tokens (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    token VARCHAR(255) NOT NULL,
+    user_id BIGINT NOT NULL,
+    expiry_date DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT UK71lqwbwtklmljk3qlsugr1mig UNIQUE (token),
+    CONSTRAINT UKla2ts67g4oh2sreayswhox1i6 UNIQUE (user_id),
+    CONSTRAINT FKk3ndxg5xp6v7wd4gjyusp15gq FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE=InnoDB;
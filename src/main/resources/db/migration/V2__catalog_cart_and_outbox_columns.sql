@@ -0,0 +1,54 @@
+-- 初期スキーマ (V1) 以降に追加した列・表・インデックス
+-- 既存の行の値は列の既定値から始める（カートの集計値は CartSummaryRepairJob が明細に合わせて修復する）
+
+-- ========== 商品 ==========
+
+-- 楽観ロック・ETag 用のバージョンと、Last-Modified 用の更新日時
+ALTER TABLE products ADD COLUMN (
+    version BIGINT DEFAULT 0 NOT NULL,
+    updated_at DATETIME(6)
+);
+
+-- 商品一覧のキーセットページング（並び順 + id）と、種類・価格帯での絞り込み
+CREATE INDEX idx_products_price_id ON products (price, id);
+CREATE INDEX idx_products_type_id ON products (type, id);
+CREATE INDEX idx_products_type_price_id ON products (type, price, id);
+
+-- 在庫の分割行（1商品の在庫を複数行に分け、注文時の行ロックの競合を減らす）
+CREATE TABLE product_stock_shards (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    shard_no INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_product_stock_shards_product_shard UNIQUE (product_id, shard_no)
+) ENGINE=InnoDB;
+
+-- ========== カート ==========
+
+-- 集計値（数量の合計・種類数・小計）。カートの概要の取得で明細を読まずに済ませる
+ALTER TABLE carts ADD COLUMN (
+    item_count INTEGER DEFAULT 0 NOT NULL,
+    distinct_product_count INTEGER DEFAULT 0 NOT NULL,
+    subtotal DECIMAL(12, 2) DEFAULT 0 NOT NULL
+);
+
+-- ========== アウトボックス ==========
+
+-- 業務データと同じトランザクションで書き込み、コミット後に OutboxDispatcher がバックグラウンドで処理する後続処理の依頼
+CREATE TABLE outbox_events (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    payload VARCHAR(2000) NOT NULL,
+    status ENUM('DONE', 'FAILED', 'PENDING') NOT NULL,
+    attempts INTEGER NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    claim_token VARCHAR(36),
+    last_error VARCHAR(500),
+    created_at DATETIME(6) NOT NULL,
+    processed_at DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_outbox_events_status_next_attempt ON outbox_events (status, next_attempt_at);
@@ -0,0 +1,38 @@
+-- 頻繁に実行される検索のための複合インデックスと、一意制約
+-- 一意制約は CartService の INSERT ... ON DUPLICATE KEY UPDATE（明細の追加・数量の設定）の前提になる
+
+-- ========== 既存データの重複の解消 ==========
+-- 明細の一意制約を追加する前に、ddl-auto 時代に作られた同じカート・同じ商品の明細の重複を統合する
+-- （重複がなければ何も変更しない）。カートは V1 の時点でユーザーごとに一意のため統合は不要。
+-- MySQL は更新・削除対象の表を同じ文のサブクエリで参照できないため、集計した派生表を経由する。
+-- カートの集計値はここでは更新せず、CartSummaryRepairJob が明細に合わせて修復する
+
+-- 1. 同じカート・同じ商品の明細の数量を、最初の明細に合算する
+UPDATE cart_items
+SET quantity = (SELECT total FROM (SELECT cart_id, product_id, SUM(quantity) AS total FROM cart_items
+                                   GROUP BY cart_id, product_id HAVING COUNT(*) > 1) merged
+                WHERE merged.cart_id = cart_items.cart_id AND merged.product_id = cart_items.product_id)
+WHERE id IN (SELECT id FROM (SELECT MIN(id) AS id FROM cart_items
+                             GROUP BY cart_id, product_id HAVING COUNT(*) > 1) kept);
+
+-- 2. 合算した残りの明細を削除する
+DELETE FROM cart_items
+WHERE id NOT IN (SELECT id FROM (SELECT MIN(id) AS id FROM cart_items GROUP BY cart_id, product_id) kept);
+
+-- ========== 一意制約 ==========
+
+-- 1ユーザーにつきカートは1つ（カートの取得・作成はユーザーIDで行う）。
+-- Hibernate が生成した名前の同じ一意制約 (V1) は、名前を付けた制約に置き換える（インデックスを重複させない）
+ALTER TABLE carts ADD CONSTRAINT uk_carts_user_id UNIQUE (user_id);
+ALTER TABLE carts DROP CONSTRAINT UK64t7ox312pqal3p7fg9o503c2;
+
+-- 1カートにつき同じ商品の明細は1つ。カート更新系の (cart_id, product_id) での検索・更新・削除にも使う
+ALTER TABLE cart_items ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id);
+
+-- ========== インデックス ==========
+
+-- ユーザーごとの注文の検索（注文履歴・期間指定）
+CREATE INDEX idx_orders_user_date ON orders (user_id, order_date);
+
+-- 期限切れのパスワードリセットトークンの削除
+CREATE INDEX idx_password_reset_tokens_expiry ON password_reset_tokens (expiry_date);
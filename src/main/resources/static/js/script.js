@@ -3,6 +3,10 @@ document.addEventListener('DOMContentLoaded', () => {
     const loadingMessage = document.getElementById('loading-message');
     const errorMessage = document.getElementById('error-message');
     const cartCountSpan = document.getElementById('cart-count'); // カートのアイテム数を表示するspan要素
+    const loadMoreButton = document.getElementById('load-more-button'); // 次のページを読み込むボタン
+
+    // 次ページ取得用のカーソル（APIの X-Next-Cursor ヘッダーで返される）
+    let nextCursor = null;
 
     // 仮のカートアイテム数（UIデモ用）
     let currentCartCount = 0;
@@ -13,27 +17,32 @@ document.addEventListener('DOMContentLoaded', () => {
     }
 
 
-    // 商品データをAPIから取得する関数
-    async function fetchProducts() {
+    // 商品データをAPIから1ページ分取得する関数（cursor を渡すと続きのページを追加表示する）
+    async function fetchProducts(cursor) {
         try {
             loadingMessage.style.display = 'block'; // ローディングメッセージを表示
             errorMessage.style.display = 'none'; // エラーメッセージを非表示
+            loadMoreButton.style.display = 'none';
 
-            const response = await fetch('/api/products'); // バックエンドAPIのエンドポイント
+            const url = cursor ? `/api/products?cursor=${encodeURIComponent(cursor)}` : '/api/products';
+            const response = await fetch(url); // バックエンドAPIのエンドポイント
             if (!response.ok) {
                 throw new Error(`HTTP error! status: ${response.status}`);
             }
             const products = await response.json();
+            nextCursor = response.headers.get('X-Next-Cursor');
 
             loadingMessage.style.display = 'none'; // ローディングメッセージを非表示
 
-            if (products.length === 0) {
+            if (!cursor && products.length === 0) {
                 productListDiv.innerHTML = '<p>商品が見つかりませんでした。</p>';
                 return;
             }
 
             // 取得した商品をHTMLに表示
-            productListDiv.innerHTML = ''; // 既存のコンテンツをクリア
+            if (!cursor) {
+                productListDiv.innerHTML = ''; // 先頭ページの場合のみ既存のコンテンツをクリア
+            }
             products.forEach(product => {
                 const productCard = document.createElement('div');
                 productCard.className = 'product-card';
@@ -64,8 +73,9 @@ document.addEventListener('DOMContentLoaded', () => {
 
             // ★ここから追加/修正: カート追加ボタンのイベントリスナー設定★
             // productListDiv内の全ての「カートに追加」ボタンを取得
-            const addToCartButtons = productListDiv.querySelectorAll('.add-to-cart-button');
+            const addToCartButtons = productListDiv.querySelectorAll('.add-to-cart-button:not([data-bound])');
             addToCartButtons.forEach(button => {
+                button.setAttribute('data-bound', 'true'); // 追加読み込み時に二重登録しないための印
                 button.addEventListener('click', (event) => {
                     const productId = event.target.getAttribute('data-product-id');
                     // ここにカート追加のダミー処理を記述
@@ -81,6 +91,9 @@ document.addEventListener('DOMContentLoaded', () => {
             });
             // ★追加/修正ここまで★
 
+            // 続きのページがある場合のみ「もっと見る」ボタンを表示
+            loadMoreButton.style.display = nextCursor ? 'block' : 'none';
+
         } catch (error) {
             console.error('商品データの取得中にエラーが発生しました:', error);
             loadingMessage.style.display = 'none'; // ローディングメッセージを非表示
@@ -89,6 +102,8 @@ document.addEventListener('DOMContentLoaded', () => {
         }
     }
 
+    loadMoreButton.addEventListener('click', () => fetchProducts(nextCursor));
+
     // 初期表示時にカート数を更新
     updateCartCountUI();
     // ページロード時に商品をフェッチ
@@ -0,0 +1,130 @@
+package com.example.my_test_app.config;
+
+import com.example.my_test_app.model.PasswordResetToken;
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.repository.PasswordResetTokenRepository;
+import com.example.my_test_app.service.UserService;
+import com.example.my_test_app.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("認証キャッシュ")
+class AuthenticationCacheTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = fixtures.createUser("auth", PASSWORD, "USER");
+    }
+
+    @Test
+    @DisplayName("2回目以降の認証はDBにアクセスせずに成功すること")
+    void cachedAuthenticationSkipsLookup() {
+        authenticate(PASSWORD);
+
+        statistics.clear();
+        Authentication result = authenticate(PASSWORD);
+
+        assertTrue(result.isAuthenticated());
+        assertEquals(user.getUsername(), result.getName());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("キャッシュ済みでも誤ったパスワードは拒否されること")
+    void wrongPasswordIsRejectedEvenWhenCached() {
+        authenticate(PASSWORD);
+        assertThrows(BadCredentialsException.class, () -> authenticate("wrong-password"));
+    }
+
+    @Test
+    @DisplayName("パスワードリセット後は旧パスワードで認証できないこと")
+    void passwordResetInvalidatesCache() {
+        authenticate(PASSWORD);
+        PasswordResetToken token = passwordResetTokenRepository.save(
+                new PasswordResetToken(UUID.randomUUID().toString(), user));
+
+        assertTrue(userService.resetPassword(token.getToken(), "new-password-456"));
+
+        assertThrows(BadCredentialsException.class, () -> authenticate(PASSWORD));
+        assertTrue(authenticate("new-password-456").isAuthenticated());
+    }
+
+    @Test
+    @DisplayName("パスワードリセットによるキャッシュの破棄はコミット後に行われ、ロールバック時は行われないこと")
+    void passwordResetInvalidatesCacheAfterCommit() {
+        authenticate(PASSWORD);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(userService.resetPassword(resetToken(), "new-password-456"));
+            status.setRollbackOnly();
+        });
+        assertTrue(authenticationCache.get(user.getUsername(), PASSWORD).isPresent());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(userService.resetPassword(resetToken(), "new-password-456"));
+            // コミット前に破棄すると、並行する認証が旧パスワードで再びキャッシュできてしまう
+            assertTrue(authenticationCache.get(user.getUsername(), PASSWORD).isPresent());
+        });
+        assertTrue(authenticationCache.get(user.getUsername(), PASSWORD).isEmpty());
+    }
+
+    @Test
+    @DisplayName("アカウントがロックされるとキャッシュ済みの認証も拒否されること")
+    void accountLockInvalidatesCache() {
+        authenticate(PASSWORD);
+        for (int i = 0; i < 5; i++) {
+            userService.authenticateUser(user.getUsername(), "wrong-password");
+        }
+
+        assertThrows(LockedException.class, () -> authenticate(PASSWORD));
+    }
+
+    private String resetToken() {
+        return passwordResetTokenRepository.save(new PasswordResetToken(UUID.randomUUID().toString(), user)).getToken();
+    }
+
+    private Authentication authenticate(String password) {
+        return authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(user.getUsername(), password));
+    }
+}
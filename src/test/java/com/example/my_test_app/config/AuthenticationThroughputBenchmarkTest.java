@@ -0,0 +1,68 @@
+package com.example.my_test_app.config;
+
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 1スレッド（≒1コア）あたりの認証処理件数/秒を、キャッシュなし・ありで比較する
+// 実行方法: mvn test -Pbenchmark -Dtest=AuthenticationThroughputBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("認証スループットベンチマーク")
+class AuthenticationThroughputBenchmarkTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("キャッシュありの認証件数/秒がキャッシュなしを上回ること")
+    void authenticationsPerSecondPerCore() {
+        String username = fixtures.createUser("bench", PASSWORD, "USER").getUsername();
+
+        DaoAuthenticationProvider dao = new DaoAuthenticationProvider();
+        dao.setUserDetailsService(userDetailsService);
+        dao.setPasswordEncoder(passwordEncoder);
+        AuthenticationProvider cached = new CachingAuthenticationProvider(dao,
+                new AuthenticationCache(Duration.ofMinutes(5), 1000));
+
+        double withoutCache = measure(dao, username, 50);
+        double withCache = measure(cached, username, 50_000);
+
+        System.out.println("provider, authenticationsPerSecPerCore");
+        System.out.printf("bcrypt+db, %.1f%n", withoutCache);
+        System.out.printf("cached, %.1f%n", withCache);
+        assertTrue(withCache > withoutCache);
+    }
+
+    private double measure(AuthenticationProvider provider, String username, int iterations) {
+        // ウォームアップ
+        for (int i = 0; i < Math.min(iterations, 20); i++) {
+            provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(username, PASSWORD));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(username, PASSWORD));
+        }
+        return iterations / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
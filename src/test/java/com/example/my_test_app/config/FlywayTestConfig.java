@@ -0,0 +1,21 @@
+package com.example.my_test_app.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// テスト用の組み込みDBは同じJVMの中でコンテキストをまたいで残るため (DB_CLOSE_DELAY=-1)、
+// コンテキストの起動ごとにスキーマを削除してからマイグレーションする（ddl-auto=create-drop と同じく毎回空のDBから始める）
+@Configuration
+@Profile("test")
+public class FlywayTestConfig {
+
+    @Bean
+    public FlywayMigrationStrategy cleanMigrateStrategy() {
+        return flyway -> {
+            flyway.clean();
+            flyway.migrate();
+        };
+    }
+}
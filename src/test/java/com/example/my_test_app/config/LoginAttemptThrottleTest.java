@@ -0,0 +1,71 @@
+package com.example.my_test_app.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ログイン失敗回数のスライディングウィンドウ")
+class LoginAttemptThrottleTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final LoginAttemptThrottle throttle =
+            new LoginAttemptThrottle(Duration.ofMinutes(5), 3, 1000, now::get);
+
+    @Test
+    @DisplayName("ウィンドウを過ぎた失敗は数えないこと")
+    void oldFailuresSlideOutOfWindow() {
+        assertEquals(1, throttle.recordUserFailure("alice"));
+        now.addAndGet(Duration.ofMinutes(3).toMillis());
+        assertEquals(2, throttle.recordUserFailure("alice"));
+        now.addAndGet(Duration.ofMinutes(3).toMillis());
+
+        assertEquals(2, throttle.recordUserFailure("alice")); // 最初の失敗はウィンドウ外
+        assertEquals(1, throttle.recordUserFailure("bob"));
+    }
+
+    @Test
+    @DisplayName("ログイン成功で失敗回数がリセットされること")
+    void resetClearsFailures() {
+        throttle.recordUserFailure("alice");
+        throttle.recordUserFailure("alice");
+        throttle.resetUser("alice");
+
+        assertEquals(1, throttle.recordUserFailure("alice"));
+    }
+
+    @Test
+    @DisplayName("接続元IPごとの失敗が上限に達すると拒否されること")
+    void blocksIpAfterTooManyFailures() {
+        for (int i = 0; i < 3; i++) {
+            assertFalse(throttle.isIpBlocked("192.0.2.1"));
+            throttle.recordIpFailure("192.0.2.1");
+        }
+
+        assertTrue(throttle.isIpBlocked("192.0.2.1"));
+        assertFalse(throttle.isIpBlocked("192.0.2.2"));
+        assertFalse(throttle.isIpBlocked(null));
+
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        assertFalse(throttle.isIpBlocked("192.0.2.1"));
+    }
+
+    @Test
+    @DisplayName("並行して記録しても失敗回数が失われないこと")
+    void concurrentFailuresAreAllCounted() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> throttle.recordUserFailure("alice"));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1001, throttle.recordUserFailure("alice"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.my_test_app.config;
+
+import com.example.my_test_app.exceptions.CartLimitExceededException;
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.service.CartService;
+import com.example.my_test_app.service.UserService;
+import com.example.my_test_app.support.TestFixtures;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.containsString;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability // テストでもPrometheusレジストリを有効にする
+@ActiveProfiles("test")
+@DisplayName("メトリクス")
+class MetricsTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User admin;
+
+    @BeforeEach
+    void setup() {
+        admin = fixtures.createUser("metrics", PASSWORD, "ADMIN");
+    }
+
+    @Test
+    @DisplayName("リクエストごとの発行SQL件数がURIパターン単位で記録されること")
+    void recordsQueriesPerRequest() throws Exception {
+        Long productId = fixtures.createProduct("メトリクス商品", "1000.00").getId();
+
+        mockMvc.perform(get("/api/products/{id}", productId).header(HttpHeaders.AUTHORIZATION, basic(admin)))
+                .andExpect(status().isOk());
+
+        DistributionSummary queries = meterRegistry.find("app.http.request.queries")
+                .tags("method", "GET", "uri", "/api/products/{id}")
+                .summary();
+        assertNotNull(queries);
+        assertTrue(queries.count() >= 1);
+        assertTrue(queries.max() >= 1); // 少なくとも商品の取得 (または認証時のユーザー検索) が数えられている
+    }
+
+    @Test
+    @DisplayName("カート上限超過による拒否が数えられること")
+    void countsCartLimitRejections() {
+        Long userId = fixtures.createUser("metrics", PASSWORD, "USER").getId();
+        for (int i = 0; i < 20; i++) {
+            cartService.addProductToCart(userId, fixtures.createProduct("上限テスト" + i, "1000.00").getId(), 1);
+        }
+        double before = meterRegistry.get("app.cart.limit.rejections").counter().count();
+
+        Long overLimit = fixtures.createProduct("上限超過", "1000.00").getId();
+        assertThrows(CartLimitExceededException.class, () -> cartService.addProductToCart(userId, overLimit, 1));
+
+        assertEquals(before + 1, meterRegistry.get("app.cart.limit.rejections").counter().count());
+    }
+
+    @Test
+    @DisplayName("ログイン失敗とアカウントロックが数えられること")
+    void countsLoginFailuresAndLockouts() {
+        User user = fixtures.createUser("metrics", PASSWORD, "USER");
+        double failuresBefore = meterRegistry.get("app.auth.login.failures").counter().count();
+        double lockoutsBefore = meterRegistry.get("app.auth.lockouts").counter().count();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(userService.authenticateUser(user.getUsername(), "wrong-password").isEmpty());
+        }
+
+        assertEquals(failuresBefore + 5, meterRegistry.get("app.auth.login.failures").counter().count());
+        assertEquals(lockoutsBefore + 1, meterRegistry.get("app.auth.lockouts").counter().count());
+        assertTrue(meterRegistry.get("app.auth.login").timer().count() >= 5);
+    }
+
+    @Test
+    @DisplayName("PrometheusエンドポイントはADMINロールのみ参照できること")
+    void prometheusEndpointRequiresAdmin() throws Exception {
+        cartService.getCartByUserId(admin.getId()); // app.cart タイマーを記録させる
+
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, basic(fixtures.createUser("metrics", PASSWORD, "USER"))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, basic(admin)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("app_cart_seconds_bucket")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds")));
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    private String basic(User user) {
+        String credentials = user.getUsername() + ":" + PASSWORD;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.my_test_app.config;
+
+import com.example.my_test_app.service.CartService;
+import com.example.my_test_app.support.TestFixtures;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// プライマリ (application-test.properties のH2) とは別のH2データベースをレプリカとして使う。
+// レプリケーションは行わないため、レプリカから読んだ場合はプライマリに書き込んだデータが見えない。
+@SpringBootTest(properties = {
+        "app.datasource.replica.url=jdbc:h2:mem:ec_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+        "app.datasource.replica.lag-query=SELECT lag_seconds FROM replica_lag",
+        "app.datasource.replica.max-staleness=5s",
+        "app.datasource.replica.lag-check-interval=1h"})
+@ActiveProfiles("test")
+@DisplayName("読み取り専用トランザクションのレプリカへの振り分け")
+class ReadWriteRoutingTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setup(@TempDir Path tempDir) {
+        // プライマリのスキーマをレプリカに複製し、遅延0秒の状態にする
+        replica = new JdbcTemplate(replicaDataSource);
+        String script = tempDir.resolve("schema.sql").toString().replace('\\', '/');
+        new JdbcTemplate(primaryDataSource).execute("SCRIPT NODATA TO '" + script + "'");
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + script + "'");
+        replica.execute("CREATE TABLE replica_lag (lag_seconds INT)");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        replicaLagMonitor.check();
+    }
+
+    @Test
+    @DisplayName("書き込みはプライマリ、読み取り専用トランザクションはレプリカで実行されること")
+    void routesReadOnlyTransactionsToReplica() {
+        Long userId = fixtures.createUser("routing").getId();
+        cartService.addProductToCart(userId, fixtures.createProduct("振り分けテスト", "1000.00").getId(), 1);
+        double replicaRoutes = routeCount(ReplicaRoutingDataSource.REPLICA);
+
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM carts", Integer.class));
+        assertTrue(cartService.getCartByUserId(userId).isEmpty()); // レプリカには反映されていない
+        assertTrue(routeCount(ReplicaRoutingDataSource.REPLICA) > replicaRoutes);
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+    }
+
+    @Test
+    @DisplayName("レプリカの遅延が上限を超えると読み取りもプライマリで実行されること")
+    void fallsBackToPrimaryWhenReplicaIsStale() {
+        Long userId = fixtures.createUser("routing").getId();
+        cartService.addProductToCart(userId, fixtures.createProduct("振り分けテスト", "1000.00").getId(), 1);
+
+        replica.update("UPDATE replica_lag SET lag_seconds = 60");
+        replicaLagMonitor.check();
+        double primaryRoutes = routeCount(ReplicaRoutingDataSource.PRIMARY);
+
+        assertFalse(replicaLagMonitor.isUsable());
+        assertTrue(cartService.getCartByUserId(userId).isPresent());
+        assertTrue(routeCount(ReplicaRoutingDataSource.PRIMARY) > primaryRoutes);
+
+        replica.update("UPDATE replica_lag SET lag_seconds = 1");
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isUsable());
+    }
+
+    private double routeCount(String route) {
+        return meterRegistry.get("app.datasource.route").tag("route", route).counter().count();
+    }
+}
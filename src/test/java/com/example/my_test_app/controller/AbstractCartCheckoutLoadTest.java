@@ -0,0 +1,146 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.support.LatencyRecorder;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * カート追加・カート取得・チェックアウトを多数のクライアントから同時に実行し、
+ * エンドポイントごとのスループットとp99レイテンシを出力する負荷テスト。
+ * スレッドモードごとのサブクラスを実行し、出力を比較する。
+ * 実行方法: mvn test -Pbenchmark -Dtest='*ThreadsLoadTest'
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(AbstractCartCheckoutLoadTest.LoadTestSecurityConfig.class)
+abstract class AbstractCartCheckoutLoadTest {
+
+    // 既定はTomcatの既定スレッド数(200)を超える同時接続数。-Dload.clients / -Dload.rounds で変更できる
+    private static final int CLIENTS = Integer.getInteger("load.clients", 400);
+    private static final int ROUNDS = Integer.getInteger("load.rounds", 5);
+    private static final long PRODUCT_ID = 1L; // テスト用の初期データ (db/testdata/afterMigrate.sql) で投入される商品
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    protected abstract String modeName();
+
+    @Test
+    void cartAndCheckoutUnderLoad() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            userIds.add(fixtures.createUser("load").getId());
+        }
+
+        // ウォームアップ
+        runRounds(userIds, 1, new LatencyRecorder("add"), new LatencyRecorder("get"), new LatencyRecorder("checkout"));
+
+        LatencyRecorder add = new LatencyRecorder("POST /api/cart/add");
+        LatencyRecorder get = new LatencyRecorder("GET /api/cart/{userId}");
+        LatencyRecorder checkout = new LatencyRecorder("POST /api/orders/{userId}/checkout");
+        long start = System.nanoTime();
+        runRounds(userIds, ROUNDS, add, get, checkout);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("mode=" + modeName() + ", clients=" + CLIENTS + ", rounds=" + ROUNDS);
+        System.out.println("endpoint, requests, errors, requestsPerSec, p50Ms, p99Ms");
+        System.out.println(add.summary(elapsed));
+        System.out.println(get.summary(elapsed));
+        System.out.println(checkout.summary(elapsed));
+
+        assertEquals(0, add.errors() + get.errors() + checkout.errors());
+    }
+
+    // 各クライアントが「追加→取得→チェックアウト」を指定回数繰り返す
+    private void runRounds(List<Long> userIds, int rounds, LatencyRecorder add, LatencyRecorder get,
+                          LatencyRecorder checkout) throws Exception {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        send(add, post("/api/cart/add",
+                                "{\"userId\":" + userId + ",\"productId\":" + PRODUCT_ID + ",\"quantity\":1}"));
+                        send(get, HttpRequest.newBuilder(uri("/api/cart/" + userId)).GET().build());
+                        send(checkout, post("/api/orders/" + userId + "/checkout",
+                                "{\"shippingAddress\":\"東京都新宿区\"}"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private void send(LatencyRecorder recorder, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        recorder.record(System.nanoTime() - start);
+        if (response.statusCode() >= 300) {
+            if (recorder.errors() == 0) {
+                System.out.println(request.uri() + " -> " + response.statusCode() + " " + response.body());
+            }
+            recorder.recordError();
+        }
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    // 認証（BCrypt）のコストを計測から除外し、リクエスト処理とDBアクセスのみを比較する
+    @TestConfiguration
+    @Order(1)
+    static class LoadTestSecurityConfig {
+        @Bean
+        public SecurityFilterChain loadTestSecurityFilterChain(HttpSecurity http) throws Exception {
+            return http
+                    .securityMatcher("/api/cart/**", "/api/orders/**")
+                    .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                    .csrf(AbstractHttpConfigurer::disable)
+                    .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.model.ProductType;
+import com.example.my_test_app.service.ProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("商品カタログの条件付きGETとキャッシュ")
+class CatalogCachingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    @DisplayName("商品詳細は認証なしで取得でき、ETagが一致すれば304をボディなしで返すこと")
+    void productDetailSupportsConditionalGet() throws Exception {
+        ProductDto product = create("キャッシュテスト商品");
+
+        MvcResult first = mockMvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("public")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=60")))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("\"" + product.getId() + "-0\"", etag); // 弱いETag (W/) ではないこと
+
+        MvcResult notModified = mockMvc.perform(get("/api/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andReturn();
+        assertEquals(0, notModified.getResponse().getContentLength());
+        assertEquals("", notModified.getResponse().getContentAsString());
+    }
+
+    @Test
+    @DisplayName("商品を更新するとETagが変わり、古いETagでは200を返すこと")
+    void updateChangesETag() throws Exception {
+        ProductDto product = create("更新前の商品");
+        String etag = mockMvc.perform(get("/api/products/{id}", product.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        product.setName("更新後の商品");
+        productService.updateProduct(product.getId(), product);
+
+        String updated = mockMvc.perform(get("/api/products/{id}", product.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, updated);
+    }
+
+    @Test
+    @DisplayName("商品一覧もETagによる条件付きGETに対応すること")
+    void productListSupportsConditionalGet() throws Exception {
+        String etag = mockMvc.perform(get("/api/products").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("public")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/api/products").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("商品の登録は引き続き認証が必要であること")
+    void writesStillRequireAuthentication() throws Exception {
+        mockMvc.perform(post("/api/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"x\",\"description\":\"x\",\"price\":1,\"type\":\"ONE_TIME\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private ProductDto create(String name) {
+        return productService.createProduct(new ProductDto(null, name, name + "の説明",
+                new BigDecimal("1000.00"), ProductType.ONE_TIME, null));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.service.ProductsImportedEvent;
+import com.example.my_test_app.support.LatencyRecorder;
+import com.example.my_test_app.support.SyntheticDataGenerator;
+import com.example.my_test_app.support.SyntheticDataGenerator.Sizes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 合成データ（{@link SyntheticDataGenerator}）を投入した組み込みDB (H2) に対して、
+ * 「商品一覧→検索→商品詳細→カート追加→カート確認→チェックアウト」のシナリオを多数のクライアントから同時に実行し、
+ * エンドポイントごと・シナリオ全体のスループットとレイテンシのパーセンタイルを出力する負荷テスト。
+ * 実行方法: mvn test -Pbenchmark -Dtest=EndToEndScenarioLoadTest
+ * データ量・負荷は -Ddatagen.users / -Ddatagen.products / -Dload.clients / -Dload.iterations で変更できる
+ * （-Ddatagen.users=1000000 で約1,000万行。ヒープが足りない場合は -DargLine=-Xmx8g などを指定する）。
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Import(AbstractCartCheckoutLoadTest.LoadTestSecurityConfig.class)
+@DisplayName("シナリオ負荷テスト（合成データ）")
+class EndToEndScenarioLoadTest {
+
+    private static final int USERS = Integer.getInteger("datagen.users", 50_000);
+    private static final int PRODUCTS = Integer.getInteger("datagen.products", 10_000);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 64);
+    private static final int ITERATIONS = Integer.getInteger("load.iterations", 20);
+    private static final String[] KEYWORDS = {"コーヒー", "Tシャツ", "プレミアム", "マグカップ", "限定 タオル", "定期便"};
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    // シナリオの各ステップ
+    private final LatencyRecorder browse = new LatencyRecorder("GET /api/products");
+    private final LatencyRecorder search = new LatencyRecorder("GET /api/products/search");
+    private final LatencyRecorder detail = new LatencyRecorder("GET /api/products/{id}");
+    private final LatencyRecorder add = new LatencyRecorder("POST /api/cart/add");
+    private final LatencyRecorder cart = new LatencyRecorder("GET /api/cart/{userId}");
+    private final LatencyRecorder checkout = new LatencyRecorder("POST /api/orders/{userId}/checkout");
+    private final LatencyRecorder scenario = new LatencyRecorder("scenario");
+
+    @Test
+    void browseAddToCartAndCheckout() throws Exception {
+        SyntheticDataGenerator.Result data = new SyntheticDataGenerator(jdbcTemplate, 42)
+                .generate(Sizes.of(USERS, PRODUCTS), passwordEncoder.encode("password123"));
+        System.out.println("generated: " + data);
+        eventPublisher.publishEvent(new ProductsImportedEvent(data.products(), 0)); // 検索索引を作り直す
+
+        run(data, Math.max(1, ITERATIONS / 10), new ArrayList<>()); // ウォームアップ
+        List<LatencyRecorder> recorders = List.of(browse, search, detail, add, cart, checkout, scenario);
+        long start = System.nanoTime();
+        run(data, ITERATIONS, recorders);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("clients=" + CLIENTS + ", iterations=" + ITERATIONS);
+        System.out.println("endpoint, requests, errors, requestsPerSec, p50Ms, p90Ms, p99Ms, p99.9Ms");
+        for (LatencyRecorder recorder : recorders) {
+            System.out.printf("%s, %d, %d, %.1f, %.2f, %.2f, %.2f, %.2f%n", recorder.name(), recorder.count(),
+                    recorder.errors(), recorder.count() / (elapsed / 1_000_000_000.0), recorder.percentileMillis(50),
+                    recorder.percentileMillis(90), recorder.percentileMillis(99), recorder.percentileMillis(99.9));
+        }
+
+        assertEquals(0, recorders.stream().mapToInt(LatencyRecorder::errors).sum());
+    }
+
+    // recorders が空の場合 (ウォームアップ) はレイテンシを記録しない
+    private void run(SyntheticDataGenerator.Result data, int iterations, List<LatencyRecorder> recorders) throws Exception {
+        boolean record = !recorders.isEmpty();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                Random random = new Random(c);
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < iterations; i++) {
+                        long userId = data.firstUserId() + random.nextInt(data.users());
+                        long start = System.nanoTime();
+                        runScenario(data, userId, random, record);
+                        if (record) {
+                            scenario.record(System.nanoTime() - start);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+
+    private void runScenario(SyntheticDataGenerator.Result data, long userId, Random random, boolean record) throws Exception {
+        String type = random.nextBoolean() ? "ONE_TIME" : "SUBSCRIPTION";
+        send(browse, get("/api/products?size=20&sort=price&type=" + type), record);
+        String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+        HttpResponse<String> found = send(search,
+                get("/api/products/search?limit=20&q=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8)), record);
+
+        // 検索結果から選ぶ (結果がない場合は人気の高い先頭側の商品)
+        List<Long> candidates = new ArrayList<>();
+        for (JsonNode product : objectMapper.readTree(found.body())) {
+            candidates.add(product.get("id").asLong());
+        }
+        int lines = 1 + random.nextInt(3);
+        for (int i = 0; i < lines; i++) {
+            long productId = candidates.isEmpty()
+                    ? data.firstProductId() + random.nextInt(Math.min(100, data.products()))
+                    : candidates.get(random.nextInt(candidates.size()));
+            send(detail, get("/api/products/" + productId), record);
+            send(add, post("/api/cart/add",
+                    "{\"userId\":" + userId + ",\"productId\":" + productId + ",\"quantity\":1}"), record);
+        }
+        send(cart, get("/api/cart/" + userId), record);
+        send(checkout, post("/api/orders/" + userId + "/checkout", "{\"shippingAddress\":\"東京都新宿区\"}"), record);
+    }
+
+    private HttpResponse<String> send(LatencyRecorder recorder, HttpRequest request, boolean record) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (record) {
+            recorder.record(System.nanoTime() - start);
+            if (response.statusCode() >= 300) {
+                if (recorder.errors() == 0) {
+                    System.out.println(request.uri() + " -> " + response.statusCode() + " " + response.body());
+                }
+                recorder.recordError();
+            }
+        }
+        return response;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
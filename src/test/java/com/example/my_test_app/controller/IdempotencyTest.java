@@ -0,0 +1,169 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.config.IdempotencyKeyStore;
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.OrderRepository;
+import com.example.my_test_app.service.CartService;
+import com.example.my_test_app.support.TestFixtures;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Idempotency-Key による重複実行の防止")
+class IdempotencyTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setup() {
+        user = fixtures.createUser("idempotency", PASSWORD, "USER");
+        product = fixtures.createProduct("冪等性テスト商品", "800.00");
+    }
+
+    @Test
+    @DisplayName("同じキーで再送したチェックアウトは注文を作り直さず、最初のレスポンスを返すこと")
+    void replaysCheckout() throws Exception {
+        addToCart();
+        String key = UUID.randomUUID().toString();
+
+        MvcResult first = checkout(key, "東京都新宿区");
+        MvcResult retry = checkout(key, "東京都新宿区");
+
+        assertEquals(201, first.getResponse().getStatus());
+        assertEquals(201, retry.getResponse().getStatus());
+        assertEquals("true", retry.getResponse().getHeader(IdempotencyKeyStore.REPLAYED_HEADER));
+        assertEquals(orderId(first), orderId(retry));
+        assertEquals(1, orderRepository.findByUser(user).size());
+    }
+
+    @Test
+    @DisplayName("同時に届いた同じキーのチェックアウトは1回だけ処理され、結果を共有すること")
+    void concurrentRetriesShareResult() throws Exception {
+        addToCart();
+        String key = UUID.randomUUID().toString();
+        int clients = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<MvcResult>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit((Callable<MvcResult>) () -> checkout(key, "東京都新宿区")));
+            }
+            Set<Long> orderIds = new HashSet<>();
+            for (Future<MvcResult> future : futures) {
+                MvcResult result = future.get(60, TimeUnit.SECONDS);
+                assertEquals(201, result.getResponse().getStatus());
+                orderIds.add(orderId(result));
+            }
+            assertEquals(1, orderIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, orderRepository.findByUser(user).size());
+    }
+
+    @Test
+    @DisplayName("別の内容のリクエストに同じキーを使うと422を返すこと")
+    void rejectsKeyReuseWithDifferentBody() throws Exception {
+        addToCart();
+        String key = UUID.randomUUID().toString();
+
+        assertEquals(201, checkout(key, "東京都新宿区").getResponse().getStatus());
+        assertEquals(422, checkout(key, "大阪府大阪市").getResponse().getStatus());
+    }
+
+    @Test
+    @DisplayName("同じキーで再送したカート追加は数量を加算し直さないこと")
+    void replaysCartAddition() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = objectMapper.writeValueAsString(
+                Map.of("userId", user.getId(), "productId", product.getId(), "quantity", 1));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/cart/add")
+                            .header(HttpHeaders.AUTHORIZATION, basic())
+                            .header(IdempotencyKeyStore.HEADER, key)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andReturn();
+        }
+
+        assertEquals(1, cartService.getCartByUserId(user.getId()).orElseThrow().getCartItems().get(0).getQuantity());
+    }
+
+    private MvcResult checkout(String key, String shippingAddress) throws Exception {
+        return mockMvc.perform(post("/api/orders/{userId}/checkout", user.getId())
+                        .header(HttpHeaders.AUTHORIZATION, basic())
+                        .header(IdempotencyKeyStore.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shippingAddress\": \"" + shippingAddress + "\"}"))
+                .andReturn();
+    }
+
+    private long orderId(MvcResult result) throws Exception {
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8));
+        return body.get("id").asLong();
+    }
+
+    private void addToCart() {
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.addCartItem(new CartItem(cart, product, 1));
+        cartRepository.save(cart);
+    }
+
+    private String basic() {
+        String credentials = user.getUsername() + ":" + PASSWORD;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
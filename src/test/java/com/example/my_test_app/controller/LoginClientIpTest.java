@@ -0,0 +1,62 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// プロキシ経由のログインで、接続元IPごとに試行回数を制限すること (server.forward-headers-strategy=native)。
+// 組み込みTomcatの RemoteIpValve を通すため、MockMvc ではなく実際のポートにリクエストを送る
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@DisplayName("ログイン時の接続元IPの解決")
+class LoginClientIpTest {
+
+    private static final String PASSWORD = "password123";
+    private static final int MAX_ATTEMPTS_PER_IP = 50; // app.security.login.max-attempts-per-ip
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("信頼するプロキシ経由のリクエストは X-Forwarded-For のクライアントIPごとに制限されること")
+    void throttlesPerForwardedClientIp() throws Exception {
+        User user = fixtures.createUser("proxy-login", PASSWORD, "USER");
+        String blockedClient = "198.51.100." + (int) (Math.random() * 250);
+        for (int i = 0; i < MAX_ATTEMPTS_PER_IP; i++) {
+            assertEquals(401, login("unknown-" + i, "wrong-password", blockedClient).statusCode());
+        }
+
+        assertEquals(429, login(user.getUsername(), PASSWORD, blockedClient).statusCode());
+        // 同じプロキシ (ループバック) を経由する別のクライアントは制限されない
+        assertEquals(200, login(user.getUsername(), PASSWORD, "203.0.113.7").statusCode());
+        assertEquals(200, login(user.getUsername(), PASSWORD, null).statusCode());
+    }
+
+    private HttpResponse<String> login(String username, String password, String forwardedFor) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"));
+        if (forwardedFor != null) {
+            request.header("X-Forwarded-For", forwardedFor);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.my_test_app.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("test")
+@DisplayName("カート・チェックアウト負荷テスト（プラットフォームスレッド）")
+class PlatformThreadsLoadTest extends AbstractCartCheckoutLoadTest {
+
+    @Override
+    protected String modeName() {
+        return "platform-threads";
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.my_test_app.controller;
+
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 商品の参照系APIを公開しない (app.catalog.public-read=false) 場合のキャッシュ
+@SpringBootTest(properties = "app.catalog.public-read=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("認証が必要な商品カタログのキャッシュ")
+class PrivateCatalogCachingTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("認証が必要な場合は共有キャッシュに保存させないこと")
+    void responsesAreNotStoredBySharedCaches() throws Exception {
+        Long productId = fixtures.createProduct("非公開カタログ商品", "1000.00").getId();
+        mockMvc.perform(get("/api/products/{id}", productId))
+                .andExpect(status().isUnauthorized());
+
+        String authorization = basic(fixtures.createUser("catalog", PASSWORD, "USER"));
+        mockMvc.perform(get("/api/products/{id}", productId).header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("private")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("public"))))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("s-maxage"))));
+        mockMvc.perform(get("/api/products").param("size", "5").header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("private")));
+    }
+
+    private String basic(User user) {
+        String credentials = user.getUsername() + ":" + PASSWORD;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
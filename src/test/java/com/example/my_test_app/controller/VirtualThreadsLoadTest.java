@@ -0,0 +1,14 @@
+package com.example.my_test_app.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles({"test", "virtual-threads"})
+@DisplayName("カート・チェックアウト負荷テスト（仮想スレッド）")
+class VirtualThreadsLoadTest extends AbstractCartCheckoutLoadTest {
+
+    @Override
+    protected String modeName() {
+        return "virtual-threads";
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.my_test_app.repository;
+
+import com.example.my_test_app.support.TestFixtures;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Flyway のマイグレーション (db/migration) で作られるスキーマの一意制約・インデックスの確認
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("スキーマのマイグレーション")
+class SchemaMigrationTest {
+
+    // スキーマの比較に使う列・制約の定義 (Flyway の管理表を除く)
+    private static final String COLUMNS_SQL = "SELECT table_name, column_name, data_type, is_nullable, column_default, "
+            + "character_maximum_length, numeric_precision, numeric_scale FROM information_schema.columns "
+            + "WHERE table_schema = 'public' AND table_name <> 'flyway_schema_history' ORDER BY table_name, column_name";
+    // 主キーの制約名は自動で付くため比較しない
+    private static final String CONSTRAINTS_SQL = "SELECT table_name, constraint_type, "
+            + "CASE WHEN constraint_type = 'PRIMARY KEY' THEN NULL ELSE constraint_name END "
+            + "FROM information_schema.table_constraints "
+            + "WHERE table_schema = 'public' AND table_name <> 'flyway_schema_history' ORDER BY 1, 2, 3";
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long userId;
+    private Long productId;
+
+    @BeforeEach
+    void setup() {
+        userId = fixtures.createUser("schema").getId();
+        productId = fixtures.createProduct("スキーマ確認用", "100.00").getId();
+    }
+
+    @Test
+    @DisplayName("すべてのバージョンのマイグレーションが適用されていること")
+    void appliesAllMigrations() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" " +
+                        "WHERE \"version\" IS NOT NULL AND \"success\" = TRUE ORDER BY \"installed_rank\"",
+                String.class);
+        assertEquals(List.of("1", "2", "3"), versions);
+    }
+
+    @Test
+    @DisplayName("Flyway の導入前に作られたDBは V1 をベースラインとしてマイグレーションされ、新規のDBと同じスキーマになること")
+    void migratesPreFlywayDatabaseFromBaseline() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:preseries-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource("db/preseries/schema.sql")).execute(dataSource);
+
+            // 本番の設定 (spring.flyway.baseline-on-migrate / baseline-version) と同じ
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration")
+                    .baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+            assertEquals(List.of("1", "2", "3"), legacy.queryForList(
+                    "SELECT \"version\" FROM \"flyway_schema_history\" " +
+                            "WHERE \"version\" IS NOT NULL AND \"success\" = TRUE ORDER BY \"installed_rank\"",
+                    String.class));
+            assertEquals(describeSchema(jdbcTemplate, COLUMNS_SQL), describeSchema(legacy, COLUMNS_SQL));
+            assertEquals(describeSchema(jdbcTemplate, CONSTRAINTS_SQL), describeSchema(legacy, CONSTRAINTS_SQL));
+            // 既存の重複した明細は1つにまとめられている
+            assertEquals(List.of(5), legacy.queryForList("SELECT quantity FROM cart_items WHERE cart_id = 1", Integer.class));
+        } finally {
+            legacy.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    @DisplayName("1ユーザーにつきカートは1つしか作れないこと")
+    void rejectsSecondCartForUser() {
+        jdbcTemplate.update("INSERT INTO carts (user_id) VALUES (?)", userId);
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO carts (user_id) VALUES (?)", userId));
+    }
+
+    @Test
+    @DisplayName("同じ商品の明細の upsert は1つの明細にまとまり、加算・設定の指定どおりに数量を更新すること")
+    void upsertMergesSameProduct() {
+        Long cartId = createCart();
+
+        Long itemId = transactionTemplate.execute(status -> cartItemRepository.upsertQuantity(cartId, productId, 2, true));
+        assertNotNull(itemId);
+        assertNull(transactionTemplate.execute(status -> cartItemRepository.upsertQuantity(cartId, productId, 3, true)));
+        assertEquals(5, quantity(itemId));
+
+        assertNull(transactionTemplate.execute(status -> cartItemRepository.upsertQuantity(cartId, productId, 4, false)));
+        assertEquals(4, quantity(itemId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", Integer.class, cartId));
+    }
+
+    @Test
+    @DisplayName("頻繁に実行される検索が追加したインデックスを使うこと")
+    void hotQueriesUseIndexes() {
+        assertUsesIndex("uk_carts_user_id",
+                "SELECT id, item_count, subtotal FROM carts WHERE user_id = 1");
+        assertUsesIndex("uk_cart_items_cart_product",
+                "SELECT id, quantity FROM cart_items WHERE cart_id = 1 AND product_id = 2");
+        assertUsesIndex("idx_orders_user_date",
+                "SELECT id FROM orders WHERE user_id = 1 AND order_date >= TIMESTAMP '2024-01-01 00:00:00'");
+        assertUsesIndex("idx_password_reset_tokens_expiry",
+                "DELETE FROM password_reset_tokens WHERE expiry_date < TIMESTAMP '2024-01-01 00:00:00'");
+    }
+
+    private static List<String> describeSchema(JdbcTemplate jdbc, String sql) {
+        return jdbc.query(sql, (rs, rowNum) -> {
+            StringBuilder row = new StringBuilder();
+            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                row.append(rs.getString(i)).append('|');
+            }
+            return row.toString();
+        });
+    }
+
+    // H2 の実行計画では、使われるインデックスが /* public.インデックス名: 条件 */ の形で示される。
+    // 制約の場合はその制約が使うインデックスを確認する (同じ列の既存のインデックスが使われることがある)
+    private void assertUsesIndex(String indexOrConstraint, String sql) {
+        String index = jdbcTemplate.queryForList(
+                        "SELECT index_name FROM information_schema.table_constraints WHERE constraint_name = ?",
+                        String.class, indexOrConstraint).stream()
+                .findFirst().orElse(indexOrConstraint).toLowerCase();
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+        assertTrue(plan.toLowerCase().contains("public." + index),
+                () -> indexOrConstraint + " is not used:\n" + plan);
+        assertFalse(plan.contains("tableScan"), () -> "full table scan:\n" + plan);
+    }
+
+    private Long createCart() {
+        jdbcTemplate.update("INSERT INTO carts (user_id) VALUES (?)", userId);
+        return jdbcTemplate.queryForObject("SELECT id FROM carts WHERE user_id = ?", Long.class, userId);
+    }
+
+    private int quantity(Long itemId) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM cart_items WHERE id = ?", Integer.class, itemId);
+    }
+}
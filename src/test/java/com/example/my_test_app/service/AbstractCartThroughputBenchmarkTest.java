@@ -0,0 +1,110 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ユーザーごとのカート操作（追加・数量変更・取得・削除）を複数スレッドから繰り返し、
+ * カート操作件数/秒をスレッド数ごとに出力するベンチマーク。カートのモードごとのサブクラスを実行し、出力を比較する。
+ * 実行方法: mvn test -Pbenchmark -Dtest='*CartThroughputBenchmarkTest'
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+abstract class AbstractCartThroughputBenchmarkTest {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+    private static final int CYCLES_PER_THREAD = 200;
+    private static final int OPERATIONS_PER_CYCLE = 5;
+    private static final int PRODUCTS = 5;
+
+    @Autowired
+    protected CartService cartService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+
+    protected abstract String modeName();
+
+    // 計測後、カートの変更をDBへ反映させる (即時反映のモードでは何もしない)
+    protected void flush() {
+    }
+
+    @Test
+    void cartOperationsPerSecond() throws Exception {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(fixtures.createProduct("カート計測用商品" + i, "1200.00").getId());
+        }
+
+        // ウォームアップ
+        run(productIds, 4);
+
+        System.out.println("mode=" + modeName());
+        System.out.println("threads, operations, operationsPerSec, flushMs");
+        for (int threads : THREAD_COUNTS) {
+            long start = System.nanoTime();
+            List<Long> userIds = run(productIds, threads);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            long flushStart = System.nanoTime();
+            flush();
+            long flushMs = (System.nanoTime() - flushStart) / 1_000_000;
+            int operations = threads * CYCLES_PER_THREAD * OPERATIONS_PER_CYCLE;
+            System.out.printf("%d, %d, %.1f, %d%n", threads, operations, operations / seconds, flushMs);
+
+            // 各サイクルの最後に削除した商品以外が、数量 = 最後に設定した値で残っている
+            for (Long userId : userIds) {
+                assertEquals(PRODUCTS - 1, jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM cart_items ci JOIN carts c ON c.id = ci.cart_id WHERE c.user_id = ?",
+                        Integer.class, userId), modeName() + ", threads=" + threads);
+            }
+        }
+    }
+
+    // スレッドごとに別のユーザーでカート操作を繰り返す。戻り値: 使用したユーザーID
+    private List<Long> run(List<Long> productIds, int threads) throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            userIds.add(fixtures.createUser("cart-bench").getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    for (int cycle = 0; cycle < CYCLES_PER_THREAD; cycle++) {
+                        Long productId = productIds.get(cycle % PRODUCTS);
+                        Long removed = productIds.get((cycle + 1) % PRODUCTS);
+                        cartService.addProductToCart(userId, productId, 1);
+                        cartService.addProductToCart(userId, removed, 1);
+                        cartService.updateCartItemQuantity(userId, productId, cycle % 3 + 1);
+                        cartService.getCartByUserId(userId);
+                        cartService.removeProductFromCart(userId, removed);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(300, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.CartItemDto;
+import com.example.my_test_app.dto.CartOperationDto;
+import com.example.my_test_app.dto.CartOperationDto.Type;
+import com.example.my_test_app.dto.CartSummaryDto;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 同じユーザーのカートの同時作成で、カートと明細が重複しないこと、同時に実行したカート操作の変更が失われないことの確認。
+// 組み込みDB (H2) では InnoDB の行ロックの挙動 (INSERT IGNORE の共有ロックの格上げによるデッドロックなど) は再現しないため、
+// 通常のビルドでは少人数で結果の整合性だけを確認する。MySQL に対して負荷をかける場合は -Dload.users で人数を増やす
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("カート作成・操作の同時実行テスト")
+class CartCreationConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int USERS = Integer.getInteger("load.users", 50);
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("同じユーザーの最初のカート追加が同時に実行されても、カートと明細が1つにまとまること")
+    void concurrentFirstAddsCreateSingleCart() throws Exception {
+        Long productA = fixtures.createProduct("同時作成A", "300.00").getId();
+        Long productB = fixtures.createProduct("同時作成B", "300.00").getId();
+        List<Long> userIds = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(fixtures.createUser("first-add").getId());
+        }
+
+        // ユーザーごとに、同じ商品の追加2回（ダブルクリック）と別の商品の追加1回（別タブ）を同時に実行する
+        List<Callable<Object>> tasks = new ArrayList<>(USERS * 3);
+        for (Long userId : userIds) {
+            tasks.add(() -> cartService.addProductToCart(userId, productA, 1));
+            tasks.add(() -> cartService.addProductToCart(userId, productA, 1));
+            tasks.add(() -> cartService.addProductToCart(userId, productB, 2));
+        }
+        List<String> failures = runConcurrently(tasks);
+        assertTrue(failures.isEmpty(), () -> failures.size() + " tasks failed: " + failures);
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT user_id FROM carts GROUP BY user_id HAVING COUNT(*) > 1) duplicated",
+                Integer.class));
+        for (Long userId : userIds) {
+            CartDto cart = cartService.getCartByUserId(userId).orElseThrow();
+            Map<Long, Integer> quantities = cart.getCartItems().stream()
+                    .collect(Collectors.toMap(item -> item.getProduct().getId(), CartItemDto::getQuantity));
+            assertEquals(Map.of(productA, 2, productB, 2), quantities, () -> "user " + userId);
+
+            CartSummaryDto summary = cartService.getCartSummary(userId).orElseThrow();
+            assertEquals(4, summary.getItemCount(), () -> "user " + userId);
+            assertEquals(2, summary.getDistinctProductCount(), () -> "user " + userId);
+            assertEquals(cart.getTotalPrice(), summary.getSubtotal(), () -> "user " + userId);
+        }
+    }
+
+    @Test
+    @DisplayName("一括操作と商品の追加が同時に実行されても、どちらの変更も失われないこと")
+    void concurrentBatchAndSingleAddsKeepAllChanges() throws Exception {
+        Long productA = fixtures.createProduct("同時操作A", "300.00").getId();
+        Long productB = fixtures.createProduct("同時操作B", "500.00").getId();
+        List<Long> userIds = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            Long userId = fixtures.createUser("batch-add").getId();
+            cartService.addProductToCart(userId, productA, 1);
+            userIds.add(userId);
+        }
+
+        // ユーザーごとに、一括操作（商品Aと商品Bを1つずつ追加）2回と商品Aの追加2回を同時に実行する
+        List<CartOperationDto> operations = List.of(
+                new CartOperationDto(Type.ADD, productA, 1),
+                new CartOperationDto(Type.ADD, productB, 1));
+        List<Callable<Object>> tasks = new ArrayList<>(USERS * 4);
+        for (Long userId : userIds) {
+            tasks.add(() -> cartService.applyCartOperations(userId, operations));
+            tasks.add(() -> cartService.addProductToCart(userId, productA, 1));
+            tasks.add(() -> cartService.applyCartOperations(userId, operations));
+            tasks.add(() -> cartService.addProductToCart(userId, productA, 1));
+        }
+        List<String> failures = runConcurrently(tasks);
+        assertTrue(failures.isEmpty(), () -> failures.size() + " tasks failed: " + failures);
+
+        for (Long userId : userIds) {
+            CartDto cart = cartService.getCartByUserId(userId).orElseThrow();
+            Map<Long, Integer> quantities = cart.getCartItems().stream()
+                    .collect(Collectors.toMap(item -> item.getProduct().getId(), CartItemDto::getQuantity));
+            assertEquals(Map.of(productA, 5, productB, 2), quantities, () -> "user " + userId);
+
+            CartSummaryDto summary = cartService.getCartSummary(userId).orElseThrow();
+            assertEquals(7, summary.getItemCount(), () -> "user " + userId);
+            assertEquals(2, summary.getDistinctProductCount(), () -> "user " + userId);
+            assertEquals(new BigDecimal("2500.00"), summary.getSubtotal(), () -> "user " + userId);
+        }
+    }
+
+    @Test
+    @DisplayName("存在しないユーザーのカートは作成しないこと")
+    void rejectsUnknownUser() {
+        Long productId = fixtures.createProduct("存在しないユーザー", "300.00").getId();
+        assertThrows(RuntimeException.class, () -> cartService.addProductToCart(Long.MAX_VALUE, productId, 1));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM carts WHERE user_id = ?", Integer.class, Long.MAX_VALUE));
+    }
+
+    // 全スレッドを同時にスタートさせてタスクを実行する。戻り値: 例外で終了したタスクの例外 (toString)
+    private List<String> runConcurrently(List<Callable<Object>> tasks) throws Exception {
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Callable<Object> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    startGate.await();
+                    try {
+                        task.call();
+                    } catch (RuntimeException e) {
+                        failures.add(e.toString());
+                    }
+                    return null;
+                }));
+            }
+            startGate.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ArrayList<>(failures);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.config.QueryCounter;
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.CartItemDto;
+import com.example.my_test_app.dto.CartOperationDto;
+import com.example.my_test_app.dto.CartOperationDto.Type;
+import com.example.my_test_app.exceptions.CartLimitExceededException;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// カート更新系の発行SQL数が増えていないことを確認する回帰テスト
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("CartService 発行SQL数テスト")
+class CartServiceQueryCountTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private QueryCounter queryCounter;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long userId;
+    private Long productA;
+    private Long productB;
+
+    @BeforeEach
+    void setup() {
+        userId = fixtures.createUser("cart").getId();
+        productA = fixtures.createProduct("商品A", "1000.00").getId();
+        productB = fixtures.createProduct("商品B", "1000.00").getId();
+
+        // カートを作成し、商品キャッシュを温めておく
+        cartService.addProductToCart(userId, productA, 1);
+        productService.getProductById(productB);
+    }
+
+    @Test
+    @DisplayName("既存カートへの新しい商品の追加は集計値の更新を含めて3ステートメントで完了すること")
+    void addNewItemUsesThreeStatements() {
+        long count = countStatements(() -> cartService.addProductToCart(userId, productB, 1));
+        // カート情報の取得 + 集計値の更新 + 明細の upsert
+        assertEquals(3, count);
+        assertEquals(1, quantities(cartService.getCartByUserId(userId).orElseThrow()).get(productB));
+    }
+
+    @Test
+    @DisplayName("カート内の商品の数量加算は集計値の更新を含めて3ステートメントで完了すること")
+    void addExistingItemUsesThreeStatements() {
+        long count = countStatements(() -> {
+            CartItemDto item = cartService.addProductToCart(userId, productA, 2).orElseThrow();
+            assertEquals(3, item.getQuantity());
+        });
+        assertEquals(3, count);
+    }
+
+    @Test
+    @DisplayName("数量の更新は集計値の更新を含めて3ステートメントで完了すること")
+    void updateQuantityUsesThreeStatements() {
+        long count = countStatements(() -> cartService.updateCartItemQuantity(userId, productA, 5));
+        assertEquals(3, count);
+    }
+
+    @Test
+    @DisplayName("商品の削除は集計値の更新を含めて2ステートメントで完了すること")
+    void removeUsesTwoStatements() {
+        long count = countStatements(() -> assertTrue(cartService.removeProductFromCart(userId, productA)));
+        assertEquals(2, count);
+    }
+
+    @Test
+    @DisplayName("カートの商品種類数が上限に達している場合は追加できないこと")
+    void rejectsItemsOverLimit() {
+        for (int i = 1; i < 20; i++) {
+            cartService.addProductToCart(userId, fixtures.createProduct("上限テスト" + i, "1000.00").getId(), 1);
+        }
+        Long overLimit = fixtures.createProduct("上限超過", "1000.00").getId();
+        assertThrows(CartLimitExceededException.class, () -> cartService.addProductToCart(userId, overLimit, 1));
+    }
+
+    @Test
+    @DisplayName("一括操作はカートのロック、商品・カートの読み込み各1回と明細ごとの書き込みで完了すること")
+    void batchLoadsProductsAndCartOnce() {
+        Long productC = fixtures.createProduct("商品C", "1000.00").getId();
+        List<CartOperationDto> operations = List.of(
+                new CartOperationDto(Type.ADD, productB, 2),
+                new CartOperationDto(Type.ADD, productB, 1),
+                new CartOperationDto(Type.UPDATE, productA, 4),
+                new CartOperationDto(Type.ADD, productC, 1),
+                new CartOperationDto(Type.REMOVE, productC, null));
+
+        CartDto[] result = new CartDto[1];
+        long count = countStatements(() -> result[0] = cartService.applyCartOperations(userId, operations));
+
+        // カートのロック + 商品の読み込み + カートの読み込み + 商品AのUPDATE + 商品Bの明細の upsert + 集計値のUPDATE
+        assertEquals(6, count);
+        assertEquals(Map.of(productA, 4, productB, 3), quantities(result[0]));
+        assertEquals(new BigDecimal("7000.00"), result[0].getTotalPrice());
+        assertEquals(quantities(result[0]), quantities(cartService.getCartByUserId(userId).orElseThrow()));
+    }
+
+    @Test
+    @DisplayName("一括操作の種類数の上限は最終状態に対して判定し、超える場合は何も変更しないこと")
+    void batchChecksLimitOnFinalState() {
+        List<CartOperationDto> fill = new ArrayList<>();
+        for (int i = 1; i < 20; i++) {
+            fill.add(new CartOperationDto(Type.ADD, fixtures.createProduct("一括上限" + i, "1000.00").getId(), 1));
+        }
+        fill.add(new CartOperationDto(Type.REMOVE, productA, null));
+        fill.add(new CartOperationDto(Type.ADD, productB, 1)); // 削除で空いた分は追加できる
+        assertEquals(20, cartService.applyCartOperations(userId, fill).getCartItems().size());
+
+        Long overLimit = fixtures.createProduct("一括上限超過", "1000.00").getId();
+        List<CartOperationDto> over = List.of(
+                new CartOperationDto(Type.UPDATE, productB, 9),
+                new CartOperationDto(Type.ADD, overLimit, 1));
+        assertThrows(CartLimitExceededException.class, () -> cartService.applyCartOperations(userId, over));
+
+        CartDto cart = cartService.getCartByUserId(userId).orElseThrow();
+        assertEquals(20, cart.getCartItems().size());
+        assertEquals(1, quantities(cart).get(productB));
+    }
+
+    @Test
+    @DisplayName("一括操作に存在しない商品が含まれる場合は何も変更しないこと")
+    void batchWithUnknownProductChangesNothing() {
+        List<CartOperationDto> operations = List.of(
+                new CartOperationDto(Type.REMOVE, productA, null),
+                new CartOperationDto(Type.ADD, Long.MAX_VALUE, 1));
+
+        assertThrows(RuntimeException.class, () -> cartService.applyCartOperations(userId, operations));
+        assertEquals(Map.of(productA, 1), quantities(cartService.getCartByUserId(userId).orElseThrow()));
+    }
+
+    private static Map<Long, Integer> quantities(CartDto cart) {
+        return cart.getCartItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), CartItemDto::getQuantity));
+    }
+
+    // Hibernate・JdbcTemplate のどちらで実行したSQLも数える
+    private long countStatements(Runnable action) {
+        queryCounter.start();
+        int count;
+        try {
+            action.run();
+        } finally {
+            count = queryCounter.stop();
+        }
+        return count;
+    }
+}
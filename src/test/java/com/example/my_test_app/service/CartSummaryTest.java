@@ -0,0 +1,144 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.CartItemDto;
+import com.example.my_test_app.dto.CartOperationDto;
+import com.example.my_test_app.dto.CartOperationDto.Type;
+import com.example.my_test_app.dto.CartSummaryDto;
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("カートの集計値")
+class CartSummaryTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartSummaryRepairJob repairJob;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long userId;
+    private Long productA;
+    private Long productB;
+
+    @BeforeEach
+    void setup() {
+        userId = fixtures.createUser("summary").getId();
+        productA = fixtures.createProduct("集計A", "1200.50").getId();
+        productB = fixtures.createProduct("集計B", "0.99").getId();
+    }
+
+    @Test
+    @DisplayName("カートの更新のたびに集計値が差分で更新され、明細から計算した値と一致すること")
+    void tracksEveryMutation() {
+        cartService.addProductToCart(userId, productA, 2); // カートの作成
+        assertSummaryMatchesCart();
+        cartService.addProductToCart(userId, productA, 1);
+        cartService.addProductToCart(userId, productB, 3);
+        assertSummaryMatchesCart();
+        cartService.updateCartItemQuantity(userId, productA, 1);
+        assertSummaryMatchesCart();
+        cartService.updateCartItemQuantity(userId, productB, 0);
+        assertSummaryMatchesCart();
+        assertFalse(cartService.removeProductFromCart(userId, productB));
+        cartService.applyCartOperations(userId, List.of(
+                new CartOperationDto(Type.ADD, productB, 5),
+                new CartOperationDto(Type.UPDATE, productA, 4)));
+        assertSummaryMatchesCart();
+        assertTrue(cartService.removeProductFromCart(userId, productA));
+        assertSummaryMatchesCart();
+        cartService.clearCart(userId);
+
+        CartSummaryDto summary = cartService.getCartSummary(userId).orElseThrow();
+        assertEquals(0, summary.getItemCount());
+        assertEquals(0, summary.getDistinctProductCount());
+        assertEquals(new BigDecimal("0.00"), summary.getSubtotal());
+    }
+
+    @Test
+    @DisplayName("集計値の取得はカート行を1行読むだけであること")
+    void summaryReadsSingleRow() {
+        cartService.addProductToCart(userId, productA, 2);
+        cartService.addProductToCart(userId, productB, 1);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CartSummaryDto summary = cartService.getCartSummary(userId).orElseThrow();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(3, summary.getItemCount());
+        assertEquals(2, summary.getDistinctProductCount());
+        assertEquals(new BigDecimal("2401.99"), summary.getSubtotal());
+
+        assertTrue(cartService.getCartSummary(fixtures.createUser("summary").getId()).isEmpty()); // カートがない場合
+    }
+
+    @Test
+    @DisplayName("修復ジョブは明細とずれた集計値だけを計算し直すこと")
+    void repairsDriftedSummaries() {
+        cartService.addProductToCart(userId, productA, 2);
+        Long otherUserId = fixtures.createUser("summary").getId();
+        cartService.addProductToCart(otherUserId, productB, 4);
+        repairJob.repair(); // 他のテストの残りを除く
+
+        // 同時更新の競合や価格変更を模して、集計値をずらす
+        jdbcTemplate.update("UPDATE carts SET item_count = 99, subtotal = 1 WHERE user_id = ?", userId);
+        jdbcTemplate.update("UPDATE products SET price = 1.25 WHERE id = ?", productB);
+
+        assertEquals(2, repairJob.repair());
+        assertSummaryMatchesCart();
+        assertEquals(new BigDecimal("5.00"), cartService.getCartSummary(otherUserId).orElseThrow().getSubtotal());
+        assertEquals(0, repairJob.repair());
+    }
+
+    @Test
+    @DisplayName("商品の価格を変更すると、その商品を含むカートの集計値が新しい価格で計算し直されること")
+    void priceChangeRecomputesSummaries() {
+        cartService.addProductToCart(userId, productA, 2);
+        cartService.addProductToCart(userId, productB, 1);
+
+        ProductDto product = productService.getProductById(productA).orElseThrow();
+        product.setPrice(new BigDecimal("1500.00"));
+        productService.updateProduct(productA, product);
+
+        assertEquals(new BigDecimal("3000.99"), cartService.getCartSummary(userId).orElseThrow().getSubtotal());
+        assertSummaryMatchesCart();
+        // 変更後の価格で差し引いても、小計がずれないこと
+        assertTrue(cartService.removeProductFromCart(userId, productA));
+        assertEquals(new BigDecimal("0.99"), cartService.getCartSummary(userId).orElseThrow().getSubtotal());
+        assertSummaryMatchesCart();
+    }
+
+    // 集計値が、明細と商品を読み込んで計算したカートの内容と一致することを確認する
+    private void assertSummaryMatchesCart() {
+        CartSummaryDto summary = cartService.getCartSummary(userId).orElseThrow();
+        CartDto cart = cartService.getCartByUserId(userId).orElseThrow();
+        assertEquals(cart.getId(), summary.getCartId());
+        assertEquals(cart.getCartItems().stream().mapToInt(CartItemDto::getQuantity).sum(), summary.getItemCount());
+        assertEquals(cart.getCartItems().size(), summary.getDistinctProductCount());
+        assertEquals(cart.getTotalPrice(), summary.getSubtotal());
+    }
+}
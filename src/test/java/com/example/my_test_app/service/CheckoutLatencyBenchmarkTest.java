@@ -0,0 +1,103 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.model.*;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.UserRepository;
+import com.example.my_test_app.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// カートの明細数に対するチェックアウト所要時間の伸び方を計測する
+// 実行方法: mvn test -Pbenchmark -Dtest=CheckoutLatencyBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("チェックアウト所要時間ベンチマーク")
+class CheckoutLatencyBenchmarkTest {
+
+    // MAX_CART_ITEMS(20)を超える明細数も、カートを直接作成して計測する
+    private static final int[] CART_SIZES = {1, 5, 10, 20, 50, 100};
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("チェックアウトの発行SQL数がカートの明細数に依存しないこと")
+    void checkoutLatencyByCartSize() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Product> products = createProducts(CART_SIZES[CART_SIZES.length - 1]);
+        Long userId = fixtures.createUser("checkout").getId();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            fillCart(userId, products, CART_SIZES[CART_SIZES.length - 1]);
+            orderService.createOrderFromCart(userId, "東京都新宿区");
+        }
+
+        System.out.println("cartSize, medianMs, p95Ms, statements");
+        Long baselineStatements = null;
+        for (int size : CART_SIZES) {
+            long[] nanos = new long[MEASURED_ROUNDS];
+            long statements = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                fillCart(userId, products, size);
+                statistics.clear();
+                long start = System.nanoTime();
+                OrderDetailDto order = orderService.createOrderFromCart(userId, "東京都新宿区");
+                nanos[i] = System.nanoTime() - start;
+                statements = statistics.getPrepareStatementCount();
+                assertEquals(size, order.getItems().size(), "cartSize=" + size);
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%d, %.3f, %.3f, %d%n", size,
+                    nanos[MEASURED_ROUNDS / 2] / 1_000_000.0,
+                    nanos[(int) (MEASURED_ROUNDS * 0.95)] / 1_000_000.0,
+                    statements);
+
+            if (baselineStatements == null) {
+                baselineStatements = statements;
+            }
+            assertEquals(baselineStatements, statements, "cartSize=" + size);
+        }
+    }
+
+    private void fillCart(Long userId, List<Product> products, int size) {
+        Cart cart = new Cart();
+        cart.setUser(userRepository.getReferenceById(userId));
+        for (int i = 0; i < size; i++) {
+            cart.addCartItem(new CartItem(cart, products.get(i), 1 + i % 3));
+        }
+        cartRepository.save(cart);
+    }
+
+    private List<Product> createProducts(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            products.add(fixtures.createProduct("ベンチマーク商品" + i, "1980.00"));
+        }
+        return products;
+    }
+}
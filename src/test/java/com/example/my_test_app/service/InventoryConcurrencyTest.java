@@ -0,0 +1,154 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.exceptions.OutOfStockException;
+import com.example.my_test_app.model.*;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.OrderItemRepository;
+import com.example.my_test_app.repository.ProductStockShardRepository;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("在庫引当の同時実行テスト")
+class InventoryConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private ProductStockShardRepository stockShardRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("在庫数を超える同時注文があっても売り越さず、在庫をすべて売り切ること")
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Product product = fixtures.createProduct("在庫テスト商品", "500.00");
+        inventoryService.setStock(product.getId(), 50, 8);
+        List<Long> userIds = createUsersWithCart(product, 200, i -> 1);
+
+        CheckoutResult result = checkoutConcurrently(userIds);
+
+        assertEquals(0, result.unexpectedErrors.get());
+        assertEquals(50, result.succeeded.get());
+        assertEquals(150, result.outOfStock.get());
+        assertEquals(0, inventoryService.getAvailable(product.getId()).orElseThrow());
+        assertTrue(stockShardRepository.findByProductIdOrderByShardNo(product.getId()).stream()
+                .allMatch(shard -> shard.getQuantity() >= 0));
+    }
+
+    @Test
+    @DisplayName("複数シャードにまたがる数量の注文でも、販売数と残り在庫の合計が初期在庫と一致すること")
+    void concurrentMultiQuantityCheckoutsKeepStockConsistent() throws Exception {
+        Product product = fixtures.createProduct("在庫テスト商品", "500.00");
+        inventoryService.setStock(product.getId(), 100, 4);
+        // 数量1〜30: 1シャード(25個)で賄えない注文も混ぜる
+        List<Long> userIds = createUsersWithCart(product, 60, i -> 1 + (i * 7) % 30);
+
+        CheckoutResult result = checkoutConcurrently(userIds);
+
+        int sold = orderItemRepository.findAll().stream()
+                .filter(item -> item.getProductId().equals(product.getId()))
+                .mapToInt(OrderItem::getQuantity)
+                .sum();
+        int remaining = inventoryService.getAvailable(product.getId()).orElseThrow();
+
+        assertEquals(0, result.unexpectedErrors.get());
+        assertTrue(result.succeeded.get() > 0);
+        assertEquals(100, sold + remaining);
+        assertTrue(stockShardRepository.findByProductIdOrderByShardNo(product.getId()).stream()
+                .allMatch(shard -> shard.getQuantity() >= 0));
+    }
+
+    @Test
+    @DisplayName("在庫行のない商品は在庫管理対象外として注文できること")
+    void unmanagedProductIsNotLimited() {
+        Product product = fixtures.createProduct("在庫テスト商品", "500.00");
+        Long userId = createUsersWithCart(product, 1, i -> 5).get(0);
+
+        OrderDetailDto order = orderService.createOrderFromCart(userId, "東京都新宿区");
+
+        assertEquals(1, order.getItems().size());
+        assertTrue(inventoryService.getAvailable(product.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("在庫不足の注文はロールバックされ、カートが残ること")
+    void outOfStockRollsBackCheckout() {
+        Product product = fixtures.createProduct("在庫テスト商品", "500.00");
+        inventoryService.setStock(product.getId(), 2, 2);
+        Long userId = createUsersWithCart(product, 1, i -> 3).get(0);
+
+        assertThrows(OutOfStockException.class, () -> orderService.createOrderFromCart(userId, "東京都新宿区"));
+
+        assertEquals(2, inventoryService.getAvailable(product.getId()).orElseThrow());
+        assertTrue(cartRepository.findByUserIdWithCartItems(userId).isPresent());
+    }
+
+    static class CheckoutResult {
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger outOfStock = new AtomicInteger();
+        final AtomicInteger unexpectedErrors = new AtomicInteger();
+    }
+
+    // 全スレッドを同時にスタートさせて各ユーザーのチェックアウトを実行する
+    private CheckoutResult checkoutConcurrently(List<Long> userIds) throws Exception {
+        CheckoutResult result = new CheckoutResult();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    startGate.await();
+                    try {
+                        orderService.createOrderFromCart(userId, "東京都新宿区");
+                        result.succeeded.incrementAndGet();
+                    } catch (OutOfStockException e) {
+                        result.outOfStock.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                        result.unexpectedErrors.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            startGate.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private List<Long> createUsersWithCart(Product product, int count, IntUnaryOperator quantityOf) {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            userIds.add(fixtures.createUserWithCart("stock", product, quantityOf.applyAsInt(i)));
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.exceptions.OutOfStockException;
+import com.example.my_test_app.model.*;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 人気商品1点に注文が集中したときのチェックアウトのスループットを、スレッド数・在庫シャード数ごとに計測する
+// 実行方法: mvn test -Pbenchmark -Dtest=InventoryThroughputBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("在庫引当スループットベンチマーク")
+class InventoryThroughputBenchmarkTest {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+    private static final int[] SHARD_COUNTS = {1, 8};
+    private static final int CHECKOUTS_PER_RUN = 400;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("スレッド数ごとのチェックアウト件数/秒（在庫は売り越さない）")
+    void checkoutThroughputByThreadCount() throws Exception {
+        Product product = fixtures.createProduct("タイムセール商品", "980.00");
+
+        // ウォームアップ
+        inventoryService.setStock(product.getId(), CHECKOUTS_PER_RUN, 8);
+        run(product, 8, CHECKOUTS_PER_RUN);
+
+        System.out.println("shards, threads, checkoutsPerSec, succeeded, outOfStock");
+        for (int shards : SHARD_COUNTS) {
+            for (int threads : THREAD_COUNTS) {
+                // 注文数の半分だけ在庫を用意し、売り切れ後の拒否も含めて計測する
+                int stock = CHECKOUTS_PER_RUN / 2;
+                inventoryService.setStock(product.getId(), stock, shards);
+                long start = System.nanoTime();
+                int[] result = run(product, threads, CHECKOUTS_PER_RUN);
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+                System.out.printf("%d, %d, %.1f, %d, %d%n", shards, threads,
+                        CHECKOUTS_PER_RUN / seconds, result[0], result[1]);
+
+                assertEquals(stock, result[0], "shards=" + shards + ", threads=" + threads);
+                assertEquals(0, inventoryService.getAvailable(product.getId()).orElseThrow());
+            }
+        }
+    }
+
+    // 戻り値: {成功件数, 在庫不足件数}
+    private int[] run(Product product, int threads, int checkouts) throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < checkouts; i++) {
+            userIds.add(fixtures.createUserWithCart("flash", product, 1));
+        }
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        orderService.createOrderFromCart(userId, "東京都新宿区");
+                        succeeded.incrementAndGet();
+                    } catch (OutOfStockException e) {
+                        outOfStock.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new int[]{succeeded.get(), outOfStock.get()};
+    }
+}
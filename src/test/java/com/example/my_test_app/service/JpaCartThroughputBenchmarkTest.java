@@ -0,0 +1,12 @@
+package com.example.my_test_app.service;
+
+import org.junit.jupiter.api.DisplayName;
+
+@DisplayName("カート操作スループットベンチマーク（即時反映）")
+class JpaCartThroughputBenchmarkTest extends AbstractCartThroughputBenchmarkTest {
+
+    @Override
+    protected String modeName() {
+        return "jpa";
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.exceptions.TooManyLoginAttemptsException;
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.repository.UserRepository;
+import com.example.my_test_app.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("ログイン試行回数の制限")
+class LoginThrottlingTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = fixtures.createUser("login", PASSWORD, "USER");
+    }
+
+    @Test
+    @DisplayName("ロックするまでのログインではusers行を更新しないこと")
+    void failedAndSuccessfulLoginsDoNotWriteUserRow() {
+        statistics.clear();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(userService.authenticateUser(user.getUsername(), "wrong-password").isEmpty());
+        }
+        assertTrue(userService.authenticateUser(user.getUsername(), PASSWORD).isPresent());
+
+        assertEquals(5, statistics.getPrepareStatementCount()); // ユーザー検索のみ
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertFalse(stored.isAccountLocked());
+        assertEquals(0, stored.getFailedLoginAttempts());
+    }
+
+    @Test
+    @DisplayName("5回失敗するとロックされ、正しいパスワードでも拒否されること")
+    void locksAfterFiveFailures() {
+        for (int i = 0; i < 5; i++) {
+            userService.authenticateUser(user.getUsername(), "wrong-password");
+        }
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertTrue(stored.isAccountLocked());
+        assertNotNull(stored.getLockTime());
+        assertEquals(5, stored.getFailedLoginAttempts());
+        assertTrue(userService.authenticateUser(user.getUsername(), PASSWORD).isEmpty());
+    }
+
+    @Test
+    @DisplayName("ロック期間が過ぎると解除され、ログインできること")
+    void expiredLockIsReleased() {
+        user.setAccountLocked(true);
+        user.setLockTime(new Date(System.currentTimeMillis() - 6 * 60 * 1000));
+        user.setFailedLoginAttempts(5);
+        userRepository.save(user);
+
+        assertTrue(userService.authenticateUser(user.getUsername(), PASSWORD).isPresent());
+
+        User stored = userRepository.findById(user.getId()).orElseThrow();
+        assertFalse(stored.isAccountLocked());
+        assertNull(stored.getLockTime());
+        assertEquals(0, stored.getFailedLoginAttempts());
+    }
+
+    @Test
+    @DisplayName("同じ接続元IPからの失敗が上限に達すると存在しないユーザー名でも拒否されること")
+    void blocksClientIpAfterTooManyFailures() {
+        String clientIp = "198.51.100." + (int) (Math.random() * 250);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(userService.authenticateUser("unknown-" + i, "wrong-password", clientIp).isEmpty());
+        }
+
+        assertThrows(TooManyLoginAttemptsException.class,
+                () -> userService.authenticateUser(user.getUsername(), PASSWORD, clientIp));
+        assertTrue(userService.authenticateUser(user.getUsername(), PASSWORD, "203.0.113.1").isPresent());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.my_test_app.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("N-gramトークナイザ")
+class NGramTokenizerTest {
+
+    @Test
+    @DisplayName("索引用トークンは区間ごとの1-gramと2-gramであること")
+    void indexTermsAreUnigramsAndBigrams() {
+        assertEquals(List.of("コ", "コー", "ー", "ーヒ", "ヒ", "ヒー", "ー"), NGramTokenizer.indexTerms("コーヒー"));
+    }
+
+    @Test
+    @DisplayName("句読点・空白・記号で区間が分かれ、区間をまたぐトークンは生成しないこと")
+    void splitsOnPunctuation() {
+        List<String> terms = NGramTokenizer.indexTerms("豆、200g。");
+        assertEquals(List.of("豆", "2", "20", "0", "00", "0", "0g", "g"), terms);
+        assertFalse(terms.contains("豆2"));
+    }
+
+    @Test
+    @DisplayName("全角英数字・半角カナ・大文字はNFKC正規化と小文字化で統一されること")
+    void normalizesWidthAndCase() {
+        assertEquals(NGramTokenizer.queryTerms("tシャツ"), NGramTokenizer.queryTerms("Ｔｼｬﾂ"));
+        assertEquals(NGramTokenizer.queryTerms("tシャツ"), NGramTokenizer.queryTerms("Tシャツ"));
+    }
+
+    @Test
+    @DisplayName("検索キーワードは2-gramのみ、1文字の区間は1-gramになること")
+    void queryTerms() {
+        assertEquals(List.of("シャ", "ャツ"), List.copyOf(NGramTokenizer.queryTerms("シャツ")));
+        assertEquals(List.of("豆"), List.copyOf(NGramTokenizer.queryTerms(" 豆 ")));
+        assertTrue(NGramTokenizer.queryTerms("、。 !").isEmpty());
+    }
+}
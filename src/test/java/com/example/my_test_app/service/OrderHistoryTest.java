@@ -0,0 +1,109 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.dto.OrderSummaryDto;
+import com.example.my_test_app.dto.OrderSummaryPageDto;
+import com.example.my_test_app.exceptions.ResourceNotFoundException;
+import com.example.my_test_app.model.*;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.UserRepository;
+import com.example.my_test_app.support.TestFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("注文履歴のページング")
+class OrderHistoryTest {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Statistics statistics;
+    private Long userId;
+    private List<Long> orderIds;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userId = fixtures.createUser("history").getId();
+        Product productA = fixtures.createProduct("商品A", "1000.00");
+        Product productB = fixtures.createProduct("商品B", "1000.00");
+
+        // 明細2行の注文を5件作成
+        orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Cart cart = new Cart();
+            cart.setUser(userRepository.getReferenceById(userId));
+            cart.addCartItem(new CartItem(cart, productA, 1));
+            cart.addCartItem(new CartItem(cart, productB, 2));
+            cartRepository.save(cart);
+            orderIds.add(orderService.createOrderFromCart(userId, "東京都新宿区").getId());
+        }
+    }
+
+    @Test
+    @DisplayName("新しい順にカーソルで全件をたどれ、各ページが1ステートメントで取得されること")
+    void pagesThroughHistoryNewestFirst() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            OrderSummaryPageDto page = orderService.getOrderHistory(userId, cursor, 2);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            for (OrderSummaryDto summary : page.getItems()) {
+                assertEquals(2L, summary.getItemCount());
+                assertEquals(new BigDecimal("3000.00"), summary.getTotalAmount());
+                seen.add(summary.getId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(orderIds.reversed(), seen);
+    }
+
+    @Test
+    @DisplayName("注文のないユーザーは空のリスト、存在しないユーザーは例外になること")
+    void emptyHistoryAndUnknownUser() {
+        Long otherUserId = fixtures.createUser("history").getId();
+        assertTrue(orderService.getOrderHistory(otherUserId, null, 20).getItems().isEmpty());
+        assertThrows(ResourceNotFoundException.class, () -> orderService.getOrderHistory(-1L, null, 20));
+    }
+
+    @Test
+    @DisplayName("不正なカーソルはIllegalArgumentExceptionになること")
+    void invalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrderHistory(userId, "not-a-cursor", 20));
+    }
+
+    @Test
+    @DisplayName("注文詳細は明細込みで1ステートメントで取得されること")
+    void orderDetailFetchesItemsInOneStatement() {
+        statistics.clear();
+        OrderDetailDto detail = orderService.getOrderById(orderIds.get(0)).orElseThrow();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(userId, detail.getUserId());
+        assertEquals(2, detail.getItems().size());
+    }
+}
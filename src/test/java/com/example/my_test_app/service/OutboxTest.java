@@ -0,0 +1,126 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.model.Order;
+import com.example.my_test_app.model.OutboxEvent;
+import com.example.my_test_app.repository.OrderRepository;
+import com.example.my_test_app.repository.OutboxEventRepository;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"app.outbox.max-attempts=2", "app.outbox.retry-backoff=0s"})
+@ActiveProfiles("test")
+@Import(OutboxTest.FailingHandlerConfig.class)
+@DisplayName("アウトボックスと注文後の非同期処理")
+class OutboxTest {
+
+    private static final String FAILING = "TEST_FAILING";
+
+    @TestConfiguration
+    static class FailingHandlerConfig {
+        @Bean
+        OutboxEventHandler failingHandler() {
+            return new OutboxEventHandler() {
+                @Override
+                public String eventType() {
+                    return FAILING;
+                }
+
+                @Override
+                public void handle(OutboxEvent event) {
+                    throw new IllegalStateException("外部サービスが応答しません");
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    @DisplayName("注文と同じトランザクションで依頼が書き込まれ、決済・通知の順に処理されること")
+    void processesOrderPipeline() {
+        Long userId = fixtures.createUserWithCart(
+                "outbox", fixtures.createProduct("アウトボックス商品", "1500.00"), 2);
+
+        OrderDetailDto order = orderService.createOrderFromCart(userId, "東京都新宿区");
+
+        // チェックアウトの応答時点では後続処理は行われていない
+        assertEquals("PENDING", order.getPaymentStatus());
+        assertEquals(List.of(OutboxService.ORDER_PLACED), eventTypes(order.getId(), OutboxEvent.Status.PENDING));
+
+        outboxDispatcher.dispatch(); // 決済
+        assertEquals("PAID", orderRepository.findById(order.getId()).map(Order::getPaymentStatus).orElseThrow());
+        assertEquals(List.of(OutboxService.ORDER_PAID), eventTypes(order.getId(), OutboxEvent.Status.PENDING));
+
+        outboxDispatcher.dispatch(); // 注文確認の通知
+        assertEquals("CONFIRMED", orderRepository.findById(order.getId()).map(Order::getOrderStatus).orElseThrow());
+        assertEquals(List.of(OutboxService.ORDER_PLACED, OutboxService.ORDER_PAID),
+                eventTypes(order.getId(), OutboxEvent.Status.DONE));
+    }
+
+    @Test
+    @DisplayName("失敗したイベントは再試行され、上限に達すると FAILED になること")
+    void retriesAndGivesUp() {
+        Long aggregateId = System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> outboxService.enqueue(FAILING, aggregateId, Map.of("test", true)));
+
+        outboxDispatcher.dispatch();
+        OutboxEvent event = findEvent(aggregateId);
+        assertEquals(OutboxEvent.Status.PENDING, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertTrue(event.getLastError().contains("外部サービスが応答しません"));
+        assertNull(event.getClaimToken());
+
+        outboxDispatcher.dispatch();
+        event = findEvent(aggregateId);
+        assertEquals(OutboxEvent.Status.FAILED, event.getStatus());
+        assertEquals(2, event.getAttempts());
+
+        outboxDispatcher.dispatch(); // FAILED のイベントは処理しない
+        assertEquals(2, findEvent(aggregateId).getAttempts());
+    }
+
+    private List<String> eventTypes(Long orderId, OutboxEvent.Status status) {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.getAggregateId().equals(orderId) && event.getStatus() == status)
+                .sorted(Comparator.comparing(OutboxEvent::getId))
+                .map(OutboxEvent::getEventType)
+                .toList();
+    }
+
+    private OutboxEvent findEvent(Long aggregateId) {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.getEventType().equals(FAILING) && event.getAggregateId().equals(aggregateId))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.model.OrderItem;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("金額計算")
+class PricingEngineTest {
+
+    @Test
+    @DisplayName("最小単位で積算するため、doubleでは誤差の出る金額も正確に合計できること")
+    void sumsExactly() {
+        long total = 0;
+        for (int i = 0; i < 10; i++) {
+            total = PricingEngine.addLine(total, new BigDecimal("0.10"), 1);
+        }
+        total = PricingEngine.addLine(total, new BigDecimal("0.20"), 3);
+        assertEquals(new BigDecimal("1.60"), PricingEngine.toAmount(total));
+    }
+
+    @Test
+    @DisplayName("小数2桁以下の金額はそのまま、3桁以上は銀行型丸めで最小単位に変換されること")
+    void convertsToMinorUnits() {
+        assertEquals(1500, PricingEngine.toMinorUnits(new BigDecimal("15")));
+        assertEquals(1550, PricingEngine.toMinorUnits(new BigDecimal("15.5")));
+        assertEquals(1234, PricingEngine.toMinorUnits(new BigDecimal("12.345")));
+        assertEquals(1236, PricingEngine.toMinorUnits(new BigDecimal("12.355")));
+        assertEquals(new BigDecimal("12.34"), PricingEngine.toAmount(1234));
+    }
+
+    @Test
+    @DisplayName("合計が long の範囲を超える場合は例外になること")
+    void detectsOverflow() {
+        assertThrows(ArithmeticException.class,
+                () -> PricingEngine.addLine(Long.MAX_VALUE - 1, new BigDecimal("0.02"), 1));
+        assertThrows(ArithmeticException.class,
+                () -> PricingEngine.addLine(0, new BigDecimal("99999999.99"), Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("同じ明細のカートの合計金額と注文の合計金額が一致すること")
+    void cartAndOrderTotalsMatch() {
+        User user = new User();
+        user.setId(1L);
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        List<OrderItem> orderItems = new ArrayList<>();
+        String[] prices = {"0.10", "19.99", "1280", "333.33", "0.07"};
+        for (int i = 0; i < prices.length; i++) {
+            Product product = new Product();
+            product.setId((long) i + 1);
+            product.setName("商品" + i);
+            product.setPrice(new BigDecimal(prices[i]));
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(i + 3);
+            cart.getCartItems().add(item);
+            orderItems.add(new OrderItem(product.getId(), product.getName(), product.getPrice(), item.getQuantity()));
+        }
+        CartService cartService = new CartService(null, null, null, null, new ProductService(null, null), new SimpleMeterRegistry());
+
+        BigDecimal cartTotal = cartService.convertToCartDto(cart).getTotalPrice();
+        assertEquals(new BigDecimal("8480.73"), cartTotal);
+        assertEquals(cartTotal, OrderService.calculateTotalAmount(orderItems));
+    }
+}
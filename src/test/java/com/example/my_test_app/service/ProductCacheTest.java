@@ -0,0 +1,136 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.config.CacheConfig;
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.model.ProductType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 商品詳細・商品一覧のキャッシュのヒットと、作成・更新・削除による更新/無効化
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("商品キャッシュ")
+class ProductCacheTest {
+
+    // 一覧のキャッシュを確認する検索条件 (キーは getProductPage の全引数)
+    private static final SimpleKey PAGE_KEY = new SimpleKey(null, null, null, ProductService.SORT_BY_ID, null, 5);
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Cache products;
+    private Cache productPages;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        products = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        productPages = cacheManager.getCache(CacheConfig.PRODUCT_PAGES_CACHE);
+    }
+
+    @Test
+    @DisplayName("2回目以降の商品詳細・商品一覧の取得はDBにアクセスしないこと")
+    void repeatedReadsHitCache() {
+        ProductDto product = create("キャッシュ商品");
+        productService.getProductById(product.getId());
+        readPage();
+
+        statistics.clear();
+        assertEquals("キャッシュ商品", productService.getProductById(product.getId()).orElseThrow().getName());
+        readPage();
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("作成・更新した商品はキャッシュに登録され、一覧のキャッシュは無効化されること")
+    void createAndUpdateRefreshCaches() {
+        ProductDto product = create("登録した商品");
+        assertEquals("登録した商品", cachedProduct(product.getId()).getName());
+
+        readPage();
+        assertNotNull(productPages.get(PAGE_KEY));
+        product.setName("更新した商品");
+        productService.updateProduct(product.getId(), product);
+
+        assertNull(productPages.get(PAGE_KEY));
+        statistics.clear();
+        assertEquals("更新した商品", productService.getProductById(product.getId()).orElseThrow().getName());
+        assertEquals(0, statistics.getPrepareStatementCount()); // 更新結果がキャッシュに入っている
+    }
+
+    @Test
+    @DisplayName("削除した商品はキャッシュから取り除かれること")
+    void deleteEvictsCaches() {
+        ProductDto product = create("削除する商品");
+        productService.getProductById(product.getId());
+        readPage();
+
+        productService.deleteProduct(product.getId());
+
+        assertNull(products.get(product.getId()));
+        assertNull(productPages.get(PAGE_KEY));
+        assertTrue(productService.getProductById(product.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("ロールバックした更新・削除ではキャッシュを変更しないこと")
+    void rollbackKeepsCaches() {
+        ProductDto product = create("ロールバック商品");
+        productService.getProductById(product.getId());
+        readPage();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            ProductDto changed = new ProductDto(product.getId(), "ロールバックされる名前", product.getDescription(),
+                    product.getPrice(), product.getType(), null);
+            productService.updateProduct(product.getId(), changed);
+            // コミットまではキャッシュを書き換えない
+            assertEquals("ロールバック商品", cachedProduct(product.getId()).getName());
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.deleteProduct(product.getId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals("ロールバック商品", cachedProduct(product.getId()).getName());
+        assertNotNull(productPages.get(PAGE_KEY));
+        assertEquals("ロールバック商品", productService.getProductById(product.getId()).orElseThrow().getName());
+    }
+
+    private ProductDto cachedProduct(Long id) {
+        Cache.ValueWrapper cached = products.get(id);
+        assertNotNull(cached, "not cached: " + id);
+        return (ProductDto) cached.get();
+    }
+
+    private void readPage() {
+        productService.getProductPage(null, null, null, ProductService.SORT_BY_ID, null, 5);
+    }
+
+    private ProductDto create(String name) {
+        return productService.createProduct(new ProductDto(null, name, name + "の説明",
+                new BigDecimal("1000.00"), ProductType.ONE_TIME, null));
+    }
+}
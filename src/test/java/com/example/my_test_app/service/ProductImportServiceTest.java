@@ -0,0 +1,137 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.dto.ProductImportResultDto;
+import com.example.my_test_app.model.ProductType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("商品の一括インポート・エクスポート")
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Test
+    @DisplayName("CSVの引用符付きの値を解析し、不正な行だけを読み飛ばすこと")
+    void importsCsvAndSkipsInvalidRows() throws InterruptedException {
+        String word = "取込" + UUID.randomUUID().toString().substring(0, 8);
+        String csv = """
+                name,description,price,type,imageUrl
+                "%1$s, 大容量","1行目
+                2行目",1200.50,ONE_TIME,
+                %1$s 定期便,毎月お届け,980,subscription,https://example.com/a.png
+                ,商品名なし,100,ONE_TIME,
+                %1$s 価格不正,説明,abc,ONE_TIME,
+                """.formatted(word);
+
+        ProductImportResultDto result = productImportService.importProducts(stream(csv), ProductFileFormat.CSV);
+
+        assertEquals(2, result.getCreated());
+        assertEquals(0, result.getUpdated());
+        assertEquals(2, result.getFailed());
+        // 行番号はレコード単位 (表計算ソフトの行番号と同じく、引用符内の改行では増えない)
+        assertTrue(result.getErrors().get(0).startsWith("4行目: name"), result.getErrors().get(0));
+        assertTrue(result.getErrors().get(1).startsWith("5行目: price"), result.getErrors().get(1));
+
+        // 取り込んだ商品は (取り込みの完了後に別スレッドで作り直される) 検索索引にも反映される
+        List<ProductDto> found = awaitSearch(word, 2);
+        assertEquals(2, found.size());
+        ProductDto large = found.stream().filter(product -> product.getName().endsWith("大容量")).findFirst().orElseThrow();
+        assertEquals("1行目\n2行目", large.getDescription());
+        assertEquals(new BigDecimal("1200.50"), large.getPrice());
+    }
+
+    @Test
+    @DisplayName("NDJSONの id 付きの行で既存商品を更新すること")
+    void updatesExistingProductsFromNdjson() {
+        ProductDto existing = productService.createProduct(new ProductDto(null, "更新前の商品", "説明",
+                new BigDecimal("500.00"), ProductType.ONE_TIME, null));
+        String ndjson = """
+                {"id": %d, "name": "更新後の商品", "description": "新しい説明", "price": 650, "type": "ONE_TIME"}
+                {"id": 999999999, "name": "存在しない商品", "price": 100, "type": "ONE_TIME"}
+                {"name": "壊れた行"
+                """.formatted(existing.getId());
+
+        ProductImportResultDto result = productImportService.importProducts(stream(ndjson), ProductFileFormat.NDJSON);
+
+        assertEquals(0, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(2, result.getFailed());
+        ProductDto updated = productService.getProductById(existing.getId()).orElseThrow();
+        assertEquals("更新後の商品", updated.getName());
+        assertEquals(0, new BigDecimal("650").compareTo(updated.getPrice())); // キャッシュも破棄されている
+    }
+
+    @Test
+    @DisplayName("形式が壊れていて中断した場合も、取り込み済みの商品のキャッシュを破棄すること")
+    void evictsCachesWhenImportFails() {
+        ProductDto existing = productService.createProduct(new ProductDto(null, "中断前の商品", "説明",
+                new BigDecimal("500.00"), ProductType.ONE_TIME, null));
+        productService.getProductById(existing.getId()); // キャッシュに載せる
+        String csv = """
+                id,name,description,price,type,imageUrl
+                %d,中断後の商品,説明,700,ONE_TIME,
+                ,"閉じていない引用符,説明,100,ONE_TIME,
+                """.formatted(existing.getId());
+
+        assertThrows(UncheckedIOException.class,
+                () -> productImportService.importProducts(stream(csv), ProductFileFormat.CSV));
+
+        assertEquals("中断後の商品", productService.getProductById(existing.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("エクスポートした内容をそのまま取り込み直せること")
+    void exportRoundTrips() {
+        for (ProductFileFormat format : ProductFileFormat.values()) {
+            ByteArrayOutputStream exported = new ByteArrayOutputStream();
+            productImportService.exportProducts(exported, format);
+            String content = exported.toString(StandardCharsets.UTF_8);
+            assertTrue(content.contains("コーヒー豆"), format.name());
+
+            ProductImportResultDto result = productImportService.importProducts(
+                    new ByteArrayInputStream(exported.toByteArray()), format);
+
+            assertEquals(0, result.getCreated(), format.name());
+            assertEquals(0, result.getFailed(), format.name() + ": " + result.getErrors());
+            assertTrue(result.getUpdated() > 0, format.name());
+        }
+    }
+
+    // 検索索引の作り直しを待って検索する (最大10秒)
+    private List<ProductDto> awaitSearch(String word, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<ProductDto> found = productSearchService.search(word, 10);
+        while (found.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            found = productSearchService.search(word, 10);
+        }
+        return found;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.dto.ProductPageDto;
+import com.example.my_test_app.model.ProductType;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("商品一覧のキーセットページング")
+class ProductPageTest {
+
+    // テストごとに他の商品と重ならない価格帯を使う（キャッシュのキーも重ならない）
+    private static final AtomicInteger PRICE_RANGES = new AtomicInteger();
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setup() {
+        minPrice = BigDecimal.valueOf(1_000_000 + PRICE_RANGES.incrementAndGet() * 100L, 0);
+        maxPrice = minPrice.add(new BigDecimal("99.99"));
+        // 同じ価格の商品を含め、IDの順と価格の順が異なるように作成する
+        String[] offsets = {"30.00", "10.00", "20.00", "10.00", "0.50"};
+        productIds = new ArrayList<>();
+        for (int i = 0; i < offsets.length; i++) {
+            productIds.add(fixtures.createProduct("ページング" + i, minPrice.add(new BigDecimal(offsets[i])).toString()).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("id順のページを辿ると価格帯の商品をID昇順ですべて取得できること")
+    void pagesOrderedById() {
+        List<ProductDto> items = readAll(null, "id", 2);
+
+        assertEquals(productIds, items.stream().map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @DisplayName("価格順のページを辿ると価格・ID昇順ですべて取得でき、同じ価格の商品も欠けないこと")
+    void pagesOrderedByPrice() {
+        List<ProductDto> items = readAll(null, "price", 2);
+
+        List<Long> expected = List.of(productIds.get(4), productIds.get(1), productIds.get(3), productIds.get(2), productIds.get(0));
+        assertEquals(expected, items.stream().map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @DisplayName("指定した条件だけで絞り込まれること")
+    void filtersOnlyByGivenConditions() {
+        assertEquals(5, readAll(ProductType.ONE_TIME, "id", 10).size());
+        assertTrue(readAll(ProductType.SUBSCRIPTION, "price", 10).isEmpty());
+
+        // 下限だけを指定（種別・上限の条件なし）
+        ProductPageDto page = productService.getProductPage(null, minPrice.add(new BigDecimal("10.00")), null, "id", null, 10);
+        assertEquals(List.of(productIds.get(0), productIds.get(1), productIds.get(2), productIds.get(3)),
+                page.getItems().stream().map(ProductDto::getId).toList());
+    }
+
+    private List<ProductDto> readAll(ProductType type, String sort, int size) {
+        List<ProductDto> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductPageDto page = productService.getProductPage(type, minPrice, maxPrice, sort, cursor, size);
+            assertTrue(page.getItems().size() <= size);
+            items.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return items;
+    }
+}
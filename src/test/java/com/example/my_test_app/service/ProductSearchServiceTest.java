@@ -0,0 +1,80 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.model.ProductType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("商品の全文検索")
+class ProductSearchServiceTest {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    @DisplayName("起動時にテスト用の初期データ (afterMigrate.sql) の商品が索引されていること")
+    void indexesSeededProducts() {
+        List<ProductDto> results = productSearchService.search("コーヒー", 10);
+        assertTrue(results.stream().anyMatch(product -> product.getName().equals("コーヒー豆")));
+    }
+
+    @Test
+    @DisplayName("商品名での一致が商品説明での一致より上位になること")
+    void ranksNameMatchesFirst() {
+        // 他のテストの商品と衝突しないよう、固有の語を含める
+        String word = "検索語" + UUID.randomUUID().toString().substring(0, 8);
+        ProductDto inDescription = create("説明のみ一致", "この商品の説明には" + word + "を含みます。");
+        ProductDto inName = create(word + "セット", "説明には含みません。");
+
+        List<ProductDto> results = productSearchService.search(word, 10);
+
+        assertEquals(List.of(inName.getId(), inDescription.getId()), results.stream().map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @DisplayName("全てのキーワードを含む商品だけが一致すること")
+    void requiresAllTerms() {
+        String word = "限定" + UUID.randomUUID().toString().substring(0, 8);
+        ProductDto both = create(word + " 緑茶", "静岡産の茶葉です。");
+        create(word + " 紅茶", "インド産の茶葉です。");
+
+        List<ProductDto> results = productSearchService.search(word + " 静岡", 10);
+
+        assertEquals(List.of(both.getId()), results.stream().map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @DisplayName("商品の更新・削除が索引に反映されること")
+    void updatesIndexIncrementally() {
+        String before = "旧名" + UUID.randomUUID().toString().substring(0, 8);
+        String after = "新名" + UUID.randomUUID().toString().substring(0, 8);
+        ProductDto product = create(before, "更新テスト用の商品です。");
+        assertEquals(1, productSearchService.search(before, 10).size());
+
+        product.setName(after);
+        productService.updateProduct(product.getId(), product);
+        assertTrue(productSearchService.search(before, 10).isEmpty());
+        assertEquals(1, productSearchService.search(after, 10).size());
+
+        productService.deleteProduct(product.getId());
+        assertTrue(productSearchService.search(after, 10).isEmpty());
+    }
+
+    private ProductDto create(String name, String description) {
+        return productService.createProduct(new ProductDto(null, name, description,
+                new BigDecimal("1000.00"), ProductType.ONE_TIME, null));
+    }
+}
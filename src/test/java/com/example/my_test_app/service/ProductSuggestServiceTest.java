@@ -0,0 +1,110 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.ProductDto;
+import com.example.my_test_app.dto.ProductSuggestionDto;
+import com.example.my_test_app.model.ProductType;
+import com.example.my_test_app.repository.ProductRepository;
+import com.example.my_test_app.support.TestFixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("商品名サジェスト")
+class ProductSuggestServiceTest {
+
+    @Autowired
+    private ProductSuggestService productSuggestService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TestFixtures fixtures;
+
+    // 他のテストの商品と衝突しないよう、テストごとに固有の接頭辞を使う
+    private String prefix;
+
+    @BeforeEach
+    void setup() {
+        prefix = "zz" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Test
+    @DisplayName("累計注文数量の多い商品が先に候補になること")
+    void ranksByPopularity() {
+        ProductDto standard = create(prefix + " スタンダード");
+        ProductDto premium = create(prefix + " プレミアム");
+        ProductDto light = create(prefix + " ライト");
+        order(premium, 3);
+        order(light, 1);
+        productSuggestService.rebuild(); // 人気順を反映
+
+        List<Long> ids = ids(productSuggestService.suggest(prefix, 10));
+
+        assertEquals(List.of(premium.getId(), light.getId(), standard.getId()), ids);
+    }
+
+    @Test
+    @DisplayName("全角・大文字の入力や単語の途中の先頭からでも一致し、件数の上限が守られること")
+    void matchesNormalizedPrefixAndWordStarts() {
+        ProductDto product = create("特選 " + prefix + "ブレンド");
+        for (int i = 0; i < 12; i++) {
+            create(prefix + " 商品" + i);
+        }
+
+        assertEquals(List.of(product.getId()), ids(productSuggestService.suggest(toFullWidth(prefix.toUpperCase()) + "ブ", 10)));
+        assertEquals(List.of(product.getId()), ids(productSuggestService.suggest("特選 " + prefix, 10)));
+        assertEquals(ProductSuggestService.MAX_SUGGESTIONS, productSuggestService.suggest(prefix, 100).size());
+        assertEquals(3, productSuggestService.suggest(prefix, 3).size());
+        assertTrue(productSuggestService.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("商品名の変更と削除が差分で反映されること")
+    void updatesIncrementally() {
+        ProductDto product = create(prefix + "旧名");
+        assertEquals(List.of(product.getId()), ids(productSuggestService.suggest(prefix + "旧", 10)));
+
+        product.setName(prefix + "新名");
+        productService.updateProduct(product.getId(), product);
+        assertTrue(productSuggestService.suggest(prefix + "旧", 10).isEmpty());
+        assertEquals(List.of(product.getId()), ids(productSuggestService.suggest(prefix, 10)));
+
+        productService.deleteProduct(product.getId());
+        assertTrue(productSuggestService.suggest(prefix, 10).isEmpty());
+    }
+
+    private ProductDto create(String name) {
+        return productService.createProduct(new ProductDto(null, name, name + "の説明",
+                new BigDecimal("1000.00"), ProductType.ONE_TIME, null));
+    }
+
+    private void order(ProductDto product, int quantity) {
+        Long userId = fixtures.createUserWithCart("suggest", productRepository.getReferenceById(product.getId()), quantity);
+        orderService.createOrderFromCart(userId, "東京都新宿区");
+    }
+
+    // 半角英数字を全角に変換する
+    private static String toFullWidth(String text) {
+        StringBuilder builder = new StringBuilder();
+        text.chars().forEach(c -> builder.append((char) (c - '!' + '！')));
+        return builder.toString();
+    }
+
+    private static List<Long> ids(List<ProductSuggestionDto> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDto::getId).toList();
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.my_test_app.service;
+
+import com.example.my_test_app.dto.CartDto;
+import com.example.my_test_app.dto.CartItemDto;
+import com.example.my_test_app.dto.CartOperationDto;
+import com.example.my_test_app.dto.OrderDetailDto;
+import com.example.my_test_app.exceptions.CartLimitExceededException;
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.UserRepository;
+import com.example.my_test_app.support.TestFixtures;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 定期書き出しは間隔を長くして止め、テストから flush() を呼んで書き出す
+@SpringBootTest(properties = {
+        "app.cart.write-behind.enabled=true",
+        "app.cart.write-behind.flush-interval=1h"})
+@ActiveProfiles("test")
+@DisplayName("書き込み遅延モードのカート")
+class WriteBehindCartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private WriteBehindCartService writeBehind;
+    private Long userId;
+
+    @BeforeEach
+    void setup() {
+        writeBehind = assertInstanceOf(WriteBehindCartService.class, cartService);
+        userId = fixtures.createUser("write-behind").getId();
+    }
+
+    @Test
+    @DisplayName("カート操作はDBを使わずに完結し、書き出し時に明細ごとの最終状態だけが書き込まれること")
+    void coalescesChangesUntilFlush() {
+        Long productA = fixtures.createProduct("商品A", "1000.00").getId();
+        Long productB = fixtures.createProduct("商品B", "1000.00").getId();
+        cartService.addProductToCart(userId, productA, 1); // カートの作成と商品の読み込み
+        cartService.addProductToCart(userId, productB, 1);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        cartService.addProductToCart(userId, productA, 2);
+        cartService.updateCartItemQuantity(userId, productA, 5);
+        assertTrue(cartService.removeProductFromCart(userId, productB));
+        CartDto cart = cartService.getCartByUserId(userId).orElseThrow();
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        assertEquals(1, cart.getCartItems().size());
+        assertEquals(5, cart.getCartItems().get(0).getQuantity());
+        assertEquals(new BigDecimal("5000.00"), cart.getTotalPrice());
+        assertTrue(storedQuantities().isEmpty()); // 書き出し前
+
+        writeBehind.flush();
+        assertEquals(Map.of(productA, 5), storedQuantities());
+
+        cartService.updateCartItemQuantity(userId, productA, 3);
+        writeBehind.flush();
+        assertEquals(Map.of(productA, 3), storedQuantities()); // 同じ明細を更新する (重複して追加しない)
+
+        // 集計値はメモリ上のカートから計算し、書き出し時にDBのカート行にも反映される
+        cartService.addProductToCart(userId, productB, 2);
+        assertEquals(5, cartService.getCartSummary(userId).orElseThrow().getItemCount());
+        writeBehind.flush();
+        CartRepository.CartSummaryView stored = cartRepository.findSummaryByUserId(userId).orElseThrow();
+        assertEquals(5, stored.getItemCount());
+        assertEquals(2, stored.getDistinctProductCount());
+        assertEquals(0, new BigDecimal("5000.00").compareTo(stored.getSubtotal()));
+    }
+
+    @Test
+    @DisplayName("商品の種類数の上限をメモリ上で判定すること")
+    void enforcesItemLimitInMemory() {
+        for (int i = 0; i < CartService.MAX_CART_ITEMS; i++) {
+            cartService.addProductToCart(userId, fixtures.createProduct("上限" + i, "1000.00").getId(), 1);
+        }
+        Long overLimit = fixtures.createProduct("上限超過", "1000.00").getId();
+
+        assertThrows(CartLimitExceededException.class, () -> cartService.addProductToCart(userId, overLimit, 1));
+        writeBehind.flush();
+        assertEquals(CartService.MAX_CART_ITEMS, storedQuantities().size());
+    }
+
+    @Test
+    @DisplayName("注文確定の前にメモリ上の変更が書き出され、注文後はカートが空になること")
+    void flushesBeforeCheckout() {
+        Long productId = fixtures.createProduct("注文商品", "1000.00").getId();
+        cartService.addProductToCart(userId, productId, 2);
+        cartService.addProductToCart(userId, productId, 1);
+
+        OrderDetailDto order = orderService.createOrderFromCart(userId, "東京都新宿区");
+
+        assertEquals(1, order.getItems().size());
+        assertEquals(3, order.getItems().get(0).getQuantity());
+        assertTrue(cartService.getCartByUserId(userId).isEmpty());
+
+        // 注文後も新しいカートを使える
+        cartService.addProductToCart(userId, productId, 1);
+        writeBehind.flush();
+        assertEquals(Map.of(productId, 1), storedQuantities());
+    }
+
+    @Test
+    @DisplayName("DBにある既存のカートを読み込んで更新できること")
+    void loadsExistingCart() {
+        Product product = fixtures.createProduct("既存明細", "1000.00");
+        Cart cart = new Cart();
+        cart.setUser(userRepository.getReferenceById(userId));
+        CartItem item = new CartItem(cart, product, 1);
+        cart.addCartItem(item);
+        cartRepository.save(cart);
+
+        CartItemDto updated = cartService.updateCartItemQuantity(userId, product.getId(), 4).orElseThrow();
+        writeBehind.flush();
+
+        assertEquals(item.getId(), updated.getId());
+        assertEquals(Map.of(product.getId(), 4), storedQuantities());
+    }
+
+    @Test
+    @DisplayName("一括操作をメモリ上で適用し、書き出し時に最終状態だけが書き込まれること")
+    void appliesBatchInMemory() {
+        Long productA = fixtures.createProduct("一括A", "1000.00").getId();
+        Long productB = fixtures.createProduct("一括B", "1000.00").getId();
+        cartService.addProductToCart(userId, productA, 1);
+        writeBehind.flush();
+
+        CartDto cart = cartService.applyCartOperations(userId, List.of(
+                new CartOperationDto(CartOperationDto.Type.ADD, productB, 2),
+                new CartOperationDto(CartOperationDto.Type.REMOVE, productA, null),
+                new CartOperationDto(CartOperationDto.Type.UPDATE, productB, 5)));
+
+        assertEquals(List.of(productB), cart.getCartItems().stream().map(item -> item.getProduct().getId()).toList());
+        assertEquals(Map.of(productA, 1), storedQuantities()); // 書き出し前はDBを変更しない
+        writeBehind.flush();
+        assertEquals(Map.of(productB, 5), storedQuantities());
+    }
+
+    @Test
+    @DisplayName("メモリ上にないカートを同時に読み込んでも、1つのカートに全ての変更が反映されること")
+    void concurrentFirstAccessSharesOneCart() throws Exception {
+        Long productId = fixtures.createProduct("同時追加", "1000.00").getId();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cartService.addProductToCart(userId, productId, 1);
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        writeBehind.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE user_id = ?", Integer.class, userId));
+        assertEquals(Map.of(productId, threads), storedQuantities());
+    }
+
+    @Test
+    @DisplayName("削除された商品の明細は、メモリ上のカートから取り除かれ書き出されないこと")
+    void dropsLinesOfDeletedProducts() {
+        Long productA = fixtures.createProduct("削除されない商品", "1000.00").getId();
+        Long productB = fixtures.createProduct("削除される商品", "1000.00").getId();
+        cartService.addProductToCart(userId, productA, 1);
+        cartService.addProductToCart(userId, productB, 2); // メモリ上にだけある明細
+
+        productService.deleteProduct(productB);
+
+        CartDto cart = cartService.getCartByUserId(userId).orElseThrow();
+        assertEquals(List.of(productA), cart.getCartItems().stream().map(item -> item.getProduct().getId()).toList());
+        assertEquals(1, cartService.getCartSummary(userId).orElseThrow().getItemCount());
+        writeBehind.flush();
+        assertEquals(Map.of(productA, 1), storedQuantities());
+    }
+
+    @Test
+    @DisplayName("DBのカートが削除されていて書き出せない変更は、カートを破棄してDBから読み込み直すこと")
+    void discardsCartWhoseRowWasDeleted() {
+        Long productA = fixtures.createProduct("破棄A", "1000.00").getId();
+        Long productB = fixtures.createProduct("破棄B", "1000.00").getId();
+        cartService.addProductToCart(userId, productA, 1);
+        writeBehind.flush();
+        // メモリ上のカートの読み込みと並行して、別の経路で注文が確定してDBのカートが削除された状態
+        jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (SELECT id FROM carts WHERE user_id = ?)", userId);
+        jdbcTemplate.update("DELETE FROM carts WHERE user_id = ?", userId);
+        cartService.addProductToCart(userId, productB, 1);
+        double discarded = meterRegistry.counter("app.cart.write-behind.discarded").count();
+
+        writeBehind.flush();
+
+        assertEquals(discarded + 1, meterRegistry.counter("app.cart.write-behind.discarded").count());
+        assertTrue(cartService.getCartByUserId(userId).isEmpty());
+        cartService.addProductToCart(userId, productB, 3);
+        writeBehind.flush();
+        assertEquals(Map.of(productB, 3), storedQuantities());
+    }
+
+    // DB上のカート明細 (商品ID -> 数量)
+    private Map<Long, Integer> storedQuantities() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT ci.product_id, ci.quantity FROM cart_items ci JOIN carts c ON c.id = ci.cart_id WHERE c.user_id = ?",
+                userId);
+        return rows.stream().collect(Collectors.toMap(
+                row -> ((Number) row.get("product_id")).longValue(),
+                row -> ((Number) row.get("quantity")).intValue()));
+    }
+}
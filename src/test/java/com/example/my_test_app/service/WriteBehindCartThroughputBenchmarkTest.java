@@ -0,0 +1,19 @@
+package com.example.my_test_app.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "app.cart.write-behind.enabled=true")
+@DisplayName("カート操作スループットベンチマーク（書き込み遅延）")
+class WriteBehindCartThroughputBenchmarkTest extends AbstractCartThroughputBenchmarkTest {
+
+    @Override
+    protected String modeName() {
+        return "write-behind";
+    }
+
+    @Override
+    protected void flush() {
+        ((WriteBehindCartService) cartService).flush();
+    }
+}
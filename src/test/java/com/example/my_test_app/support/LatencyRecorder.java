@@ -0,0 +1,63 @@
+package com.example.my_test_app.support;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 負荷テスト用のレイテンシ記録。複数スレッドから同時に record できる。
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private final ConcurrentLinkedQueue<Long> samples = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        samples.add(nanos);
+    }
+
+    // 失敗したリクエスト（レイテンシは record で別途記録する）
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int errors() {
+        return errors.get();
+    }
+
+    public int count() {
+        return samples.size();
+    }
+
+    /**
+     * @param percentile 0〜100
+     * @return 指定パーセンタイルのレイテンシ (ミリ秒)
+     */
+    public double percentileMillis(double percentile) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * @param elapsedNanos 計測期間
+     * @return 「名前, 件数, エラー件数, 件数/秒, p50, p99」の1行
+     */
+    public String summary(long elapsedNanos) {
+        return String.format("%s, %d, %d, %.1f, %.2f, %.2f", name, count(), errors(),
+                count() / (elapsedNanos / 1_000_000_000.0), percentileMillis(50), percentileMillis(99));
+    }
+}
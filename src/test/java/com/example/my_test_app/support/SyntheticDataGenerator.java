@@ -0,0 +1,337 @@
+package com.example.my_test_app.support;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 負荷テスト・性能調査用の合成データ生成。
+ * users / products (在庫シャードを含む) / carts・cart_items / orders・order_items に、本番に近い分布のデータを
+ * JDBCバッチで投入する。商品の人気はZipf分布（少数の人気商品に注文・カートが集中する）、注文日時は過去2年間に分布させる。
+ * 親テーブルのIDは既存の最大値の続きを採番して明示的に指定し、投入後に自動採番の開始値を合わせる（H2 / MySQL）。
+ * 同じシードからは同じデータを生成する。全ユーザーのパスワードは引数のハッシュを共有する。
+ *
+ * <p>例: {@code new SyntheticDataGenerator(jdbcTemplate, 42).generate(Sizes.of(1_000_000, 50_000), passwordHash)}
+ * で約1,000万行 (注文約300万件・注文明細約600万件) を生成する。
+ */
+public class SyntheticDataGenerator {
+
+    private static final int BATCH_SIZE = 2_000;
+    private static final int STOCK_SHARDS = 8;
+    private static final int STOCK_PER_SHARD = 1_000_000; // 負荷テスト中に在庫切れにならない数量
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    private static final String[] ADJECTIVES = {
+            "オーガニック", "プレミアム", "定番", "限定", "国産", "北欧風", "軽量", "大容量", "ヴィンテージ", "シンプル"};
+    private static final String[] CATEGORIES = {
+            "コーヒー豆", "紅茶", "Tシャツ", "パーカー", "マグカップ", "トートバッグ", "スニーカー", "ノート", "ボールペン",
+            "ヘッドホン", "モバイルバッテリー", "ヨガマット", "ランチボックス", "タオル", "キャンドル"};
+    private static final int[] CATEGORY_BASE_PRICES = {
+            1500, 1200, 2500, 4800, 1800, 2200, 9800, 600, 300, 12800, 3980, 3500, 1600, 1200, 2000};
+    private static final String[] SUBSCRIPTIONS = {"月額マガジン", "オンラインフィットネス", "定期便", "動画配信", "学習コース"};
+    private static final String[] PREFECTURES = {"東京都", "大阪府", "神奈川県", "愛知県", "福岡県", "北海道", "京都府", "宮城県"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    /**
+     * 生成するデータ量。
+     *
+     * @param users ユーザー数
+     * @param products 商品数
+     * @param cartRatio カートを持つユーザーの割合 (0〜1)
+     * @param ordersPerUser ユーザーあたりの平均注文数
+     * @param itemsPerOrder 注文あたりの平均明細数
+     */
+    public record Sizes(int users, int products, double cartRatio, double ordersPerUser, double itemsPerOrder) {
+
+        // カート保有率20%、1ユーザー平均3注文、1注文平均2明細
+        public static Sizes of(int users, int products) {
+            return new Sizes(users, products, 0.2, 3, 2);
+        }
+    }
+
+    /**
+     * 生成結果。IDはそれぞれ連番で、{@code first*Id} から件数分が生成したデータ。
+     */
+    public record Result(long firstUserId, int users, long firstProductId, int products,
+                         long carts, long cartItems, long orders, long orderItems, long elapsedMillis) {
+
+        public long totalRows() {
+            return users + products * (1L + STOCK_SHARDS) + carts + cartItems + orders + orderItems;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("users=%d, products=%d, carts=%d, cartItems=%d, orders=%d, orderItems=%d "
+                            + "(%d rows in %.1fs, %.0f rows/s)", users, products, carts, cartItems, orders, orderItems,
+                    totalRows(), elapsedMillis / 1000.0, totalRows() * 1000.0 / Math.max(1, elapsedMillis));
+        }
+    }
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * データを生成して投入します。
+     *
+     * @param sizes 生成するデータ量
+     * @param passwordHash 全ユーザーに設定するパスワードハッシュ (PasswordEncoderでエンコード済みのもの)
+     * @return 生成結果
+     */
+    public Result generate(Sizes sizes, String passwordHash) {
+        long start = System.nanoTime();
+        long firstUserId = insertUsers(sizes.users(), passwordHash);
+        List<GeneratedProduct> products = insertProducts(sizes.products());
+        ZipfSampler popularity = new ZipfSampler(products.size(), ZIPF_EXPONENT);
+        long[] carts = insertCarts(firstUserId, sizes, products, popularity);
+        long[] orders = insertOrders(firstUserId, sizes, products, popularity);
+        return new Result(firstUserId, sizes.users(), products.get(0).id(), products.size(),
+                carts[0], carts[1], orders[0], orders[1], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ========== テーブルごとの生成 ==========
+
+    private long insertUsers(int count, String passwordHash) {
+        long firstId = nextId("users");
+        try (BatchWriter users = new BatchWriter("INSERT INTO users (id, username, email, password, role, "
+                + "failed_login_attempts, account_locked) VALUES (?, ?, ?, ?, 'USER', 0, FALSE)")) {
+            for (long id = firstId; id < firstId + count; id++) {
+                users.add(id, "gen-user-" + id, "gen-user-" + id + "@example.com", passwordHash);
+            }
+        }
+        restartIdentity("users", firstId + count);
+        return firstId;
+    }
+
+    private List<GeneratedProduct> insertProducts(int count) {
+        long firstId = nextId("products");
+        Timestamp now = Timestamp.from(Instant.now());
+        List<GeneratedProduct> products = new ArrayList<>(count);
+        try (BatchWriter rows = new BatchWriter("INSERT INTO products (id, name, description, price, type, image_url, "
+                + "version, updated_at) VALUES (?, ?, ?, ?, ?, ?, 0, ?)");
+             BatchWriter shards = new BatchWriter(
+                     "INSERT INTO product_stock_shards (product_id, shard_no, quantity) VALUES (?, ?, ?)", rows)) {
+            for (long id = firstId; id < firstId + count; id++) {
+                boolean subscription = random.nextDouble() < 0.15;
+                String name;
+                int basePrice;
+                if (subscription) {
+                    name = SUBSCRIPTIONS[random.nextInt(SUBSCRIPTIONS.length)] + " プラン" + (char) ('A' + random.nextInt(3));
+                    basePrice = 980 + 500 * random.nextInt(8);
+                } else {
+                    int category = random.nextInt(CATEGORIES.length);
+                    name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + CATEGORIES[category];
+                    basePrice = CATEGORY_BASE_PRICES[category];
+                }
+                name += " No." + id;
+                // 価格はカテゴリの基準価格を中心とした対数正規分布 (10円単位)
+                BigDecimal price = BigDecimal.valueOf(Math.max(100, Math.round(basePrice * Math.exp(0.4 * random.nextGaussian()) / 10) * 10))
+                        .setScale(2, RoundingMode.UNNECESSARY);
+                rows.add(id, name, name + "です。毎日の暮らしに合わせて選べる人気の商品です。", price,
+                        subscription ? "SUBSCRIPTION" : "ONE_TIME", "https://example.com/images/products/" + id + ".jpg", now);
+                for (int shard = 0; shard < STOCK_SHARDS; shard++) {
+                    shards.add(id, shard, STOCK_PER_SHARD);
+                }
+                products.add(new GeneratedProduct(id, name, price));
+            }
+        }
+        restartIdentity("products", firstId + count);
+        return products;
+    }
+
+    // 戻り値: {カート数, カート明細数}
+    private long[] insertCarts(long firstUserId, Sizes sizes, List<GeneratedProduct> products, ZipfSampler popularity) {
+        long cartId = nextId("carts");
+        long firstCartId = cartId;
+        long itemCount = 0;
+        try (BatchWriter carts = new BatchWriter("INSERT INTO carts (id, user_id, item_count, distinct_product_count, "
+                + "subtotal) VALUES (?, ?, ?, ?, ?)");
+             BatchWriter items = new BatchWriter("INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)",
+                     carts)) {
+            for (long userId = firstUserId; userId < firstUserId + sizes.users(); userId++) {
+                if (random.nextDouble() >= sizes.cartRatio()) {
+                    continue;
+                }
+                Map<GeneratedProduct, Integer> lines = pickLines(products, popularity, 2);
+                int quantity = 0;
+                BigDecimal subtotal = BigDecimal.ZERO;
+                for (Map.Entry<GeneratedProduct, Integer> line : lines.entrySet()) {
+                    quantity += line.getValue();
+                    subtotal = subtotal.add(line.getKey().price().multiply(BigDecimal.valueOf(line.getValue())));
+                }
+                carts.add(cartId, userId, quantity, lines.size(), subtotal);
+                for (Map.Entry<GeneratedProduct, Integer> line : lines.entrySet()) {
+                    items.add(cartId, line.getKey().id(), line.getValue());
+                    itemCount++;
+                }
+                cartId++;
+            }
+        }
+        restartIdentity("carts", cartId);
+        return new long[]{cartId - firstCartId, itemCount};
+    }
+
+    // 戻り値: {注文数, 注文明細数}
+    private long[] insertOrders(long firstUserId, Sizes sizes, List<GeneratedProduct> products, ZipfSampler popularity) {
+        long orderId = nextId("orders");
+        long firstOrderId = orderId;
+        long itemCount = 0;
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        try (BatchWriter orders = new BatchWriter("INSERT INTO orders (id, user_id, order_date, total_amount, "
+                + "shipping_address, payment_status, order_status) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             BatchWriter items = new BatchWriter("INSERT INTO order_items (order_id, product_id, product_name, "
+                     + "item_price, quantity) VALUES (?, ?, ?, ?, ?)", orders)) {
+            for (long userId = firstUserId; userId < firstUserId + sizes.users(); userId++) {
+                int orderCount = poisson(sizes.ordersPerUser());
+                for (int i = 0; i < orderCount; i++) {
+                    Map<GeneratedProduct, Integer> lines = pickLines(products, popularity, sizes.itemsPerOrder());
+                    BigDecimal total = BigDecimal.ZERO;
+                    for (Map.Entry<GeneratedProduct, Integer> line : lines.entrySet()) {
+                        total = total.add(line.getKey().price().multiply(BigDecimal.valueOf(line.getValue())));
+                    }
+                    // 直近の注文の一部は決済・確認の処理中
+                    LocalDateTime orderDate = now.minusSeconds((long) (random.nextDouble() * 730 * 24 * 3600));
+                    boolean inProgress = random.nextDouble() < 0.02;
+                    orders.add(orderId, userId, Timestamp.valueOf(orderDate), total, shippingAddress(),
+                            inProgress ? "PENDING" : "PAID", inProgress ? "PROCESSING" : "CONFIRMED");
+                    for (Map.Entry<GeneratedProduct, Integer> line : lines.entrySet()) {
+                        items.add(orderId, line.getKey().id(), line.getKey().name(), line.getKey().price(), line.getValue());
+                        itemCount++;
+                    }
+                    orderId++;
+                }
+            }
+        }
+        restartIdentity("orders", orderId);
+        return new long[]{orderId - firstOrderId, itemCount};
+    }
+
+    // ========== 分布 ==========
+
+    // 人気順に偏った商品の明細 (商品 -> 数量)。明細数は平均 averageLines の幾何分布
+    private Map<GeneratedProduct, Integer> pickLines(List<GeneratedProduct> products, ZipfSampler popularity,
+                                                     double averageLines) {
+        int lineCount = 1;
+        while (lineCount < 10 && random.nextDouble() < 1 - 1 / averageLines) {
+            lineCount++;
+        }
+        Map<GeneratedProduct, Integer> lines = new LinkedHashMap<>();
+        for (int i = 0; i < lineCount; i++) {
+            lines.merge(products.get(popularity.sample(random)), 1 + (random.nextDouble() < 0.2 ? random.nextInt(3) : 0),
+                    Integer::sum);
+        }
+        return lines;
+    }
+
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    private String shippingAddress() {
+        return PREFECTURES[random.nextInt(PREFECTURES.length)] + "サンプル市" + (1 + random.nextInt(9)) + "-"
+                + (1 + random.nextInt(30)) + "-" + (1 + random.nextInt(20));
+    }
+
+    // 順位 k (0始まり) を 1/(k+1)^s に比例する確率で返す
+    private static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int k = 0; k < size; k++) {
+                sum += 1 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < size; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    private record GeneratedProduct(long id, String name, BigDecimal price) {
+    }
+
+    // ========== JDBC ==========
+
+    private long nextId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    // IDを明示して投入した後も、アプリケーションのINSERTが投入済みのIDと衝突しないようにする
+    private void restartIdentity(String table, long nextId) {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("H2".equals(database)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId);
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + nextId);
+        }
+    }
+
+    // BATCH_SIZE 行ごとにJDBCバッチで書き込む。parent を指定した場合は外部キーの参照先を先に書き込む
+    private final class BatchWriter implements AutoCloseable {
+        private final String sql;
+        private final BatchWriter parent;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+
+        BatchWriter(String sql) {
+            this(sql, null);
+        }
+
+        BatchWriter(String sql, BatchWriter parent) {
+            this.sql = sql;
+            this.parent = parent;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.my_test_app.support;
+
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.repository.UserRepository;
+import com.example.my_test_app.service.CartService;
+import com.example.my_test_app.service.OrderService;
+import com.example.my_test_app.service.UserService;
+import com.example.my_test_app.support.SyntheticDataGenerator.Result;
+import com.example.my_test_app.support.SyntheticDataGenerator.Sizes;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("合成データ生成")
+class SyntheticDataGeneratorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private OrderService orderService;
+
+    @Test
+    @DisplayName("生成したデータをアプリケーションから利用でき、以降の採番と衝突しないこと")
+    void generatedDataIsUsableByTheApplication() {
+        long ordersBefore = count("orders");
+        Result result = new SyntheticDataGenerator(jdbcTemplate, 1)
+                .generate(Sizes.of(200, 50), passwordEncoder.encode("password123"));
+
+        assertEquals(ordersBefore + result.orders(), count("orders"));
+        assertTrue(result.orders() > 0 && result.orderItems() >= result.orders());
+        assertTrue(result.carts() > 0 && result.cartItems() >= result.carts());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders o WHERE o.total_amount <> "
+                        + "(SELECT SUM(i.item_price * i.quantity) FROM order_items i WHERE i.order_id = o.id)", Long.class));
+
+        long userId = result.firstUserId() + 7;
+        User user = userRepository.findById(userId).orElseThrow();
+        assertTrue(userService.authenticateUser(user.getUsername(), "password123").isPresent());
+        cartService.addProductToCart(userId, result.firstProductId(), 1);
+        assertNotNull(orderService.createOrderFromCart(userId, "東京都新宿区"));
+
+        User created = new User();
+        created.setUsername("after-generation");
+        created.setEmail("after-generation@example.com");
+        created.setPassword("not-used");
+        created.setRole("USER");
+        assertTrue(userRepository.save(created).getId() >= result.firstUserId() + result.users());
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
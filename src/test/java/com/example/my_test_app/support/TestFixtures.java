@@ -0,0 +1,75 @@
+package com.example.my_test_app.support;
+
+import com.example.my_test_app.model.Cart;
+import com.example.my_test_app.model.CartItem;
+import com.example.my_test_app.model.Product;
+import com.example.my_test_app.model.ProductType;
+import com.example.my_test_app.model.User;
+import com.example.my_test_app.repository.CartRepository;
+import com.example.my_test_app.repository.ProductRepository;
+import com.example.my_test_app.repository.UserRepository;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * テストデータ（ユーザー・商品・カート）の作成。{@code @SpringBootTest} のテストに {@code @Autowired} して使う。
+ * ユーザー名は接頭辞にUUIDを付けて、テスト間・繰り返し実行で重複しないようにする。
+ */
+@Component
+public class TestFixtures {
+
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final CartRepository cartRepository;
+    private final PasswordEncoder passwordEncoder;
+
+    public TestFixtures(UserRepository userRepository, ProductRepository productRepository,
+                        CartRepository cartRepository, PasswordEncoder passwordEncoder) {
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.cartRepository = cartRepository;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    // ログインしないユーザー（パスワードは照合されない値）
+    public User createUser(String prefix) {
+        return saveUser(prefix, "not-used", "USER");
+    }
+
+    // ログインするユーザー（パスワードはエンコードして保存する）
+    public User createUser(String prefix, String rawPassword, String role) {
+        return saveUser(prefix, passwordEncoder.encode(rawPassword), role);
+    }
+
+    public Product createProduct(String name, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name + "の説明");
+        product.setPrice(new BigDecimal(price));
+        product.setType(ProductType.ONE_TIME);
+        return productRepository.save(product);
+    }
+
+    // 商品を1種類だけ入れたカートを持つユーザーを作り、ユーザーIDを返す
+    public Long createUserWithCart(String prefix, Product product, int quantity) {
+        User user = createUser(prefix);
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.addCartItem(new CartItem(cart, product, quantity));
+        cartRepository.save(cart);
+        return user.getId();
+    }
+
+    private User saveUser(String prefix, String password, String role) {
+        String name = prefix + "-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword(password);
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,123 @@
+-- Flyway の導入前に spring.jpa.hibernate.ddl-auto=update で作られていたスキーマ（導入前のエンティティから
+-- Hibernate (MySQLDialect) が生成したDDLそのまま）。SchemaMigrationTest でベースラインからのマイグレーションを確認する
+
+create table cart_items (
+    quantity integer not null,
+    cart_id bigint not null,
+    id bigint not null auto_increment,
+    product_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table carts (
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table order_items (
+    item_price decimal(10,2) not null,
+    quantity integer not null,
+    id bigint not null auto_increment,
+    order_id bigint not null,
+    product_id bigint not null,
+    product_name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    total_amount decimal(10,2) not null,
+    id bigint not null auto_increment,
+    order_date datetime(6) not null,
+    user_id bigint not null,
+    order_status varchar(50) not null,
+    payment_status varchar(50) not null,
+    shipping_address varchar(500) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table password_reset_tokens (
+    expiry_date datetime(6) not null,
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    token varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table products (
+    price decimal(10,2) not null,
+    id bigint not null auto_increment,
+    image_url varchar(500),
+    description varchar(1000) not null,
+    name varchar(255) not null,
+    type enum ('ONE_TIME','SUBSCRIPTION') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table users (
+    account_locked bit not null,
+    failed_login_attempts integer not null,
+    id bigint not null auto_increment,
+    lock_time datetime(6),
+    email varchar(255) not null,
+    password varchar(255) not null,
+    role varchar(255) not null,
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table carts
+   add constraint UK64t7ox312pqal3p7fg9o503c2 unique (user_id);
+
+alter table password_reset_tokens
+   add constraint UKla2ts67g4oh2sreayswhox1i6 unique (user_id);
+
+alter table password_reset_tokens
+   add constraint UK71lqwbwtklmljk3qlsugr1mig unique (token);
+
+alter table users
+   add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table users
+   add constraint UKr43af9ap4edm43mmtq01oddj6 unique (username);
+
+alter table cart_items
+   add constraint FKpcttvuq4mxppo8sxggjtn5i2c
+   foreign key (cart_id)
+   references carts (id);
+
+alter table cart_items
+   add constraint FK1re40cjegsfvw58xrkdp6bac6
+   foreign key (product_id)
+   references products (id);
+
+alter table carts
+   add constraint FKb5o626f86h46m4s7ms6ginnop
+   foreign key (user_id)
+   references users (id);
+
+alter table order_items
+   add constraint FKbioxgbv59vetrxe0ejfubep1w
+   foreign key (order_id)
+   references orders (id);
+
+alter table orders
+   add constraint FK32ql8ubntj5uh44ph9659tiih
+   foreign key (user_id)
+   references users (id);
+
+alter table password_reset_tokens
+   add constraint FKk3ndxg5xp6v7wd4gjyusp15gq
+   foreign key (user_id)
+   references users (id);
+
+-- 既存データ（同じカート・同じ商品の明細の重複を含む）
+insert into users (id, username, email, password, role, failed_login_attempts, account_locked)
+values (1, 'legacy', 'legacy@example.com', 'not-used', 'USER', 0, false);
+
+insert into products (id, name, description, price, type) values (1, '既存商品', '既存商品の説明', 1200.00, 'ONE_TIME');
+
+insert into carts (id, user_id) values (1, 1);
+
+insert into cart_items (id, cart_id, product_id, quantity) values (1, 1, 1, 2);
+insert into cart_items (id, cart_id, product_id, quantity) values (2, 1, 1, 3);
@@ -1,4 +1,4 @@
--- src/main/resources/data.sql
+-- テスト用の初期データ（Flyway のコールバック。テストプロファイルでマイグレーションの後に毎回実行される）
 
 -- products テーブルに初期データを挿入
 INSERT INTO products (name, description, price, type) VALUES